@@ -0,0 +1,43 @@
+package edu.uob;
+
+import java.util.Random;
+
+// Shared board setup for the benchmarks, so every engine is measured on the same positions
+final class BenchmarkBoards {
+
+    private static final char[] LETTERS = {'X', 'O', 'H', 'Z'};
+
+    private BenchmarkBoards() {}
+
+    static OXOModel create(String engine, int numberOfRows, int numberOfColumns, int winThreshold, int numberOfPlayers) {
+        OXOBoard board = switch (engine) {
+            case "bitboard" -> new OXOBitBoard(numberOfRows, numberOfColumns);
+            case "sparse" -> new OXOSparseBoard(numberOfRows, numberOfColumns);
+            default -> throw new IllegalArgumentException("Unknown board engine " + engine);
+        };
+        OXOModel model = new OXOModel(board, winThreshold);
+        for (int i = 0; i < numberOfPlayers; i++) model.addPlayer(new OXOPlayer(LETTERS[i]));
+        return model;
+    }
+
+    // Every cell of the board, in a repeatable random order, as packed moves
+    static int[] shuffledCells(int numberOfRows, int numberOfColumns) {
+        int[] cells = new int[numberOfRows * numberOfColumns];
+        for (int i = 0; i < cells.length; i++) cells[i] = OXOController.encodeMove(i / numberOfColumns, i % numberOfColumns);
+        Random random = new Random(42);
+        for (int i = cells.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = cells[i];
+            cells[i] = cells[j];
+            cells[j] = swap;
+        }
+        return cells;
+    }
+
+    // Claims the first `count` shuffled cells in turn order, straight through the model so no game ends early
+    static void fill(OXOModel model, int[] cells, int count) {
+        for (int i = 0; i < count; i++) {
+            model.setCellOwnerNumber(OXOController.decodeRow(cells[i]), OXOController.decodeColumn(cells[i]), i % model.getNumberOfPlayers());
+        }
+    }
+}
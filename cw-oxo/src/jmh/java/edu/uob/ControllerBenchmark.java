@@ -0,0 +1,144 @@
+package edu.uob;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControllerBenchmark {
+
+    @Param({"3", "15", "100"})
+    int boardSize;
+
+    @Param({"3", "5"})
+    int winThreshold;
+
+    @Param({"2", "3"})
+    int numberOfPlayers;
+
+    @Param({"bitboard", "sparse"})
+    String engine;
+
+    // A game in progress for the move benchmark, restarted whenever it ends
+    OXOModel playModel;
+    OXOController playController;
+    String[] playCommands;
+    int nextCommand;
+
+    // A half-full board for the validation and scanning benchmarks
+    OXOModel halfModel;
+    OXOController halfController;
+    String freeCell;
+    String takenCell;
+    int takenRow;
+    int takenColumn;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int[] cells = BenchmarkBoards.shuffledCells(boardSize, boardSize);
+        playCommands = new String[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            playCommands[i] = OXOCommandParser.cellName(OXOController.decodeRow(cells[i]), OXOController.decodeColumn(cells[i]));
+        }
+        startGame();
+
+        halfModel = BenchmarkBoards.create(engine, boardSize, boardSize, winThreshold, numberOfPlayers);
+        halfController = new OXOController(halfModel);
+        BenchmarkBoards.fill(halfModel, cells, cells.length / 2);
+        freeCell = playCommands[cells.length - 1];
+        takenCell = playCommands[0];
+        takenRow = OXOController.decodeRow(cells[0]);
+        takenColumn = OXOController.decodeColumn(cells[0]);
+    }
+
+    void startGame() {
+        playModel = BenchmarkBoards.create(engine, boardSize, boardSize, winThreshold, numberOfPlayers);
+        playController = new OXOController(playModel);
+        nextCommand = 0;
+    }
+
+    // Includes the amortised cost of starting a new game each time one finishes
+    @Benchmark
+    public OXOModel handleIncomingCommand() throws OXOMoveException {
+        if (playModel.getWinner() != null || playModel.isGameDrawn()) startGame();
+        playController.handleIncomingCommand(playCommands[nextCommand++]);
+        return playModel;
+    }
+
+    @Benchmark
+    public String validateFreeCell() throws OXOMoveException {
+        halfController.validateCommand(freeCell);
+        return freeCell;
+    }
+
+    @Benchmark
+    public OXOMoveException validateTakenCell() {
+        try {
+            halfController.validateCommand(takenCell);
+            return null;
+        } catch (OXOMoveException exception) {
+            return exception;
+        }
+    }
+
+    @Benchmark
+    public OXOPlayer checkWinner() {
+        halfController.checkWinner(takenRow, takenColumn);
+        return halfModel.getWinner();
+    }
+
+    @Benchmark
+    public boolean checkDraw() {
+        return halfController.checkDraw();
+    }
+
+    // Grown once per iteration, and reset to the same size so it stays grown. Every call refills half the board
+    // before resetting it, so reset is best read against refill, which does the same filling on its own
+    @State(Scope.Thread)
+    public static class GrownBoard {
+        OXOModel model;
+        OXOController controller;
+        int[] cells;
+        int size;
+
+        @Setup(Level.Iteration)
+        public void setup(ControllerBenchmark benchmark) {
+            model = BenchmarkBoards.create(benchmark.engine, 3, 3, benchmark.winThreshold, benchmark.numberOfPlayers);
+            controller = new OXOController(model);
+            for (int i = 3; i < benchmark.boardSize; i++) {
+                controller.addRow();
+                controller.addColumn();
+            }
+            cells = BenchmarkBoards.shuffledCells(benchmark.boardSize, benchmark.boardSize);
+            size = benchmark.boardSize;
+        }
+    }
+
+    @Benchmark
+    public OXOModel refill(GrownBoard board) {
+        BenchmarkBoards.fill(board.model, board.cells, board.cells.length / 2);
+        return board.model;
+    }
+
+    @Benchmark
+    public OXOModel reset(GrownBoard board) {
+        BenchmarkBoards.fill(board.model, board.cells, board.cells.length / 2);
+        board.controller.reset(board.size, board.size, board.model.getWinThreshold());
+        return board.model;
+    }
+}
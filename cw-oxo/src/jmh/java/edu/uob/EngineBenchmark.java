@@ -0,0 +1,84 @@
+package edu.uob;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Playouts (or nodes) per second for the move engines on a part-played 15x15 board. The per-second rates come
+// out as secondary results next to the moves-per-second score; compare threads=1 with higher counts to see how
+// the Monte Carlo engine scales.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class EngineBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    int threads;
+
+    @Param({"50"})
+    long moveTimeMillis;
+
+    ForkJoinPool pool;
+    OXOModel model;
+    OXOMonteCarloEngine monteCarlo;
+    OXOAlphaBetaEngine alphaBeta;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Work {
+        public long playouts;
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            playouts = 0;
+            nodes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        pool = new ForkJoinPool(threads);
+        model = BenchmarkBoards.create("bitboard", 15, 15, 5, 2);
+        OXOController controller = new OXOController(model);
+        controller.applyMoves("h8 g7 h9 g9 i8 j9 i10 g8");
+        monteCarlo = new OXOMonteCarloEngine(moveTimeMillis, pool, 42);
+        alphaBeta = new OXOAlphaBetaEngine(moveTimeMillis);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int monteCarlo(Work work) {
+        int move = monteCarlo.chooseMove(model);
+        work.playouts += monteCarlo.getLastPlayouts();
+        return move;
+    }
+
+    // Single threaded, so only worth running once: -p threads=1
+    @Benchmark
+    public int alphaBeta(Work work) {
+        int move = alphaBeta.chooseMove(model);
+        work.nodes += alphaBeta.getNodesSearched();
+        return move;
+    }
+}
@@ -0,0 +1,66 @@
+package edu.uob;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The same stream of moves with metrics off, on (one command in 64 timed) and timing every command, to show what
+// leaving the metrics on costs
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    @Param({"3", "15"})
+    int boardSize;
+
+    @Param({"off", "sampled", "every"})
+    String metrics;
+
+    OXOModel model;
+    OXOController controller;
+    OXOMetrics sharedMetrics;
+    String[] commands;
+    int nextCommand;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int[] cells = BenchmarkBoards.shuffledCells(boardSize, boardSize);
+        commands = new String[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            commands[i] = OXOCommandParser.cellName(OXOController.decodeRow(cells[i]), OXOController.decodeColumn(cells[i]));
+        }
+        sharedMetrics = switch (metrics) {
+            case "off" -> null;
+            case "sampled" -> new OXOMetrics();
+            case "every" -> new OXOMetrics(1);
+            default -> throw new IllegalArgumentException("Unknown metrics setting " + metrics);
+        };
+        model = BenchmarkBoards.create("bitboard", boardSize, boardSize, boardSize, 2);
+        controller = new OXOController(model);
+        controller.setMetrics(sharedMetrics);
+    }
+
+    // The threshold is the board size, so games mostly fill the board; restarting is amortised in
+    @Benchmark
+    public OXOMoveResult tryMove() {
+        if (model.getWinner() != null || model.isGameDrawn()) {
+            controller.restart();
+            nextCommand = 0;
+        }
+        return controller.tryMove(commands[nextCommand++]);
+    }
+}
@@ -0,0 +1,60 @@
+package edu.uob;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+
+    @Param({"15", "100", "1000"})
+    int boardSize;
+
+    @Param({"bitboard", "sparse"})
+    String engine;
+
+    OXOModel fullModel;
+
+    @Setup
+    public void setup() {
+        fullModel = BenchmarkBoards.create(engine, boardSize, boardSize, 3, 2);
+        int[] cells = BenchmarkBoards.shuffledCells(boardSize, boardSize);
+        BenchmarkBoards.fill(fullModel, cells, cells.length / 2);
+    }
+
+    // Grows a 3x3 board to boardSize x boardSize, one row and one column at a time
+    @Benchmark
+    public OXOModel growBoard() {
+        OXOModel model = BenchmarkBoards.create(engine, 3, 3, 3, 2);
+        for (int i = 3; i < boardSize; i++) {
+            model.addRow();
+            model.addColumn();
+        }
+        return model;
+    }
+
+    @Benchmark
+    public int scanCells() {
+        int claimed = 0;
+        for (int row = 0; row < boardSize; row++) {
+            for (int col = 0; col < boardSize; col++) {
+                if (fullModel.getCellOwnerNumber(row, col) != OXOBoard.EMPTY) claimed++;
+            }
+        }
+        return claimed;
+    }
+}
@@ -0,0 +1,53 @@
+package edu.uob;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// A lobby's churn: create a game, play a short game in it and leave. Run with -prof gc to see the allocation
+// the pool saves.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionPoolBenchmark {
+
+    @Param({"false", "true"})
+    boolean pooled;
+
+    @Param({"3", "15"})
+    int boardSize;
+
+    OXOSessionRegistry registry;
+    String create;
+    StringBuilder reply = new StringBuilder();
+
+    @Setup
+    public void setup() {
+        registry = pooled ? new OXOSessionRegistry(new OXOSessionPool(64)) : new OXOSessionRegistry();
+        create = "CREATE " + boardSize + " " + boardSize + " 3 XO";
+    }
+
+    @Benchmark
+    public int shortGame() {
+        reply.setLength(0);
+        OXOGameSession session = registry.execute(create, reply);
+        for (String move : new String[] {"a1", "b1", "a2", "b2", "a3"}) {
+            reply.setLength(0);
+            session.execute(move, reply);
+        }
+        registry.release(session);
+        return reply.length();
+    }
+}
@@ -0,0 +1,100 @@
+package edu.uob;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Renders the view into an off-screen image, so it runs headless. Each call changes what the view shows before
+// painting it, as a frame with nothing to redraw only copies the cached image to the screen.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ViewBenchmark {
+
+    @Param({"3", "15", "100"})
+    int boardSize;
+
+    @Param({"2", "3"})
+    int numberOfPlayers;
+
+    OXOModel model;
+    OXOView view;
+    BufferedImage image;
+    Graphics2D graphics;
+    int[] cells;
+    int nextCell;
+
+    @Setup
+    public void setup() {
+        model = BenchmarkBoards.create("bitboard", boardSize, boardSize, 3, numberOfPlayers);
+        cells = BenchmarkBoards.shuffledCells(boardSize, boardSize);
+        BenchmarkBoards.fill(model, cells, cells.length / 2);
+        view = new OXOView(model);
+        view.setSize(800, 800);
+        image = new BufferedImage(800, 800, BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+        view.paintComponent(graphics);
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    // Claims or clears one cell, so the board stays about half full, and draws the frame that shows it
+    @Benchmark
+    public BufferedImage paintChangedCell() {
+        int cell = cells[nextCell];
+        nextCell = (nextCell + 1) % cells.length;
+        int row = OXOController.decodeRow(cell);
+        int column = OXOController.decodeColumn(cell);
+        model.setCellOwnerNumber(row, column, model.getCellOwnerNumber(row, column) == OXOBoard.EMPTY ? nextCell % numberOfPlayers : OXOBoard.EMPTY);
+        view.paintComponent(graphics);
+        return image;
+    }
+
+    // Moves the window a row down the board and back each call, redrawing every visible cell. Needs a board bigger
+    // than the window, so it has its own.
+    @State(Scope.Thread)
+    public static class ScrolledView {
+        @Param({"100", "1000"})
+        int scrolledBoardSize;
+
+        OXOView view;
+        int direction = 1;
+
+        @Setup
+        public void setup(ViewBenchmark benchmark) {
+            OXOModel model = BenchmarkBoards.create("bitboard", scrolledBoardSize, scrolledBoardSize, 3, benchmark.numberOfPlayers);
+            int[] cells = BenchmarkBoards.shuffledCells(scrolledBoardSize, scrolledBoardSize);
+            BenchmarkBoards.fill(model, cells, cells.length / 2);
+            view = new OXOView(model);
+            view.setSize(800, 800);
+            view.setCellSize(OXOView.MIN_CELL_SIZE);
+            view.paintComponent(benchmark.graphics);
+        }
+    }
+
+    @Benchmark
+    public BufferedImage paintScrolled(ScrolledView scrolled) {
+        scrolled.view.scrollBy(scrolled.direction, 0);
+        scrolled.direction = -scrolled.direction;
+        scrolled.view.paintComponent(graphics);
+        return image;
+    }
+}
@@ -0,0 +1,316 @@
+package edu.uob;
+
+import java.util.Arrays;
+
+// Negamax search with alpha-beta pruning and iterative deepening, which stops when the time budget runs out and
+// plays the best move of the deepest search it finished. With more than two players the search is "paranoid":
+// everyone else is assumed to be working together against the player the engine is choosing a move for.
+// Searched positions go into a fixed-size transposition table keyed by their Zobrist hash, which is kept between
+// moves so positions seen on an earlier turn are not searched again. The key covers the board's shape and threshold,
+// and with more than two players whose side the search is on, so one engine can go on to play any other game.
+public class OXOAlphaBetaEngine implements OXOMoveEngine {
+
+    private static final int WIN = 1_000_000;
+    private static final int WIN_BOUND = WIN - 100_000;
+    private static final int EXACT = 0;
+    private static final int LOWER_BOUND = 1;
+    private static final int UPPER_BOUND = 2;
+    private static final int MOVE_BITS = 22;
+    // Only cells this close to a claimed cell are worth searching
+    private static final int NEIGHBOURHOOD = 2;
+    // A node costs about as much as the board has cells times the threshold, to generate moves and evaluate, so the
+    // clock is read once per this many cells' worth of nodes - every node on the biggest boards
+    private static final int CELLS_PER_CLOCK_CHECK = 1 << 16;
+    private static final int MAX_CLOCK_CHECK_INTERVAL = 1024;
+
+    private final long timeBudgetNanos;
+    private final long[] tableKeys;
+    private final long[] tableEntries;
+    private final int tableMask;
+
+    private OXOPosition position;
+    private int[] neighbours;
+    private int[][] moveLists = new int[0][];
+    private int[][] moveScores = new int[0][];
+    private int rootPlayer;
+    // Mixed into every hash in the table when more than two play, since paranoid scores depend on whose side the
+    // search is on
+    private long rootKey;
+    private int rootMove;
+    private long deadline;
+    // One less than the number of nodes between reads of the clock, a power of two
+    private int clockCheckMask;
+    private boolean outOfTime;
+    private long nodesSearched;
+    private int completedDepth;
+
+    public OXOAlphaBetaEngine(long timeBudgetMillis) {
+        this(timeBudgetMillis, 20);
+    }
+
+    // The transposition table holds 2^tableSizeBits positions, at 16 bytes each
+    public OXOAlphaBetaEngine(long timeBudgetMillis, int tableSizeBits) {
+        if (timeBudgetMillis < 1) throw new IllegalArgumentException("Time budget must be at least a millisecond");
+        if (tableSizeBits < 1 || tableSizeBits > 30) throw new IllegalArgumentException("Table size must be between 2^1 and 2^30 entries");
+        timeBudgetNanos = timeBudgetMillis * 1_000_000L;
+        tableKeys = new long[1 << tableSizeBits];
+        tableEntries = new long[1 << tableSizeBits];
+        tableMask = tableKeys.length - 1;
+    }
+
+    public int chooseMove(OXOModel model) {
+        deadline = System.nanoTime() + timeBudgetNanos;
+        int cell = chooseMove(new OXOPosition(model));
+        int columns = model.getNumberOfColumns();
+        return cell < 0 ? -1 : OXOController.encodeMove(cell / columns, cell % columns);
+    }
+
+    // Searches the position in place (it is left as it was found) and returns a cell index, or -1 if it is full
+    public int chooseMove(OXOPosition start, long timeBudgetMillis) {
+        deadline = System.nanoTime() + timeBudgetMillis * 1_000_000L;
+        return chooseMove(start);
+    }
+
+    public long getNodesSearched() {
+        return nodesSearched;
+    }
+
+    // How many moves ahead the last search looked before its deadline
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    public void clearTable() {
+        Arrays.fill(tableKeys, 0);
+        Arrays.fill(tableEntries, 0);
+    }
+
+    private int chooseMove(OXOPosition start) {
+        position = start;
+        rootPlayer = start.getPlayerToMove();
+        rootKey = start.getNumberOfPlayers() > 2 ? (rootPlayer + 1) * 0x9E3779B97F4A7C15L : 0;
+        outOfTime = false;
+        long nodeCost = (long) start.getNumberOfCells() * (Math.max(1, start.getWinThreshold()) + 1);
+        clockCheckMask = Integer.highestOneBit((int) Math.max(1, Math.min(MAX_CLOCK_CHECK_INTERVAL, CELLS_PER_CLOCK_CHECK / nodeCost))) - 1;
+        nodesSearched = 0;
+        completedDepth = 0;
+        countNeighbours();
+        if (generateMoves(0, -1) == 0) return -1;
+        int bestMove = moveLists[0][0];
+        int unclaimed = start.getNumberOfCells() - start.getNumberOfClaimedCells();
+        for (int depth = 1; depth <= unclaimed; depth++) {
+            int score = search(depth, 0, -WIN, WIN);
+            if (outOfTime) break;
+            bestMove = rootMove;
+            completedDepth = depth;
+            // Once a forced result is found, looking deeper can't change it
+            if (Math.abs(score) >= WIN_BOUND) break;
+        }
+        position = null;
+        return bestMove;
+    }
+
+    // Scores the position for the side of the player to move: positive is good for them and their allies
+    private int search(int depth, int ply, int alpha, int beta) {
+        if ((++nodesSearched & clockCheckMask) == 0 && System.nanoTime() > deadline) outOfTime = true;
+        if (outOfTime) return 0;
+        long hash = position.getHash() ^ rootKey;
+        int slot = (int) hash & tableMask;
+        int tableMove = -1;
+        if (tableKeys[slot] == hash) {
+            long entry = tableEntries[slot];
+            tableMove = (int) (entry >>> 10 & ((1 << MOVE_BITS) - 1)) - 1;
+            if (ply > 0 && (int) (entry & 0xFF) >= depth) {
+                int score = fromTable((int) (entry >> 32), ply);
+                int bound = (int) (entry >>> 8 & 3);
+                if (bound == EXACT) return score;
+                if (bound == LOWER_BOUND) alpha = Math.max(alpha, score);
+                else beta = Math.min(beta, score);
+                if (alpha >= beta) return score;
+            }
+        }
+        if (depth == 0) return evaluate();
+
+        int originalAlpha = alpha;
+        int mover = position.getPlayerToMove();
+        int count = generateMoves(ply, tableMove);
+        int[] moves = moveLists[ply];
+        int best = -WIN;
+        int bestMove = -1;
+        for (int i = 0; i < count; i++) {
+            int cell = moves[i];
+            play(cell);
+            int score;
+            if (position.isWinningCell(cell)) {
+                // Sooner wins score higher, so the engine doesn't dawdle
+                score = WIN - ply - 1;
+            } else if (position.isFull()) {
+                score = 0;
+            } else if (isAlly(position.getPlayerToMove(), mover)) {
+                score = search(depth - 1, ply + 1, alpha, beta);
+            } else {
+                score = -search(depth - 1, ply + 1, -beta, -alpha);
+            }
+            undo(cell);
+            if (outOfTime) return 0;
+            if (score > best) {
+                best = score;
+                bestMove = cell;
+                if (ply == 0) rootMove = cell;
+            }
+            if (score > alpha) alpha = score;
+            if (alpha >= beta) break;
+        }
+
+        int bound = best <= originalAlpha ? UPPER_BOUND : best >= beta ? LOWER_BOUND : EXACT;
+        int storedMove = bestMove + 1 < 1 << MOVE_BITS ? bestMove + 1 : 0;
+        tableKeys[slot] = hash;
+        tableEntries[slot] = (long) toTable(best, ply) << 32 | (long) storedMove << 10 | (long) bound << 8 | Math.min(depth, 0xFF);
+        return best;
+    }
+
+    // Win scores are stored relative to the position rather than the root, so they stay right wherever it recurs
+    private static int toTable(int score, int ply) {
+        if (score >= WIN_BOUND) return score + ply;
+        if (score <= -WIN_BOUND) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= WIN_BOUND) return score - ply;
+        if (score <= -WIN_BOUND) return score + ply;
+        return score;
+    }
+
+    private boolean isAlly(int player, int other) {
+        return (player == rootPlayer) == (other == rootPlayer);
+    }
+
+    // Collects the unclaimed cells near claimed ones into moveLists[ply], most promising first. On an empty
+    // board only the centre is tried.
+    private int generateMoves(int ply, int tableMove) {
+        if (ply >= moveLists.length) {
+            moveLists = Arrays.copyOf(moveLists, Math.max(8, ply * 2));
+            moveScores = Arrays.copyOf(moveScores, moveLists.length);
+        }
+        int numberOfCells = position.getNumberOfCells();
+        if (moveLists[ply] == null || moveLists[ply].length < numberOfCells) {
+            moveLists[ply] = new int[numberOfCells];
+            moveScores[ply] = new int[numberOfCells];
+        }
+        int[] moves = moveLists[ply];
+        int[] scores = moveScores[ply];
+        if (position.getNumberOfClaimedCells() == 0) {
+            if (numberOfCells == 0) return 0;
+            moves[0] = position.getNumberOfRows() / 2 * position.getNumberOfColumns() + position.getNumberOfColumns() / 2;
+            return 1;
+        }
+        int count = 0;
+        for (int cell = 0; cell < numberOfCells; cell++) {
+            if (neighbours[cell] == 0 || position.getOwner(cell) != OXOBoard.EMPTY) continue;
+            int score = cell == tableMove ? Integer.MAX_VALUE : scoreMove(cell);
+            // Insertion sort, highest score first
+            int i = count++;
+            while (i > 0 && scores[i - 1] < score) {
+                moves[i] = moves[i - 1];
+                scores[i] = scores[i - 1];
+                i--;
+            }
+            moves[i] = cell;
+            scores[i] = score;
+        }
+        return count;
+    }
+
+    // Winning moves first, then moves that stop someone else winning, then the longest lines made or blocked
+    private int scoreMove(int cell) {
+        int mover = position.getPlayerToMove();
+        int threshold = position.getWinThreshold();
+        int attack = position.longestLineThrough(cell, mover);
+        int defence = 0;
+        for (int player = 0; player < position.getNumberOfPlayers(); player++) {
+            if (player != mover) defence = Math.max(defence, position.longestLineThrough(cell, player));
+        }
+        int score = (attack >= threshold ? 1 << 24 : 0) + (defence >= threshold ? 1 << 23 : 0);
+        return score + Math.min(attack, 0xFF) * 512 + Math.min(defence, 0xFF) * 256 + Math.min(neighbours[cell], 0xFF);
+    }
+
+    // Counts every window of winThreshold cells in a line that only one side has claimed cells in, weighting
+    // each by how many of its cells are claimed
+    private int evaluate() {
+        int rows = position.getNumberOfRows();
+        int columns = position.getNumberOfColumns();
+        int threshold = position.getWinThreshold();
+        long total = 0;
+        total += evaluateWindows(rows, columns - threshold + 1, 0, 1, threshold);
+        total += evaluateWindows(rows - threshold + 1, columns, 1, 0, threshold);
+        total += evaluateWindows(rows - threshold + 1, columns - threshold + 1, 1, 1, threshold);
+        for (int row = 0; row + threshold <= rows && !outOfTime; row++) {
+            for (int col = threshold - 1; col < columns; col++) total += windowScore(row, col, 1, -1, threshold);
+            checkClockOnBigBoards();
+        }
+        if (outOfTime) return 0;
+        int score = (int) Math.max(-WIN_BOUND + 1, Math.min(WIN_BOUND - 1, total));
+        return position.getPlayerToMove() == rootPlayer ? score : -score;
+    }
+
+    private long evaluateWindows(int rowLimit, int columnLimit, int rowStep, int colStep, int threshold) {
+        long total = 0;
+        for (int row = 0; row < rowLimit && !outOfTime; row++) {
+            for (int col = 0; col < columnLimit; col++) total += windowScore(row, col, rowStep, colStep, threshold);
+            checkClockOnBigBoards();
+        }
+        return total;
+    }
+
+    // On boards where a single evaluation can outlast the budget the clock is read after every row of windows too
+    private void checkClockOnBigBoards() {
+        if (clockCheckMask == 0 && System.nanoTime() > deadline) outOfTime = true;
+    }
+
+    private long windowScore(int row, int col, int rowStep, int colStep, int threshold) {
+        int columns = position.getNumberOfColumns();
+        int ours = 0;
+        int theirs = 0;
+        for (int i = 0; i < threshold; i++) {
+            int owner = position.getOwner((row + i * rowStep) * columns + col + i * colStep);
+            if (owner == rootPlayer) ours++;
+            else if (owner != OXOBoard.EMPTY) theirs++;
+        }
+        if (theirs == 0 && ours > 0) return 1L << 3 * Math.min(ours, 9);
+        if (ours == 0 && theirs > 0) return -(1L << 3 * Math.min(theirs, 9));
+        return 0;
+    }
+
+    private void play(int cell) {
+        position.makeMove(cell);
+        updateNeighbours(cell, 1);
+    }
+
+    private void undo(int cell) {
+        position.unmakeMove(cell);
+        updateNeighbours(cell, -1);
+    }
+
+    // neighbours[cell] counts the claimed cells within NEIGHBOURHOOD of it, so move generation is a single pass
+    private void countNeighbours() {
+        int numberOfCells = position.getNumberOfCells();
+        if (neighbours == null || neighbours.length != numberOfCells) neighbours = new int[numberOfCells];
+        else Arrays.fill(neighbours, 0);
+        for (int cell = 0; cell < numberOfCells; cell++) {
+            if (position.getOwner(cell) != OXOBoard.EMPTY) updateNeighbours(cell, 1);
+        }
+    }
+
+    private void updateNeighbours(int cell, int change) {
+        int rows = position.getNumberOfRows();
+        int columns = position.getNumberOfColumns();
+        int row = cell / columns;
+        int col = cell % columns;
+        for (int r = Math.max(0, row - NEIGHBOURHOOD); r <= Math.min(rows - 1, row + NEIGHBOURHOOD); r++) {
+            for (int c = Math.max(0, col - NEIGHBOURHOOD); c <= Math.min(columns - 1, col + NEIGHBOURHOOD); c++) {
+                neighbours[r * columns + c] += change;
+            }
+        }
+    }
+}
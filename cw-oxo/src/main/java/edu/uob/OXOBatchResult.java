@@ -0,0 +1,51 @@
+package edu.uob;
+
+import java.util.Arrays;
+
+// Per-move outcomes of OXOController.applyMoves, in the order the moves were given
+public class OXOBatchResult {
+
+    private OXOMoveResult[] outcomes;
+    private int numberOfMoves;
+
+    OXOBatchResult(int expectedMoves) {
+        outcomes = new OXOMoveResult[Math.max(1, expectedMoves)];
+    }
+
+    void add(OXOMoveResult outcome) {
+        if (numberOfMoves == outcomes.length) outcomes = Arrays.copyOf(outcomes, numberOfMoves * 2);
+        outcomes[numberOfMoves++] = outcome;
+    }
+
+    // Moves that were looked at - the batch stops early once the game is won or drawn
+    public int getNumberOfMoves() {
+        return numberOfMoves;
+    }
+
+    public OXOMoveResult getOutcome(int index) {
+        if (index >= numberOfMoves) throw new IndexOutOfBoundsException(index);
+        return outcomes[index];
+    }
+
+    public int count(OXOMoveResult outcome) {
+        int count = 0;
+        for (int i = 0; i < numberOfMoves; i++) {
+            if (outcomes[i] == outcome) count++;
+        }
+        return count;
+    }
+
+    public int getNumberOfRejectedMoves() {
+        int count = 0;
+        for (int i = 0; i < numberOfMoves; i++) {
+            if (outcomes[i].isRejected()) count++;
+        }
+        return count;
+    }
+
+    public boolean isGameOver() {
+        if (numberOfMoves == 0) return false;
+        OXOMoveResult last = outcomes[numberOfMoves - 1];
+        return last == OXOMoveResult.WON || last == OXOMoveResult.DRAWN || last == OXOMoveResult.GAME_OVER;
+    }
+}
@@ -0,0 +1,189 @@
+package edu.uob;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+// Packed board: one bitset per player, cell (row, col) lives at bit row * stride + col.
+// The stride is always at least one wider than the board, so every row ends in an empty
+// padding bit and a run of set bits can never wrap from one row onto the next.
+public class OXOBitBoard implements OXOBoard {
+
+    private long[][] planes;
+    private int numberOfRows;
+    private int numberOfColumns;
+    private int stride;
+    private int claimedCells;
+
+    public OXOBitBoard(int numberOfRows, int numberOfColumns) {
+        this.numberOfRows = numberOfRows;
+        this.numberOfColumns = numberOfColumns;
+        stride = numberOfColumns + 1;
+        planes = new long[2][wordsFor(numberOfRows, stride)];
+    }
+
+    public int getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    public int getNumberOfColumns() {
+        return numberOfColumns;
+    }
+
+    public int getNumberOfClaimedCells() {
+        return claimedCells;
+    }
+
+    public int getOwner(int rowNumber, int colNumber) {
+        int bit = bitIndex(rowNumber, colNumber);
+        long mask = 1L << bit;
+        for (int player = 0; player < planes.length; player++) {
+            if ((planes[player][bit >>> 6] & mask) != 0) return player;
+        }
+        return EMPTY;
+    }
+
+    public void setOwner(int rowNumber, int colNumber, int playerNumber) {
+        int bit = bitIndex(rowNumber, colNumber);
+        clearBit(bit);
+        if (playerNumber == EMPTY) return;
+        if (playerNumber >= planes.length) addPlanes(playerNumber + 1);
+        planes[playerNumber][bit >>> 6] |= 1L << bit;
+        claimedCells++;
+    }
+
+    public boolean hasLine(int playerNumber, int length) {
+        if (playerNumber < 0 || playerNumber >= planes.length) return false;
+        long[] plane = planes[playerNumber];
+        if (length <= 1) return anyBitSet(plane);
+        if (length <= numberOfColumns && hasRun(plane, 1, length)) return true;
+        if (length > numberOfRows) return false;
+        return hasRun(plane, stride, length) || hasRun(plane, stride + 1, length) || hasRun(plane, stride - 1, length);
+    }
+
+    public void addRow() {
+        int words = wordsFor(numberOfRows + 1, stride);
+        if (words > planes[0].length) {
+            int capacity = Math.max(words, planes[0].length * 2);
+            for (int player = 0; player < planes.length; player++) {
+                planes[player] = Arrays.copyOf(planes[player], capacity);
+            }
+        }
+        numberOfRows++;
+    }
+
+    public void addColumn() {
+        if (numberOfColumns + 1 >= stride) restride(Math.max(stride * 2, numberOfColumns + 2));
+        numberOfColumns++;
+    }
+
+    public void removeRow() {
+        if (numberOfRows == 0) return;
+        int start = (numberOfRows - 1) * stride;
+        for (int bit = start; bit < start + numberOfColumns; bit++) clearBit(bit);
+        numberOfRows--;
+    }
+
+    public void removeColumn() {
+        if (numberOfColumns == 0) return;
+        for (int row = 0; row < numberOfRows; row++) clearBit(row * stride + numberOfColumns - 1);
+        numberOfColumns--;
+    }
+
+    // Zeroes the words in use rather than clearing cell by cell. The stride only ever widens here: the board is empty,
+    // so there are no bits to move
+    public void clear(int numberOfRows, int numberOfColumns) {
+        if (claimedCells > 0) {
+            int words = wordsFor(this.numberOfRows, stride);
+            for (long[] plane : planes) Arrays.fill(plane, 0, Math.min(words, plane.length), 0L);
+            claimedCells = 0;
+        }
+        if (numberOfColumns + 1 > stride) stride = numberOfColumns + 1;
+        int words = wordsFor(numberOfRows, stride);
+        if (words > planes[0].length) {
+            for (int player = 0; player < planes.length; player++) planes[player] = new long[words];
+        }
+        this.numberOfRows = numberOfRows;
+        this.numberOfColumns = numberOfColumns;
+    }
+
+    private int bitIndex(int rowNumber, int colNumber) {
+        Objects.checkIndex(rowNumber, numberOfRows);
+        Objects.checkIndex(colNumber, numberOfColumns);
+        return rowNumber * stride + colNumber;
+    }
+
+    private void clearBit(int bit) {
+        long mask = 1L << bit;
+        for (long[] plane : planes) {
+            if ((plane[bit >>> 6] & mask) != 0) {
+                plane[bit >>> 6] &= ~mask;
+                claimedCells--;
+                return;
+            }
+        }
+    }
+
+    private void addPlanes(int count) {
+        int oldCount = planes.length;
+        planes = Arrays.copyOf(planes, count);
+        for (int player = oldCount; player < count; player++) planes[player] = new long[planes[0].length];
+    }
+
+    // Widen every row to a new stride, so that columns can keep being added without a relayout each time
+    private void restride(int newStride) {
+        int capacityRows = Math.max(numberOfRows, (planes[0].length << 6) / stride);
+        for (int player = 0; player < planes.length; player++) {
+            long[] oldPlane = planes[player];
+            long[] newPlane = new long[wordsFor(capacityRows, newStride)];
+            for (int word = 0; word < oldPlane.length; word++) {
+                long bits = oldPlane[word];
+                while (bits != 0) {
+                    int bit = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    int moved = (bit / stride) * newStride + bit % stride;
+                    newPlane[moved >>> 6] |= 1L << moved;
+                    bits &= bits - 1;
+                }
+            }
+            planes[player] = newPlane;
+        }
+        stride = newStride;
+    }
+
+    // AND the plane with copies of itself shifted along the direction: any bit left standing
+    // is the start of `length` consecutive claimed cells
+    private static boolean hasRun(long[] plane, int step, int length) {
+        for (int word = 0; word < plane.length; word++) {
+            long run = plane[word];
+            for (int i = 1; i < length && run != 0; i++) {
+                run &= wordAt(plane, (word << 6) + i * step);
+            }
+            if (run != 0) return true;
+        }
+        return false;
+    }
+
+    // The 64 bits starting at an arbitrary bit offset
+    private static long wordAt(long[] plane, int offset) {
+        int word = offset >>> 6;
+        if (word >= plane.length) return 0;
+        int shift = offset & 63;
+        if (shift == 0) return plane[word];
+        long bits = plane[word] >>> shift;
+        if (word + 1 < plane.length) bits |= plane[word + 1] << (64 - shift);
+        return bits;
+    }
+
+    private static boolean anyBitSet(long[] plane) {
+        for (long word : plane) {
+            if (word != 0) return true;
+        }
+        return false;
+    }
+
+    // Bit indexes are ints, so boards past about two billion cells (counting padding) need the sparse board
+    private static int wordsFor(int rows, int stride) {
+        long bits = (long) rows * stride;
+        if (bits > Integer.MAX_VALUE - 63) throw new IllegalArgumentException("Board of " + rows + " rows of " + stride + " bits is too large for a bitboard");
+        return Math.max(1, (int) ((bits + 63) >>> 6));
+    }
+}
@@ -0,0 +1,31 @@
+package edu.uob;
+
+// Storage engine behind OXOModel - cells hold player numbers, or EMPTY when unclaimed
+public interface OXOBoard {
+
+    int EMPTY = -1;
+
+    int getNumberOfRows();
+
+    int getNumberOfColumns();
+
+    int getOwner(int rowNumber, int colNumber);
+
+    void setOwner(int rowNumber, int colNumber, int playerNumber);
+
+    int getNumberOfClaimedCells();
+
+    // True if the player owns `length` consecutive cells in any row, column or diagonal
+    boolean hasLine(int playerNumber, int length);
+
+    void addRow();
+
+    void addColumn();
+
+    void removeRow();
+
+    void removeColumn();
+
+    // Empties the board and gives it a new size, keeping the storage it already has where it can
+    void clear(int numberOfRows, int numberOfColumns);
+}
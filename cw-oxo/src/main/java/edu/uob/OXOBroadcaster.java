@@ -0,0 +1,288 @@
+package edu.uob;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Sends a game to any number of spectators. It listens to the model and, at the end of each batch (a move, a reset,
+// a session command), encodes what changed once into a frame and hands that same frame to every subscriber:
+//   type             one byte: DELTA, SNAPSHOT or CLOSED
+//   sequence         unsigned varint, one more for every frame published
+// then for a DELTA
+//   cells            unsigned varint count, then row, column and owner + 1 of each changed cell as unsigned varints
+//   current player   unsigned varint
+//   flags            one byte: 1 if there is a winner, 2 if the game is drawn
+//   winner           unsigned varint, only if there is one
+// or for a SNAPSHOT the whole game as OXOSnapshotCodec writes it. Resets, resizes and threshold changes always go
+// out as snapshots, as does anything a delta would be bigger than.
+// Each subscriber has its own bounded queue, and the game never waits for one: a subscriber whose queue is full
+// is either dropped (its queue is cleared and left holding a CLOSED frame) or resynced (its queue is cleared and
+// left holding a snapshot of the game as it is now, encoded once however many subscribers need it).
+// Changes made outside a batch go out with the next one, or on flush(). Subscribing, flushing and closing happen
+// on the game's thread - the thread that changes the model - while subscribers read frames on their own threads.
+public class OXOBroadcaster implements OXOModelListener {
+
+    public enum SlowConsumerPolicy { DROP, RESYNC }
+
+    static final byte DELTA = 1;
+    static final byte SNAPSHOT = 2;
+    static final byte CLOSED = 3;
+    private static final int HAS_WINNER = 1;
+    private static final int DRAWN = 2;
+    private static final ByteBuffer CLOSED_FRAME = ByteBuffer.wrap(new byte[] {CLOSED, 0}).asReadOnlyBuffer();
+
+    private final OXOModel model;
+    private final SlowConsumerPolicy policy;
+    private final List<Subscription> subscribers = new ArrayList<>();
+    private long sequence;
+    // Cells changed since the last frame and their owners
+    private int[] rows = new int[16];
+    private int[] columns = new int[16];
+    private int[] owners = new int[16];
+    private int numberOfCells;
+    private boolean changed;
+    private boolean needsSnapshot;
+    private long resyncs;
+    private long drops;
+
+    @SuppressWarnings("this-escape")
+    public OXOBroadcaster(OXOModel model, SlowConsumerPolicy policy) {
+        this.model = model;
+        this.policy = policy;
+        model.addListener(this);
+    }
+
+    // Subscribes with room for queueCapacity frames, the first of which is a snapshot of the game as it is now
+    public Subscription subscribe(int queueCapacity) {
+        if (queueCapacity < 1) throw new IllegalArgumentException("Subscribers need room for at least one frame");
+        Subscription subscription = new Subscription(queueCapacity);
+        subscription.frames.add(snapshotFrame(sequence));
+        subscribers.add(subscription);
+        return subscription;
+    }
+
+    public int getNumberOfSubscribers() {
+        return subscribers.size();
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    // How many times a subscriber has fallen behind and been sent the whole game again
+    public long getResyncs() {
+        return resyncs;
+    }
+
+    public long getDrops() {
+        return drops;
+    }
+
+    public void cellChanged(int rowNumber, int colNumber, int playerNumber) {
+        if (numberOfCells == owners.length) {
+            rows = Arrays.copyOf(rows, owners.length * 2);
+            columns = Arrays.copyOf(columns, owners.length * 2);
+            owners = Arrays.copyOf(owners, owners.length * 2);
+        }
+        rows[numberOfCells] = rowNumber;
+        columns[numberOfCells] = colNumber;
+        owners[numberOfCells++] = playerNumber;
+        changed = true;
+    }
+
+    public void turnChanged(int playerNumber) {
+        changed = true;
+    }
+
+    public void winnerChanged(OXOPlayer winner) {
+        changed = true;
+    }
+
+    public void drawnChanged(boolean drawn) {
+        changed = true;
+    }
+
+    public void dimensionsChanged(int numberOfRows, int numberOfColumns) {
+        structureChanged();
+    }
+
+    public void thresholdChanged(int winThreshold) {
+        structureChanged();
+    }
+
+    public void gameReset() {
+        structureChanged();
+    }
+
+    public void batchEnded() {
+        flush();
+    }
+
+    // Publishes whatever has changed since the last frame
+    public void flush() {
+        if (!changed) return;
+        sequence++;
+        ByteBuffer snapshot = null;
+        ByteBuffer frame;
+        if (needsSnapshot || deltaSize() > OXOSnapshotCodec.encodedSize(model)) {
+            snapshot = snapshotFrame(sequence);
+            frame = snapshot;
+        }
+        else {
+            frame = deltaFrame(sequence);
+        }
+        numberOfCells = 0;
+        changed = false;
+        needsSnapshot = false;
+
+        int kept = 0;
+        for (int i = 0; i < subscribers.size(); i++) {
+            Subscription subscription = subscribers.get(i);
+            if (subscription.closed) continue;
+            if (!subscription.frames.offer(frame)) {
+                if (policy == SlowConsumerPolicy.DROP) {
+                    subscription.drop();
+                    drops++;
+                    continue;
+                }
+                if (snapshot == null) snapshot = snapshotFrame(sequence);
+                // Only this thread adds frames, so there is room once the queue is cleared
+                subscription.frames.clear();
+                subscription.frames.add(snapshot);
+                resyncs++;
+            }
+            subscribers.set(kept++, subscription);
+        }
+        subscribers.subList(kept, subscribers.size()).clear();
+    }
+
+    // Stops listening to the model and drops every subscriber
+    public void close() {
+        model.removeListener(this);
+        for (Subscription subscription : subscribers) subscription.drop();
+        subscribers.clear();
+    }
+
+    // The sequence number of a frame, without moving its position
+    public static long sequenceOf(ByteBuffer frame) {
+        ByteBuffer view = frame.duplicate();
+        view.get();
+        return Integer.toUnsignedLong(OXOSnapshotCodec.getVarint(view));
+    }
+
+    // Brings a spectator's copy of the game up to date with a frame: deltas change it in place, snapshots replace
+    // it (or make it, if there isn't one yet). Returns the copy, or null once the subscription has been closed.
+    public static OXOModel apply(ByteBuffer frame, OXOModel replica) {
+        ByteBuffer view = frame.duplicate();
+        byte type = view.get();
+        OXOSnapshotCodec.getVarint(view);
+        switch (type) {
+            case SNAPSHOT -> {
+                return replica == null ? OXOSnapshotCodec.read(view) : OXOSnapshotCodec.read(view, replica);
+            }
+            case CLOSED -> {
+                return null;
+            }
+            case DELTA -> {
+                if (replica == null) throw new IllegalArgumentException("A delta needs a snapshot to apply to");
+                int count = OXOSnapshotCodec.getVarint(view);
+                for (int i = 0; i < count; i++) {
+                    int row = OXOSnapshotCodec.getVarint(view);
+                    int col = OXOSnapshotCodec.getVarint(view);
+                    replica.setCellOwnerNumber(row, col, OXOSnapshotCodec.getVarint(view) - 1);
+                }
+                replica.setCurrentPlayerNumber(OXOSnapshotCodec.getVarint(view));
+                int flags = view.get();
+                replica.setWinner((flags & HAS_WINNER) == 0 ? null : replica.getPlayerByNumber(OXOSnapshotCodec.getVarint(view)));
+                replica.setGameDrawn((flags & DRAWN) != 0);
+                return replica;
+            }
+            default -> throw new IllegalArgumentException("Unknown frame type " + type);
+        }
+    }
+
+    private void structureChanged() {
+        changed = true;
+        needsSnapshot = true;
+        numberOfCells = 0;
+    }
+
+    private int deltaSize() {
+        int size = 1 + OXOSnapshotCodec.varintSize((int) sequence) + OXOSnapshotCodec.varintSize(numberOfCells);
+        for (int i = 0; i < numberOfCells; i++) {
+            size += OXOSnapshotCodec.varintSize(rows[i]) + OXOSnapshotCodec.varintSize(columns[i])
+                    + OXOSnapshotCodec.varintSize(owners[i] + 1);
+        }
+        size += OXOSnapshotCodec.varintSize(model.getCurrentPlayerNumber()) + 1;
+        if (model.getWinner() != null) size += OXOSnapshotCodec.varintSize(model.getPlayerNumber(model.getWinner()));
+        return size;
+    }
+
+    private ByteBuffer deltaFrame(long frameSequence) {
+        ByteBuffer frame = ByteBuffer.allocate(deltaSize());
+        frame.put(DELTA);
+        OXOSnapshotCodec.putVarint(frame, (int) frameSequence);
+        OXOSnapshotCodec.putVarint(frame, numberOfCells);
+        for (int i = 0; i < numberOfCells; i++) {
+            OXOSnapshotCodec.putVarint(frame, rows[i]);
+            OXOSnapshotCodec.putVarint(frame, columns[i]);
+            OXOSnapshotCodec.putVarint(frame, owners[i] + 1);
+        }
+        OXOSnapshotCodec.putVarint(frame, model.getCurrentPlayerNumber());
+        OXOPlayer winner = model.getWinner();
+        frame.put((byte) ((winner == null ? 0 : HAS_WINNER) | (model.isGameDrawn() ? DRAWN : 0)));
+        if (winner != null) OXOSnapshotCodec.putVarint(frame, model.getPlayerNumber(winner));
+        return frame.flip().asReadOnlyBuffer();
+    }
+
+    private ByteBuffer snapshotFrame(long frameSequence) {
+        ByteBuffer frame = ByteBuffer.allocate(1 + OXOSnapshotCodec.varintSize((int) frameSequence) + OXOSnapshotCodec.encodedSize(model));
+        frame.put(SNAPSHOT);
+        OXOSnapshotCodec.putVarint(frame, (int) frameSequence);
+        OXOSnapshotCodec.write(model, frame);
+        return frame.flip().asReadOnlyBuffer();
+    }
+
+    // One spectator's queue of frames. Frames are shared between subscribers, so each one handed out is a
+    // separate view of the same bytes.
+    public static class Subscription {
+        private final BlockingQueue<ByteBuffer> frames;
+        private volatile boolean closed;
+
+        private Subscription(int queueCapacity) {
+            frames = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        // The next frame, or null if there isn't one yet
+        public ByteBuffer poll() {
+            ByteBuffer frame = frames.poll();
+            return frame == null ? null : frame.duplicate();
+        }
+
+        public ByteBuffer take() throws InterruptedException {
+            return frames.take().duplicate();
+        }
+
+        public int getNumberOfQueuedFrames() {
+            return frames.size();
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        // Unsubscribes; the broadcaster lets go of it with the next frame
+        public void close() {
+            closed = true;
+        }
+
+        private void drop() {
+            closed = true;
+            frames.clear();
+            frames.add(CLOSED_FRAME);
+        }
+    }
+}
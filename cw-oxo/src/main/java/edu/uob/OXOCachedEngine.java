@@ -0,0 +1,31 @@
+package edu.uob;
+
+// Puts an evaluation cache in front of another engine, so a position that has already been answered - in any
+// session, in any orientation - is answered again without searching. Moves are cached on the canonical board and
+// turned back to fit the board they were asked about.
+public class OXOCachedEngine implements OXOMoveEngine {
+
+    private final OXOMoveEngine engine;
+    private final OXOEvaluationCache<Integer> cache;
+
+    public OXOCachedEngine(OXOMoveEngine engine, OXOEvaluationCache<Integer> cache) {
+        this.engine = engine;
+        this.cache = cache;
+    }
+
+    public OXOEvaluationCache<Integer> getCache() {
+        return cache;
+    }
+
+    public int chooseMove(OXOModel model) {
+        OXOCanonicalKey key = OXOCanonicalKey.of(model);
+        Integer canonicalMove = cache.get(key);
+        if (canonicalMove == null) {
+            int move = engine.chooseMove(model);
+            if (move < 0) return move;
+            canonicalMove = key.toCanonicalMove(move);
+            cache.put(key, canonicalMove);
+        }
+        return key.fromCanonicalMove(canonicalMove);
+    }
+}
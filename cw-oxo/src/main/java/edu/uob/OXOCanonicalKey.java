@@ -0,0 +1,133 @@
+package edu.uob;
+
+import java.util.Arrays;
+
+// A game position reduced to one representative of everything it is equivalent to under rotation and
+// reflection, for use as a cache key. Boards are first turned so they have no more rows than columns (so a 3x4
+// game and the same game on its side as 4x3 share a key), then the symmetry giving the lowest sequence of cells
+// is chosen. The threshold, number of players and player to move are part of the key.
+//
+// The key also remembers how its own board was turned, so moves can be carried between the original board and
+// the canonical one - that part doesn't take part in equality.
+public class OXOCanonicalKey {
+
+    private final int numberOfRows;
+    private final int numberOfColumns;
+    private final int winThreshold;
+    private final int numberOfPlayers;
+    private final int playerToMove;
+    // Cell owners + 1 in the canonical orientation, row by row
+    private final byte[] cells;
+    private final int hash;
+    private final boolean transposed;
+    private final int[] sources;
+
+    public static OXOCanonicalKey of(OXOModel model) {
+        int rows = model.getNumberOfRows();
+        int cols = model.getNumberOfColumns();
+        byte[] cells = new byte[rows * cols];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) cells[row * cols + col] = (byte) (model.getCellOwnerNumber(row, col) + 1);
+        }
+        return new OXOCanonicalKey(rows, cols, cells, model.getWinThreshold(), model.getNumberOfPlayers(), model.getCurrentPlayerNumber());
+    }
+
+    public static OXOCanonicalKey of(OXOPosition position) {
+        byte[] cells = new byte[position.getNumberOfCells()];
+        for (int cell = 0; cell < cells.length; cell++) cells[cell] = (byte) (position.getOwner(cell) + 1);
+        return new OXOCanonicalKey(position.getNumberOfRows(), position.getNumberOfColumns(), cells,
+                position.getWinThreshold(), position.getNumberOfPlayers(), position.getPlayerToMove());
+    }
+
+    private OXOCanonicalKey(int rows, int cols, byte[] original, int winThreshold, int numberOfPlayers, int playerToMove) {
+        transposed = rows > cols;
+        byte[] upright = original;
+        if (transposed) {
+            upright = new byte[original.length];
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < cols; col++) upright[col * rows + row] = original[row * cols + col];
+            }
+            int swap = rows;
+            rows = cols;
+            cols = swap;
+        }
+        int[][] symmetries = OXOSymmetry.sources(rows, cols);
+        int best = 0;
+        for (int t = 1; t < symmetries.length; t++) {
+            if (compare(upright, symmetries[t], symmetries[best]) < 0) best = t;
+        }
+        sources = symmetries[best];
+        cells = new byte[upright.length];
+        for (int i = 0; i < cells.length; i++) cells[i] = upright[sources[i]];
+        numberOfRows = rows;
+        numberOfColumns = cols;
+        this.winThreshold = winThreshold;
+        this.numberOfPlayers = numberOfPlayers;
+        this.playerToMove = playerToMove;
+        int result = Arrays.hashCode(cells);
+        result = 31 * result + rows;
+        result = 31 * result + winThreshold;
+        result = 31 * result + numberOfPlayers;
+        hash = 31 * result + playerToMove;
+    }
+
+    // Compares the cells as they would be laid out by two symmetries, without building either
+    private static int compare(byte[] cells, int[] first, int[] second) {
+        for (int i = 0; i < cells.length; i++) {
+            int difference = cells[first[i]] - cells[second[i]];
+            if (difference != 0) return difference;
+        }
+        return 0;
+    }
+
+    public int getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    public int getNumberOfColumns() {
+        return numberOfColumns;
+    }
+
+    public int getWinThreshold() {
+        return winThreshold;
+    }
+
+    public int getPlayerToMove() {
+        return playerToMove;
+    }
+
+    // Owner of a cell of the canonical board, or OXOBoard.EMPTY
+    public int getOwner(int row, int col) {
+        return cells[row * numberOfColumns + col] - 1;
+    }
+
+    // Moves are packed with OXOController.encodeMove, as played on the original board
+    public int toCanonicalMove(int move) {
+        int row = OXOController.decodeRow(move);
+        int col = OXOController.decodeColumn(move);
+        int uprightCell = transposed ? col * numberOfColumns + row : row * numberOfColumns + col;
+        for (int i = 0; i < sources.length; i++) {
+            if (sources[i] == uprightCell) return OXOController.encodeMove(i / numberOfColumns, i % numberOfColumns);
+        }
+        throw new IllegalArgumentException("Move is outside the board");
+    }
+
+    public int fromCanonicalMove(int move) {
+        int uprightCell = sources[OXOController.decodeRow(move) * numberOfColumns + OXOController.decodeColumn(move)];
+        int row = uprightCell / numberOfColumns;
+        int col = uprightCell % numberOfColumns;
+        return transposed ? OXOController.encodeMove(col, row) : OXOController.encodeMove(row, col);
+    }
+
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof OXOCanonicalKey key)) return false;
+        return hash == key.hash && numberOfRows == key.numberOfRows && numberOfColumns == key.numberOfColumns
+                && winThreshold == key.winThreshold && numberOfPlayers == key.numberOfPlayers
+                && playerToMove == key.playerToMove && Arrays.equals(cells, key.cells);
+    }
+
+    public int hashCode() {
+        return hash;
+    }
+}
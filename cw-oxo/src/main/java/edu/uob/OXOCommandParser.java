@@ -0,0 +1,144 @@
+package edu.uob;
+
+import edu.uob.OXOMoveException.*;
+import java.nio.ByteBuffer;
+
+// Single pass parser for cell identifiers like "b3" or "aa123": letters name the row (a..z, then aa, ab, ...
+// like spreadsheet columns) and the number that follows names the column, counting from 1.
+// Parses in place from a CharSequence or the bytes of a ByteBuffer, and reuses its own fields for the result,
+// so tryParse never allocates. When it fails, getError says why and createException builds the matching exception.
+public class OXOCommandParser {
+
+    private int row;
+    private int column;
+    private OXOMoveResult error;
+    private int length;
+    private char badCharacter;
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public OXOMoveResult getError() {
+        return error;
+    }
+
+    public void parse(CharSequence command, int numberOfRows, int numberOfColumns) throws OXOMoveException {
+        if (!tryParse(command, numberOfRows, numberOfColumns)) throw createException(true);
+    }
+
+    public void parse(CharSequence command, int start, int end, int numberOfRows, int numberOfColumns) throws OXOMoveException {
+        if (!tryParse(command, start, end, numberOfRows, numberOfColumns)) throw createException(true);
+    }
+
+    public void parse(ByteBuffer command, int numberOfRows, int numberOfColumns) throws OXOMoveException {
+        if (!tryParse(command, numberOfRows, numberOfColumns)) throw createException(true);
+    }
+
+    public boolean tryParse(CharSequence command, int numberOfRows, int numberOfColumns) {
+        return tryParse(command, null, 0, command.length(), numberOfRows, numberOfColumns);
+    }
+
+    public boolean tryParse(CharSequence command, int start, int end, int numberOfRows, int numberOfColumns) {
+        return tryParse(command, null, start, end, numberOfRows, numberOfColumns);
+    }
+
+    // Reads the bytes between the buffer's position and limit, leaving the position where it was
+    public boolean tryParse(ByteBuffer command, int numberOfRows, int numberOfColumns) {
+        return tryParse(null, command, command.position(), command.limit(), numberOfRows, numberOfColumns);
+    }
+
+    // The exception for the last failed parse, optionally without the cost of capturing a stack trace
+    public OXOMoveException createException(boolean writableStackTrace) {
+        switch (error) {
+            case INVALID_LENGTH: return new InvalidIdentifierLengthException(length, writableStackTrace);
+            case INVALID_ROW_CHARACTER: return new InvalidIdentifierCharacterException(RowOrColumn.ROW, badCharacter, writableStackTrace);
+            case INVALID_COLUMN_CHARACTER: return new InvalidIdentifierCharacterException(RowOrColumn.COLUMN, badCharacter, writableStackTrace);
+            case ROW_OUT_OF_RANGE: return new OutsideCellRangeException(RowOrColumn.ROW, row, writableStackTrace);
+            default: return new OutsideCellRangeException(RowOrColumn.COLUMN, column, writableStackTrace);
+        }
+    }
+
+    private boolean tryParse(CharSequence chars, ByteBuffer bytes, int start, int end, int numberOfRows, int numberOfColumns) {
+        // The longest identifier that could still name a cell on this board
+        length = end - start;
+        int maxLength = rowLabelLength(Math.max(0, numberOfRows - 1)) + digitCount(Math.max(1, numberOfColumns));
+        if (length < 2 || length > maxLength) {
+            return fail(OXOMoveResult.INVALID_LENGTH);
+        }
+        long rowValue = 0;
+        int i = start;
+        // The last character always belongs to the column
+        for (; i < end - 1; i++) {
+            int letter = (charAt(chars, bytes, i) | 0x20) - 'a';
+            if (letter < 0 || letter >= 26) break;
+            rowValue = Math.min(rowValue * 26 + letter + 1, Integer.MAX_VALUE);
+        }
+        if (i == start) {
+            badCharacter = charAt(chars, bytes, start);
+            return fail(OXOMoveResult.INVALID_ROW_CHARACTER);
+        }
+        long colValue = 0;
+        for (; i < end; i++) {
+            char digit = charAt(chars, bytes, i);
+            if (digit < '0' || digit > '9') {
+                badCharacter = digit;
+                return fail(OXOMoveResult.INVALID_COLUMN_CHARACTER);
+            }
+            colValue = Math.min(colValue * 10 + (digit - '0'), Integer.MAX_VALUE);
+        }
+        row = (int) rowValue - 1;
+        column = (int) colValue - 1;
+        if (row >= numberOfRows) {
+            return fail(OXOMoveResult.ROW_OUT_OF_RANGE);
+        }
+        if (column >= numberOfColumns || column < 0) {
+            return fail(OXOMoveResult.COLUMN_OUT_OF_RANGE);
+        }
+        error = null;
+        return true;
+    }
+
+    private boolean fail(OXOMoveResult result) {
+        error = result;
+        return false;
+    }
+
+    private static char charAt(CharSequence chars, ByteBuffer bytes, int index) {
+        return chars != null ? chars.charAt(index) : (char) (bytes.get(index) & 0xFF);
+    }
+
+    // Number of letters in the label of a row: a..z take one, aa..zz two, and so on
+    public static int rowLabelLength(int rowNumber) {
+        int length = 0;
+        for (long remaining = rowNumber + 1L; remaining > 0; remaining = (remaining - 1) / 26) length++;
+        return length;
+    }
+
+    public static void appendRowLabel(StringBuilder builder, int rowNumber) {
+        int start = builder.length();
+        for (long remaining = rowNumber + 1L; remaining > 0; remaining = (remaining - 1) / 26) {
+            builder.insert(start, (char) ('a' + (remaining - 1) % 26));
+        }
+    }
+
+    // The identifier a player would type for a cell, e.g. "aa12"
+    public static String cellName(int rowNumber, int colNumber) {
+        StringBuilder builder = new StringBuilder();
+        appendRowLabel(builder, rowNumber);
+        return builder.append(colNumber + 1).toString();
+    }
+
+    private static int digitCount(int number) {
+        int count = 1;
+        while (number >= 10) {
+            number /= 10;
+            count++;
+        }
+        return count;
+    }
+}
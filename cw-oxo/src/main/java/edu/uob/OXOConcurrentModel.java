@@ -0,0 +1,310 @@
+package edu.uob;
+
+import java.util.concurrent.locks.StampedLock;
+
+// A model that one thread plays on while any number of others watch. The playing thread uses it like any other
+// model; every change, and every batch (a whole move, when it comes through OXOController), happens under a
+// StampedLock write lock. Other threads read through snapshot(), which copies the game under an optimistic read
+// and tries again if a change got in the way, so watchers never see a half-made move or a board halfway through
+// shrinking, and never hold the playing thread up unless it keeps changing the game under them. Snapshots are
+// kept and shared until the next change, so thousands of watchers reading between moves cost one copy.
+// The ordinary getters are only safe on the playing thread.
+public class OXOConcurrentModel extends OXOModel {
+
+    // Optimistic attempts before a snapshot falls back to a read lock
+    private static final int OPTIMISTIC_ATTEMPTS = 4;
+
+    private final StampedLock lock = new StampedLock();
+    private long writeStamp;
+    private int writeDepth;
+    private Thread writer;
+    // Bumped at the end of each write, and only read under the lock
+    private long version;
+    private volatile Snapshot latest;
+
+    public OXOConcurrentModel(int numberOfRows, int numberOfColumns, int winThresh) {
+        super(numberOfRows, numberOfColumns, winThresh);
+    }
+
+    public OXOConcurrentModel(OXOBoard board, int winThresh) {
+        super(board, winThresh);
+    }
+
+    // The game as it stood between two changes
+    public Snapshot snapshot() {
+        // Listeners run inside the write lock, so a snapshot taken from one just reads the model
+        if (writer == Thread.currentThread()) return copy(version);
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp == 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            long currentVersion = version;
+            Snapshot cached = latest;
+            if (cached != null && cached.version == currentVersion && lock.validate(stamp)) return cached;
+            Snapshot copy;
+            try {
+                copy = copy(currentVersion);
+            } catch (RuntimeException exception) {
+                // The board changed shape mid-copy; the stamp won't validate either
+                continue;
+            }
+            if (lock.validate(stamp)) {
+                latest = copy;
+                return copy;
+            }
+        }
+        long stamp = lock.readLock();
+        try {
+            Snapshot copy = copy(version);
+            latest = copy;
+            return copy;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public void beginBatch() {
+        lockForWrite();
+        super.beginBatch();
+    }
+
+    public void endBatch() {
+        try {
+            super.endBatch();
+        } finally {
+            unlockForWrite();
+        }
+    }
+
+    public void addPlayer(OXOPlayer player) {
+        lockForWrite();
+        try {
+            super.addPlayer(player);
+        } finally {
+            unlockForWrite();
+        }
+    }
+
+    public void setPlayer(int number, OXOPlayer player) {
+        lockForWrite();
+        try {
+            super.setPlayer(number, player);
+        } finally {
+            unlockForWrite();
+        }
+    }
+
+    public void setWinner(OXOPlayer player) {
+        lockForWrite();
+        try {
+            super.setWinner(player);
+        } finally {
+            unlockForWrite();
+        }
+    }
+
+    public void setCurrentPlayerNumber(int playerNumber) {
+        lockForWrite();
+        try {
+            super.setCurrentPlayerNumber(playerNumber);
+        } finally {
+            unlockForWrite();
+        }
+    }
+
+    public void setCellOwnerNumber(int rowNumber, int colNumber, int playerNumber) {
+        lockForWrite();
+        try {
+            super.setCellOwnerNumber(rowNumber, colNumber, playerNumber);
+        } finally {
+            unlockForWrite();
+        }
+    }
+
+    public void setWinThreshold(int winThresh) {
+        lockForWrite();
+        try {
+            super.setWinThreshold(winThresh);
+        } finally {
+            unlockForWrite();
+        }
+    }
+
+    public void setGameDrawn(boolean drawn) {
+        lockForWrite();
+        try {
+            super.setGameDrawn(drawn);
+        } finally {
+            unlockForWrite();
+        }
+    }
+
+    public void addRow() {
+        lockForWrite();
+        try {
+            super.addRow();
+        } finally {
+            unlockForWrite();
+        }
+    }
+
+    public void addColumn() {
+        lockForWrite();
+        try {
+            super.addColumn();
+        } finally {
+            unlockForWrite();
+        }
+    }
+
+    public void removeRow() {
+        lockForWrite();
+        try {
+            super.removeRow();
+        } finally {
+            unlockForWrite();
+        }
+    }
+
+    public void removeColumn() {
+        lockForWrite();
+        try {
+            super.removeColumn();
+        } finally {
+            unlockForWrite();
+        }
+    }
+
+    public void restart() {
+        lockForWrite();
+        try {
+            super.restart();
+        } finally {
+            unlockForWrite();
+        }
+    }
+
+    public void reset(int numberOfRows, int numberOfColumns, int winThresh) {
+        lockForWrite();
+        try {
+            super.reset(numberOfRows, numberOfColumns, winThresh);
+        } finally {
+            unlockForWrite();
+        }
+    }
+
+    // The write lock isn't reentrant, so nested writes (a change inside a batch) only count up
+    private void lockForWrite() {
+        if (writer == Thread.currentThread()) {
+            writeDepth++;
+            return;
+        }
+        long stamp = lock.writeLock();
+        writeStamp = stamp;
+        writer = Thread.currentThread();
+        writeDepth = 1;
+    }
+
+    private void unlockForWrite() {
+        if (--writeDepth > 0) return;
+        version++;
+        writer = null;
+        lock.unlockWrite(writeStamp);
+    }
+
+    private Snapshot copy(long snapshotVersion) {
+        int numberOfRows = getNumberOfRows();
+        int numberOfColumns = getNumberOfColumns();
+        char[] letters = new char[getNumberOfPlayers()];
+        for (int i = 0; i < letters.length; i++) letters[i] = getPlayerByNumber(i).getPlayingLetter();
+        int[] cells = new int[numberOfRows * numberOfColumns];
+        for (int row = 0; row < numberOfRows; row++) {
+            for (int col = 0; col < numberOfColumns; col++) cells[row * numberOfColumns + col] = getCellOwnerNumber(row, col) + 1;
+        }
+        OXOPlayer winner = getWinner();
+        return new Snapshot(snapshotVersion, numberOfRows, numberOfColumns, getWinThreshold(), letters, getCurrentPlayerNumber(),
+                winner == null ? OXOBoard.EMPTY : getPlayerNumber(winner), isGameDrawn(), cells);
+    }
+
+    // An unchanging copy of a whole game. Versions count the changes made to the model, so a newer snapshot has a
+    // larger one.
+    public static class Snapshot {
+        private final long version;
+        private final int numberOfRows;
+        private final int numberOfColumns;
+        private final int winThreshold;
+        private final char[] letters;
+        private final int currentPlayerNumber;
+        private final int winnerNumber;
+        private final boolean gameDrawn;
+        // Player number + 1 for each cell, or 0 when unclaimed
+        private final int[] cells;
+
+        private Snapshot(long version, int numberOfRows, int numberOfColumns, int winThreshold, char[] letters, int currentPlayerNumber,
+                         int winnerNumber, boolean gameDrawn, int[] cells) {
+            this.version = version;
+            this.numberOfRows = numberOfRows;
+            this.numberOfColumns = numberOfColumns;
+            this.winThreshold = winThreshold;
+            this.letters = letters;
+            this.currentPlayerNumber = currentPlayerNumber;
+            this.winnerNumber = winnerNumber;
+            this.gameDrawn = gameDrawn;
+            this.cells = cells;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public int getNumberOfRows() {
+            return numberOfRows;
+        }
+
+        public int getNumberOfColumns() {
+            return numberOfColumns;
+        }
+
+        public int getWinThreshold() {
+            return winThreshold;
+        }
+
+        public int getNumberOfPlayers() {
+            return letters.length;
+        }
+
+        public char getPlayingLetter(int playerNumber) {
+            return letters[playerNumber];
+        }
+
+        public int getCurrentPlayerNumber() {
+            return currentPlayerNumber;
+        }
+
+        // The winner's player number, or EMPTY while nobody has won
+        public int getWinnerNumber() {
+            return winnerNumber;
+        }
+
+        public boolean isGameDrawn() {
+            return gameDrawn;
+        }
+
+        public int getCellOwnerNumber(int rowNumber, int colNumber) {
+            if (rowNumber < 0 || rowNumber >= numberOfRows || colNumber < 0 || colNumber >= numberOfColumns) {
+                throw new IndexOutOfBoundsException("No cell " + rowNumber + "," + colNumber + " on a " + numberOfRows + "x" + numberOfColumns + " board");
+            }
+            return cells[rowNumber * numberOfColumns + colNumber] - 1;
+        }
+
+        public int getNumberOfClaimedCells() {
+            int claimed = 0;
+            for (int cell : cells) {
+                if (cell != 0) claimed++;
+            }
+            return claimed;
+        }
+    }
+}
@@ -1,192 +1,631 @@
 package edu.uob;
 import edu.uob.OXOMoveException.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 public class OXOController {
+    // History entries: the type in the low 4 bits, flags above it, a player number from bit 8 and, for moves that
+    // won, the winner's number from bit 20; moves and lost cells keep their cell (packed with encodeMove) in the top
+    // 32 bits, removed rows and columns the number of LOST_CELL entries just before them
+    private static final int MOVE = 1;
+    private static final int ADD_ROW = 2;
+    private static final int ADD_COLUMN = 3;
+    private static final int REMOVE_ROW = 4;
+    private static final int REMOVE_COLUMN = 5;
+    private static final int INCREASE_THRESHOLD = 6;
+    private static final int DECREASE_THRESHOLD = 7;
+    private static final int LOST_CELL = 8;
+    private static final long TYPE_MASK = 0xF;
+    private static final long WON = 0x10;
+    private static final long DRAWN_BEFORE = 0x20;
+    private static final long DRAWN_AFTER = 0x40;
+    private static final int PLAYER_MASK = 0xFFF;
+    // Games with more players than fit in an entry aren't recorded
+    private static final int MAX_HISTORY_PLAYERS = PLAYER_MASK + 1;
+    public static final int DEFAULT_HISTORY_LIMIT = 4096;
+    public static final int MAX_ENCODED_ROW = 0x7FFF;
+    public static final int MAX_ENCODED_COLUMN = 0xFFFF;
     OXOModel gameModel;
+    private final OXOCommandParser parser = new OXOCommandParser();
+    private boolean stacklessExceptions;
+    // Board shape and threshold seen by the last win check - if any of them change, the next check rescans the board
+    private int checkedThreshold = -1;
+    private int checkedRows = -1;
+    private int checkedColumns = -1;
+    private int lastMove = -1;
+    private OXOMetrics metrics;
+    private int untilNextSample;
+    // Whether the command in progress is one of the sampled ones being timed, when it started and when its last phase ended
+    private boolean sampling;
+    private long commandStart;
+    private long phaseEnd;
+    // Every change since the game started, oldest first, one packed entry each (see the constants above).
+    // Entries before historyPosition have been made; the ones after it were undone and can be redone.
+    private long[] history = new long[16];
+    private int historySize;
+    private int historyPosition;
+    // Undo goes back at most this many steps; older ones are forgotten, half of them at a time
+    private int historyLimit = DEFAULT_HISTORY_LIMIT;
+    // The last move among the forgotten steps, or -1
+    private int forgottenMove = -1;
+    // Only kept when early draws are on
+    private OXOThreatIndex threatIndex;
 
     public OXOController(OXOModel model) {
         gameModel = model;
     }
 
-    public void handleIncomingCommand(String command) throws OXOMoveException {
-        validateCommand(command);
-        if(gameModel.getWinner() != null){
-            return;
+    public void handleIncomingCommand(CharSequence command) throws OXOMoveException {
+        OXOMoveResult result = tryMove(command);
+        if(result.isRejected()){
+            throw rejection(result);
         }
-        int rowNumber = Character.toLowerCase(command.charAt(0)) - 'a';
-        int colNumber = Character.getNumericValue(command.charAt(1)) - 1;
-
-        gameModel.setCellOwner(rowNumber, colNumber, gameModel.getPlayerByNumber(gameModel.getCurrentPlayerNumber()));
-        checkWinner(rowNumber, colNumber);
-
-        if(gameModel.getCurrentPlayerNumber() == gameModel.getNumberOfPlayers() - 1){
-            gameModel.setCurrentPlayerNumber(0);
+    }
+    public void handleIncomingCommand(ByteBuffer command) throws OXOMoveException {
+        OXOMoveResult result = tryMove(command);
+        if(result.isRejected()){
+            throw rejection(result);
+        }
+    }
+    public void validateCommand(CharSequence command) throws OXOMoveException{
+        if(!parser.tryParse(command, playableRows(), playableColumns())){
+            throw rejection(parser.getError());
+        }
+        if(isCellTaken(parser.getRow(), parser.getColumn())){
+            throw rejection(OXOMoveResult.CELL_TAKEN);
+        }
+    }
+    public void validateCommand(ByteBuffer command) throws OXOMoveException{
+        if(!parser.tryParse(command, playableRows(), playableColumns())){
+            throw rejection(parser.getError());
+        }
+        if(isCellTaken(parser.getRow(), parser.getColumn())){
+            throw rejection(OXOMoveResult.CELL_TAKEN);
+        }
+    }
+    // Exception-free fast path: rejected moves come back as a result code instead of an exception
+    public OXOMoveResult tryMove(CharSequence command) {
+        if(metrics != null){
+            return measuredCommand(command, 0, command.length(), null);
+        }
+        if(!parser.tryParse(command, playableRows(), playableColumns())){
+            return parser.getError();
+        }
+        return validateAndApply(parser.getRow(), parser.getColumn());
+    }
+    public OXOMoveResult tryMove(ByteBuffer command) {
+        if(metrics != null){
+            return measuredCommand(null, command.position(), command.limit(), command);
+        }
+        if(!parser.tryParse(command, playableRows(), playableColumns())){
+            return parser.getError();
+        }
+        return validateAndApply(parser.getRow(), parser.getColumn());
+    }
+    public OXOMoveResult tryMove(int rowNumber, int colNumber) {
+        if(metrics != null){
+            startCommand();
+            return finishCommand(measuredMove(rowNumber, colNumber));
+        }
+        return validateAndApply(rowNumber, colNumber);
+    }
+    private OXOMoveResult validateAndApply(int rowNumber, int colNumber) {
+        if(rowNumber < 0 || rowNumber >= playableRows()){
+            return OXOMoveResult.ROW_OUT_OF_RANGE;
+        }
+        if(colNumber < 0 || colNumber >= playableColumns()){
+            return OXOMoveResult.COLUMN_OUT_OF_RANGE;
+        }
+        if(isCellTaken(rowNumber, colNumber)){
+            return OXOMoveResult.CELL_TAKEN;
+        }
+        return applyMove(rowNumber, colNumber);
+    }
+    // Applies whitespace-separated moves in one pass, stopping at the first win or draw
+    // Model listeners hear about the whole batch at once, when it is finished
+    public OXOBatchResult applyMoves(CharSequence moves) {
+        OXOBatchResult result = new OXOBatchResult(moves.length() / 3);
+        int numberOfRows = playableRows();
+        int numberOfColumns = playableColumns();
+        int end = 0;
+        gameModel.beginBatch();
+        try{
+            while(!result.isGameOver()){
+                int start = end;
+                while(start < moves.length() && Character.isWhitespace(moves.charAt(start))) start++;
+                if(start == moves.length()) break;
+                end = start;
+                while(end < moves.length() && !Character.isWhitespace(moves.charAt(end))) end++;
+                if(metrics != null){
+                    result.add(measuredCommand(moves, start, end, null));
+                }
+                else if(parser.tryParse(moves, start, end, numberOfRows, numberOfColumns)){
+                    result.add(tryMove(parser.getRow(), parser.getColumn()));
+                }
+                else{
+                    result.add(parser.getError());
+                }
+            }
+        }
+        finally{
+            gameModel.endBatch();
+        }
+        return result;
+    }
+    // Same as above for moves packed with encodeMove
+    public OXOBatchResult applyMoves(int[] moves) {
+        OXOBatchResult result = new OXOBatchResult(moves.length);
+        gameModel.beginBatch();
+        try{
+            for(int i = 0; i < moves.length && !result.isGameOver(); i++){
+                result.add(tryMove(decodeRow(moves[i]), decodeColumn(moves[i])));
+            }
         }
-        else{
-            gameModel.setCurrentPlayerNumber(gameModel.getCurrentPlayerNumber() + 1);
+        finally{
+            gameModel.endBatch();
         }
+        return result;
     }
-    public void validateCommand(String command) throws OXOMoveException{
-        if(command.length() != 2){
-            throw new InvalidIdentifierLengthException(command.length());
+    // A move packed into one int, never negative so that -1 can mean no move. Only rows up to MAX_ENCODED_ROW and
+    // columns up to MAX_ENCODED_COLUMN fit, so the controller only plays that corner of bigger (sparse) boards.
+    public static int encodeMove(int rowNumber, int colNumber) {
+        if(!isEncodable(rowNumber, colNumber)){
+            throw new IllegalArgumentException("Cell [" + rowNumber + "," + colNumber + "] is too far out to be packed into a move");
         }
-        if(!Character.isLetter(command.charAt(0))){
-            throw new InvalidIdentifierCharacterException(RowOrColumn.ROW, command.charAt(0));
+        return (rowNumber << 16) | colNumber;
+    }
+    public static boolean isEncodable(int rowNumber, int colNumber) {
+        return rowNumber >= 0 && rowNumber <= MAX_ENCODED_ROW && colNumber >= 0 && colNumber <= MAX_ENCODED_COLUMN;
+    }
+    public static int decodeRow(int move) {
+        return move >>> 16;
+    }
+    public static int decodeColumn(int move) {
+        return move & 0xFFFF;
+    }
+    // The cell claimed by the last accepted move, packed with encodeMove, or -1 before the first one
+    public int getLastMove() {
+        return lastMove;
+    }
+    // Counts every command's result into the metrics and times a sample of them, or stops measuring with null.
+    // Metrics can be shared by any number of controllers.
+    public void setMetrics(OXOMetrics metrics) {
+        this.metrics = metrics;
+        untilNextSample = 0;
+        sampling = false;
+    }
+    public OXOMetrics getMetrics() {
+        return metrics;
+    }
+    // Skips filling in stack traces on the exceptions thrown for rejected commands - they are still the same types with the same messages
+    public void setStacklessExceptions(boolean stackless) {
+        stacklessExceptions = stackless;
+    }
+    // The part of the board moves can be made on: all of it unless it is too big for encodeMove
+    private int playableRows() {
+        return Math.min(gameModel.getNumberOfRows(), MAX_ENCODED_ROW + 1);
+    }
+    private int playableColumns() {
+        return Math.min(gameModel.getNumberOfColumns(), MAX_ENCODED_COLUMN + 1);
+    }
+    private boolean isCellTaken(int rowNumber, int colNumber) {
+        return gameModel.getCellOwnerNumber(rowNumber, colNumber) != OXOBoard.EMPTY;
+    }
+    private OXOMoveException rejection(OXOMoveResult result) {
+        if(result == OXOMoveResult.CELL_TAKEN){
+            return new CellAlreadyTakenException(parser.getRow(), parser.getColumn(), !stacklessExceptions);
         }
-        if(!Character.isDigit(command.charAt(1))){
-            throw new InvalidIdentifierCharacterException(RowOrColumn.COLUMN, command.charAt(1));
+        return parser.createException(!stacklessExceptions);
+    }
+    // A move is one batch, so listeners and readers of a concurrent model never see it half made
+    private OXOMoveResult applyMove(int rowNumber, int colNumber) {
+        if(gameModel.getWinner() != null || (threatIndex != null && gameModel.isGameDrawn())){
+            return OXOMoveResult.GAME_OVER;
         }
-        int rowNumber = Character.toLowerCase(command.charAt(0)) - 'a';
-        int colNumber = Character.getNumericValue(command.charAt(1)) - 1;
-        if(rowNumber >= gameModel.getNumberOfRows() || rowNumber < 0){
-            throw new OutsideCellRangeException(RowOrColumn.ROW, rowNumber);
+        int mover = gameModel.getCurrentPlayerNumber();
+        boolean drawnBefore = gameModel.isGameDrawn();
+        gameModel.beginBatch();
+        try{
+            gameModel.setCellOwnerNumber(rowNumber, colNumber, mover);
+            if(threatIndex != null) threatIndex.claim(gameModel, rowNumber, colNumber, mover);
+            lastMove = encodeMove(rowNumber, colNumber);
+            checkWinner(rowNumber, colNumber);
+
+            if(gameModel.getCurrentPlayerNumber() == gameModel.getNumberOfPlayers() - 1){
+                gameModel.setCurrentPlayerNumber(0);
+            }
+            else{
+                gameModel.setCurrentPlayerNumber(gameModel.getCurrentPlayerNumber() + 1);
+            }
         }
-        if(colNumber >= gameModel.getNumberOfColumns() || colNumber < 0){
-            throw new OutsideCellRangeException(RowOrColumn.COLUMN, colNumber);
+        finally{
+            gameModel.endBatch();
         }
-        if(gameModel.getCellOwner(rowNumber, colNumber) != null){
-            throw new CellAlreadyTakenException(rowNumber, colNumber);
+        OXOPlayer winner = gameModel.getWinner();
+        record(moveEntry(lastMove, mover, winner == null ? -1 : gameModel.getPlayerNumber(winner), drawnBefore, gameModel.isGameDrawn()));
+        if(gameModel.getWinner() != null){
+            return OXOMoveResult.WON;
         }
+        return gameModel.isGameDrawn() ? OXOMoveResult.DRAWN : OXOMoveResult.CLAIMED;
     }
     public void addRow() {
         gameModel.addRow();
+        reopenIfWinPossible();
+        record(ADD_ROW);
     }
     public void removeRow() {
+        if(gameModel.getNumberOfRows() == 0){
+            return;
+        }
+        int lost = saveLostCells(gameModel.getNumberOfRows() - 1, 0, 0, 1, playableColumns());
         gameModel.removeRow();
+        reopenIfWinPossible();
+        record(REMOVE_ROW | (long) lost << 32);
     }
     public void addColumn() {
         gameModel.addColumn();
+        reopenIfWinPossible();
+        record(ADD_COLUMN);
     }
     public void removeColumn() {
+        if(gameModel.getNumberOfColumns() == 0){
+            return;
+        }
+        int lost = saveLostCells(0, gameModel.getNumberOfColumns() - 1, 1, 0, playableRows());
         gameModel.removeColumn();
+        reopenIfWinPossible();
+        record(REMOVE_COLUMN | (long) lost << 32);
     }
     public void increaseWinThreshold() {
         gameModel.setWinThreshold(gameModel.getWinThreshold() + 1);
+        reopenIfWinPossible();
+        record(INCREASE_THRESHOLD);
     }
     public void decreaseWinThreshold() {
         gameModel.setWinThreshold(gameModel.getWinThreshold() - 1);
+        reopenIfWinPossible();
+        record(DECREASE_THRESHOLD);
     }
     public void reset() {
-        while(gameModel.getNumberOfRows() > 3){
-            gameModel.removeRow();
-        }
-        while(gameModel.getNumberOfColumns() > 3){
-            gameModel.removeColumn();
+        reset(3, 3, 3);
+    }
+    // Starts a new game on an empty board of any size, in constant time. The history starts again too.
+    public void reset(int numberOfRows, int numberOfColumns, int winThreshold) {
+        gameModel.reset(numberOfRows, numberOfColumns, winThreshold);
+        forgetHistory();
+    }
+    // Starts a new game on the board as it is, keeping its size and threshold
+    public void restart() {
+        gameModel.restart();
+        forgetHistory();
+    }
+    private void forgetHistory() {
+        if(threatIndex != null) threatIndex.invalidate();
+        lastMove = -1;
+        forgottenMove = -1;
+        historySize = 0;
+        historyPosition = 0;
+    }
+    // Undo and redo. Each step is one move, row, column or threshold change made through this controller, and puts
+    // back the cells, the turn, the winner and the draw as they were - in constant time, apart from removed rows and
+    // columns, which bring back whatever was claimed on them. Making a change forgets the steps that were undone;
+    // restarting or resetting forgets everything. Each step reaches model listeners as one batch.
+    // At most limit steps are kept (plus the cells of a removed line), or none with 0 to turn undo off
+    public void setHistoryLimit(int limit) {
+        if(limit < 0){
+            throw new IllegalArgumentException("History limit can't be negative");
         }
-        for(int i = 0; i < gameModel.getNumberOfRows(); i++){
-            for(int j = 0; j < gameModel.getNumberOfColumns(); j++){
-                gameModel.setCellOwner(i, j, null);
-            }
+        historyLimit = limit;
+        if(historyPosition > limit){
+            forget(historyPosition - limit);
         }
-        gameModel.setCurrentPlayerNumber(0);
-        gameModel.setWinner(null);
-        gameModel.setWinThreshold(3);
     }
-    public void checkWinner(int rowNumber, int colNumber) {
-        if(checkDraw()){
-            gameModel.setGameDrawn();
-            return;
-        }
-        checkRow(colNumber);
-        checkCol(rowNumber);
-        checkDiagonal(rowNumber, colNumber);
-        checkAntiDiagonal(rowNumber, colNumber);
+    public int getHistoryLimit() {
+        return historyLimit;
     }
-    public boolean checkDraw(){
-        for(int x = 0; x < gameModel.getNumberOfRows(); x++){
-            for(int y = 0; y < gameModel.getNumberOfColumns(); y++){
-                if(gameModel.getCellOwner(x, y) == null){
-                    return false;
+    public boolean canUndo() {
+        return historyPosition > 0;
+    }
+    public boolean canRedo() {
+        return historyPosition < historySize;
+    }
+    public int getHistorySize() {
+        return historySize;
+    }
+    public boolean undo() {
+        if(historyPosition == 0){
+            return false;
+        }
+        long entry = history[--historyPosition];
+        gameModel.beginBatch();
+        try{
+            switch((int) (entry & TYPE_MASK)){
+                case MOVE -> {
+                    int move = (int) (entry >>> 32);
+                    gameModel.setCellOwnerNumber(decodeRow(move), decodeColumn(move), OXOBoard.EMPTY);
+                    if(threatIndex != null) threatIndex.release(gameModel, decodeRow(move), decodeColumn(move));
+                    if((entry & WON) != 0) gameModel.setWinner(null);
+                    gameModel.setGameDrawn((entry & DRAWN_BEFORE) != 0);
+                    gameModel.setCurrentPlayerNumber(playerOf(entry));
+                    lastMove = previousMove(historyPosition);
+                }
+                case ADD_ROW -> gameModel.removeRow();
+                case ADD_COLUMN -> gameModel.removeColumn();
+                case REMOVE_ROW, REMOVE_COLUMN -> {
+                    if((entry & TYPE_MASK) == REMOVE_ROW) gameModel.addRow();
+                    else gameModel.addColumn();
+                    // The board changed size, so a threat index rebuilds itself with these cells in
+                    int lost = (int) (entry >>> 32);
+                    for(int i = historyPosition - lost; i < historyPosition; i++){
+                        int cell = (int) (history[i] >>> 32);
+                        gameModel.setCellOwnerNumber(decodeRow(cell), decodeColumn(cell), playerOf(history[i]));
+                    }
+                    historyPosition -= lost;
                 }
+                case INCREASE_THRESHOLD -> gameModel.setWinThreshold(gameModel.getWinThreshold() - 1);
+                case DECREASE_THRESHOLD -> gameModel.setWinThreshold(gameModel.getWinThreshold() + 1);
+                default -> throw new IllegalStateException("Corrupt history entry " + entry);
             }
+            if((entry & TYPE_MASK) != MOVE) reopenIfWinPossible();
+        }
+        finally{
+            gameModel.endBatch();
         }
         return true;
     }
-    public void checkCol(int rowNumber){
-        int colCount = 0;
-
-        for(int y = 0; y < gameModel.getNumberOfColumns(); y++){
-            if(gameModel.getCellOwner(rowNumber, y) != null){
-                if(gameModel.getCellOwner(rowNumber, y).getPlayingLetter() == gameModel.getPlayerByNumber(gameModel.getCurrentPlayerNumber()).getPlayingLetter()){
-                    colCount++;
-                }
-                else{
-                    colCount = 0;
+    public boolean redo() {
+        if(historyPosition == historySize){
+            return false;
+        }
+        // The cells a removed row or column took with it come before it, and only matter for undoing it
+        while((history[historyPosition] & TYPE_MASK) == LOST_CELL){
+            historyPosition++;
+        }
+        long entry = history[historyPosition++];
+        gameModel.beginBatch();
+        try{
+            switch((int) (entry & TYPE_MASK)){
+                case MOVE -> {
+                    int move = (int) (entry >>> 32);
+                    int mover = playerOf(entry);
+                    gameModel.setCellOwnerNumber(decodeRow(move), decodeColumn(move), mover);
+                    if(threatIndex != null) threatIndex.claim(gameModel, decodeRow(move), decodeColumn(move), mover);
+                    // Not always the mover: a changed board or threshold can hand the win to anyone
+                    if((entry & WON) != 0) gameModel.setWinner(gameModel.getPlayerByNumber(winnerOf(entry)));
+                    gameModel.setGameDrawn((entry & DRAWN_AFTER) != 0);
+                    gameModel.setCurrentPlayerNumber(mover == gameModel.getNumberOfPlayers() - 1 ? 0 : mover + 1);
+                    lastMove = move;
                 }
+                case ADD_ROW -> gameModel.addRow();
+                case ADD_COLUMN -> gameModel.addColumn();
+                case REMOVE_ROW -> gameModel.removeRow();
+                case REMOVE_COLUMN -> gameModel.removeColumn();
+                case INCREASE_THRESHOLD -> gameModel.setWinThreshold(gameModel.getWinThreshold() + 1);
+                case DECREASE_THRESHOLD -> gameModel.setWinThreshold(gameModel.getWinThreshold() - 1);
+                default -> throw new IllegalStateException("Corrupt history entry " + entry);
             }
-            if(colCount == gameModel.getWinThreshold()){
-                gameModel.setWinner(gameModel.getPlayerByNumber(gameModel.getCurrentPlayerNumber()));
-            }
+            if((entry & TYPE_MASK) != MOVE) reopenIfWinPossible();
         }
+        finally{
+            gameModel.endBatch();
+        }
+        return true;
     }
-    public void checkRow(int colNumber){
-        int rowCount = 0;
-        for(int x = 0; x < gameModel.getNumberOfRows(); x++){
-            if(gameModel.getCellOwner(x, colNumber) != null){
-                if(gameModel.getCellOwner(x, colNumber).getPlayingLetter() == gameModel.getPlayerByNumber(gameModel.getCurrentPlayerNumber()).getPlayingLetter()){
-                    rowCount++;
-                }
-                else{
-                    rowCount = 0;
-                }
-            }
-            if(rowCount == gameModel.getWinThreshold()){
-                gameModel.setWinner(gameModel.getPlayerByNumber(gameModel.getCurrentPlayerNumber()));
-            }
+    // The winner is the number of the player who won, or -1
+    private static long moveEntry(int move, int mover, int winner, boolean drawnBefore, boolean drawnAfter) {
+        long entry = MOVE | (drawnBefore ? DRAWN_BEFORE : 0) | (drawnAfter ? DRAWN_AFTER : 0) | (long) mover << 8 | (long) move << 32;
+        return winner < 0 ? entry : entry | WON | (long) winner << 20;
+    }
+    private static int playerOf(long entry) {
+        return (int) (entry >>> 8) & PLAYER_MASK;
+    }
+    private static int winnerOf(long entry) {
+        return (int) (entry >>> 20) & PLAYER_MASK;
+    }
+    private void record(long entry) {
+        if(historyLimit == 0 || gameModel.getNumberOfPlayers() > MAX_HISTORY_PLAYERS){
+            historySize = historyPosition = 0;
+            return;
+        }
+        // Lost cells may run past the limit, since they belong to the removal recorded after them
+        if(historyPosition >= historyLimit && (entry & TYPE_MASK) != LOST_CELL){
+            forget(Math.max(1, historyPosition / 2));
+        }
+        if(historyPosition == history.length){
+            history = Arrays.copyOf(history, history.length * 2);
         }
+        history[historyPosition++] = entry;
+        historySize = historyPosition;
     }
-    public void checkAntiDiagonal(int rowNumber, int colNumber){
-        int diag_count = 0;
-        int start_x = rowNumber;
-        int start_y = colNumber;
-
-        while(rowNumber < (gameModel.getNumberOfRows() - 1) && colNumber >= 1){
-            rowNumber++;
-            colNumber--;
-            start_x = rowNumber;
-            start_y = colNumber;
+    // Drops about the oldest count entries, never splitting a removed line from its cells
+    private void forget(int count) {
+        while(count > 0 && (history[count - 1] & TYPE_MASK) == LOST_CELL){
+            count--;
         }
-        while(start_x >= 0 && start_y < gameModel.getNumberOfColumns()){
-
-            if(gameModel.getCellOwner(start_x, start_y) != null){
-                if(gameModel.getCellOwner(start_x, start_y).getPlayingLetter() == gameModel.getPlayerByNumber(gameModel.getCurrentPlayerNumber()).getPlayingLetter()){
-                    diag_count++;
-                }
-                else{
-                    diag_count = 0;
-                }
-            }
-            if(diag_count == gameModel.getWinThreshold()){
-                gameModel.setWinner(gameModel.getPlayerByNumber(gameModel.getCurrentPlayerNumber()));
+        if(count == 0){
+            return;
+        }
+        forgottenMove = previousMove(count);
+        System.arraycopy(history, count, history, 0, historyPosition - count);
+        historyPosition -= count;
+        historySize = historyPosition;
+    }
+    // Writes the claimed cells of the line about to be removed just past the history, ready for the entry that
+    // removes it, and returns how many there were
+    private int saveLostCells(int rowNumber, int colNumber, int rowStep, int colStep, int length) {
+        if(!isEncodable(rowNumber, colNumber)){
+            return 0;
+        }
+        int lost = 0;
+        for(int i = 0; i < length; i++, rowNumber += rowStep, colNumber += colStep){
+            int owner = gameModel.getCellOwnerNumber(rowNumber, colNumber);
+            if(owner != OXOBoard.EMPTY){
+                record(LOST_CELL | (long) owner << 8 | (long) encodeMove(rowNumber, colNumber) << 32);
+                lost++;
             }
-            start_x--;
-            start_y++;
         }
+        return lost;
+    }
+    private int previousMove(int position) {
+        for(int i = position - 1; i >= 0; i--){
+            if((history[i] & TYPE_MASK) == MOVE) return (int) (history[i] >>> 32);
+        }
+        return forgottenMove;
     }
-    public void checkDiagonal(int rowNumber, int colNumber){
-        int diag_count = 0;
-        int start_x = rowNumber;
-        int start_y = colNumber;
-        while(rowNumber >= 1 && colNumber >= 1){
-            rowNumber--;
-            colNumber--;
-            start_x = rowNumber;
-            start_y = colNumber;
+    public void checkWinner(int rowNumber, int colNumber) {
+        if(metrics == null){
+            findWinner(rowNumber, colNumber);
+            return;
+        }
+        OXOMetrics.WinCheckEvent event = OXOMetrics.isRecording() ? new OXOMetrics.WinCheckEvent() : null;
+        if(event != null) event.begin();
+        boolean wholeBoard = gameModel.getWinThreshold() != checkedThreshold || gameModel.getNumberOfRows() != checkedRows || gameModel.getNumberOfColumns() != checkedColumns;
+        long start = sampling ? System.nanoTime() : 0;
+        findWinner(rowNumber, colNumber);
+        if(sampling) metrics.recordLatency(OXOMetrics.Operation.WIN_CHECK, System.nanoTime() - start);
+        if(event != null && event.shouldCommit()){
+            event.row = rowNumber;
+            event.column = colNumber;
+            event.threshold = gameModel.getWinThreshold();
+            event.wholeBoard = wholeBoard;
+            event.won = gameModel.getWinner() != null;
+            event.commit();
+        }
+    }
+    private void findWinner(int rowNumber, int colNumber) {
+        int currentPlayer = gameModel.getCurrentPlayerNumber();
+        int threshold = gameModel.getWinThreshold();
+        if(threshold != checkedThreshold || gameModel.getNumberOfRows() != checkedRows || gameModel.getNumberOfColumns() != checkedColumns){
+            checkedThreshold = threshold;
+            checkedRows = gameModel.getNumberOfRows();
+            checkedColumns = gameModel.getNumberOfColumns();
+            checkWholeBoard(currentPlayer, threshold);
         }
+        else if(longestLineThrough(rowNumber, colNumber, currentPlayer, threshold) >= threshold){
+            gameModel.setWinner(gameModel.getPlayerByNumber(currentPlayer));
+        }
+        if(gameModel.getWinner() == null && checkDraw()){
+            gameModel.setGameDrawn();
+        }
+    }
+    // The metered versions of the move path: the same steps as above, with each phase timed when the command is
+    // sampled (each phase starts when the one before it ended, to keep clock reads down) and reported to JFR while
+    // a recording is running
+    private OXOMoveResult measuredCommand(CharSequence chars, int start, int end, ByteBuffer bytes) {
+        startCommand();
+        OXOMetrics.ParseEvent event = OXOMetrics.isRecording() ? new OXOMetrics.ParseEvent() : null;
+        if(event != null) event.begin();
+        boolean parsed = chars != null
+                ? parser.tryParse(chars, start, end, playableRows(), playableColumns())
+                : parser.tryParse(bytes, playableRows(), playableColumns());
+        endPhase(OXOMetrics.Operation.PARSE);
+        if(event != null && event.shouldCommit()){
+            event.length = end - start;
+            event.result = parsed ? OXOMoveResult.CLAIMED.name() : parser.getError().name();
+            event.commit();
+        }
+        return finishCommand(parsed ? measuredMove(parser.getRow(), parser.getColumn()) : parser.getError());
+    }
+    private OXOMoveResult measuredMove(int rowNumber, int colNumber) {
+        OXOMetrics.ValidateEvent validateEvent = OXOMetrics.isRecording() ? new OXOMetrics.ValidateEvent() : null;
+        if(validateEvent != null) validateEvent.begin();
+        OXOMoveResult result = OXOMoveResult.CLAIMED;
+        if(rowNumber < 0 || rowNumber >= playableRows()) result = OXOMoveResult.ROW_OUT_OF_RANGE;
+        else if(colNumber < 0 || colNumber >= playableColumns()) result = OXOMoveResult.COLUMN_OUT_OF_RANGE;
+        else if(isCellTaken(rowNumber, colNumber)) result = OXOMoveResult.CELL_TAKEN;
+        endPhase(OXOMetrics.Operation.VALIDATE);
+        if(validateEvent != null && validateEvent.shouldCommit()){
+            validateEvent.row = rowNumber;
+            validateEvent.column = colNumber;
+            validateEvent.result = result.name();
+            validateEvent.commit();
+        }
+        if(result.isRejected()) return result;
 
-        while(start_x < gameModel.getNumberOfRows() && start_y < gameModel.getNumberOfColumns()){
-            if(gameModel.getCellOwner(start_x, start_y) != null){
-                if(gameModel.getCellOwner(start_x, start_y).getPlayingLetter() == gameModel.getPlayerByNumber(gameModel.getCurrentPlayerNumber()).getPlayingLetter()){
-                    diag_count++;
-                }
-                else{
-                    diag_count = 0;
-                }
-            }
-            if(diag_count == gameModel.getWinThreshold()){
-                gameModel.setWinner(gameModel.getPlayerByNumber(gameModel.getCurrentPlayerNumber()));
+        OXOMetrics.ApplyEvent applyEvent = OXOMetrics.isRecording() ? new OXOMetrics.ApplyEvent() : null;
+        if(applyEvent != null) applyEvent.begin();
+        int player = gameModel.getCurrentPlayerNumber();
+        result = applyMove(rowNumber, colNumber);
+        endPhase(OXOMetrics.Operation.APPLY);
+        if(applyEvent != null && applyEvent.shouldCommit()){
+            applyEvent.row = rowNumber;
+            applyEvent.column = colNumber;
+            applyEvent.player = player;
+            applyEvent.result = result.name();
+            applyEvent.commit();
+        }
+        return result;
+    }
+    private void startCommand() {
+        sampling = --untilNextSample <= 0;
+        if(sampling){
+            untilNextSample = metrics.getSamplingInterval();
+            commandStart = System.nanoTime();
+            phaseEnd = commandStart;
+        }
+    }
+    private void endPhase(OXOMetrics.Operation operation) {
+        if(sampling){
+            long now = System.nanoTime();
+            metrics.recordLatency(operation, now - phaseEnd);
+            phaseEnd = now;
+        }
+    }
+    private OXOMoveResult finishCommand(OXOMoveResult result) {
+        metrics.recordResult(result);
+        if(sampling){
+            metrics.recordLatency(OXOMetrics.Operation.COMMAND, phaseEnd - commandStart);
+            sampling = false;
+        }
+        return result;
+    }
+    public boolean checkDraw(){
+        if(gameModel.getNumberOfClaimedCells() == (long) gameModel.getNumberOfRows() * gameModel.getNumberOfColumns()){
+            return true;
+        }
+        return threatIndex != null && !threatIndex.isWinPossible(gameModel);
+    }
+    // Declares a draw as soon as no line can be completed anywhere, rather than when the board is full, and then
+    // refuses further moves. Keeps an OXOThreatIndex in step with every move made, undone or redone here.
+    public void setEarlyDraws(boolean enabled) {
+        threatIndex = enabled ? new OXOThreatIndex() : null;
+    }
+    // An early draw only holds for the board and threshold it was found on - growing the board or changing the
+    // threshold can open lines again, and then play goes on
+    private void reopenIfWinPossible() {
+        if(threatIndex != null && gameModel.isGameDrawn() && !checkDraw()){
+            gameModel.setGameDrawn(false);
+        }
+    }
+    // The index behind early draws, for move ordering, or null when they are off
+    public OXOThreatIndex getThreatIndex() {
+        return threatIndex;
+    }
+    // Full re-evaluation after a resize or threshold change: the player who just moved gets first claim on any line
+    private void checkWholeBoard(int currentPlayer, int threshold) {
+        for(int i = 0; i < gameModel.getNumberOfPlayers(); i++){
+            int player = (currentPlayer + i) % gameModel.getNumberOfPlayers();
+            if(gameModel.hasLine(player, threshold)){
+                gameModel.setWinner(gameModel.getPlayerByNumber(player));
+                return;
             }
-            start_x++;
-            start_y++;
         }
     }
+    // Only cells within `threshold` of the new cell can complete a line through it
+    private int longestLineThrough(int rowNumber, int colNumber, int player, int threshold) {
+        int longest = 1 + countRun(rowNumber, colNumber, 0, 1, player, threshold) + countRun(rowNumber, colNumber, 0, -1, player, threshold);
+        longest = Math.max(longest, 1 + countRun(rowNumber, colNumber, 1, 0, player, threshold) + countRun(rowNumber, colNumber, -1, 0, player, threshold));
+        longest = Math.max(longest, 1 + countRun(rowNumber, colNumber, 1, 1, player, threshold) + countRun(rowNumber, colNumber, -1, -1, player, threshold));
+        return Math.max(longest, 1 + countRun(rowNumber, colNumber, 1, -1, player, threshold) + countRun(rowNumber, colNumber, -1, 1, player, threshold));
+    }
+    private int countRun(int rowNumber, int colNumber, int rowStep, int colStep, int player, int threshold) {
+        int count = 0;
+        int row = rowNumber + rowStep;
+        int col = colNumber + colStep;
+        while(count < threshold - 1 && row >= 0 && row < checkedRows && col >= 0 && col < checkedColumns && gameModel.getCellOwnerNumber(row, col) == player){
+            count++;
+            row += rowStep;
+            col += colStep;
+        }
+        return count;
+    }
 }
@@ -0,0 +1,123 @@
+package edu.uob;
+
+import java.io.Serial;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// A size-bounded cache of whatever an evaluator works out about a position (a score, a hint, a win check),
+// keyed by OXOCanonicalKey so every rotation and reflection of a position shares one entry. It is safe to share
+// between sessions: keys are spread over independently locked stripes, each evicting its least recently used
+// entry when full. Evaluations run outside the locks, so two threads missing on the same key at once may both
+// evaluate it - evaluators should be pure functions of the position.
+public class OXOEvaluationCache<V> {
+
+    private final Stripe<V>[] stripes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public OXOEvaluationCache(int maximumSize) {
+        this(maximumSize, 16);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public OXOEvaluationCache(int maximumSize, int numberOfStripes) {
+        if (maximumSize < numberOfStripes || numberOfStripes < 1) throw new IllegalArgumentException("Need at least one entry per stripe");
+        stripes = new Stripe[numberOfStripes];
+        for (int i = 0; i < numberOfStripes; i++) {
+            // Spread the remainder so the stripes add up to exactly maximumSize
+            stripes[i] = new Stripe<>(maximumSize / numberOfStripes + (i < maximumSize % numberOfStripes ? 1 : 0), evictions);
+        }
+    }
+
+    public V get(OXOCanonicalKey key) {
+        Stripe<V> stripe = stripeFor(key);
+        V value;
+        synchronized (stripe) {
+            value = stripe.get(key);
+        }
+        if (value == null) misses.increment();
+        else hits.increment();
+        return value;
+    }
+
+    public void put(OXOCanonicalKey key, V value) {
+        Stripe<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            stripe.put(key, value);
+        }
+    }
+
+    public V get(OXOCanonicalKey key, Function<OXOCanonicalKey, V> evaluator) {
+        V value = get(key);
+        if (value == null) {
+            value = evaluator.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    public void clear() {
+        for (Stripe<V> stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe<V> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    private Stripe<V> stripeFor(OXOCanonicalKey key) {
+        int hash = key.hashCode();
+        // Mix the high bits in, since stripes only look at the low ones
+        return stripes[Math.floorMod(hash ^ (hash >>> 16), stripes.length)];
+    }
+
+    // A LinkedHashMap in access order drops its least recently used entry once it grows past its capacity
+    private static class Stripe<V> extends LinkedHashMap<OXOCanonicalKey, V> {
+        @Serial private static final long serialVersionUID = 1;
+
+        private final int capacity;
+        private final transient LongAdder evictions;
+
+        Stripe(int capacity, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        protected boolean removeEldestEntry(Map.Entry<OXOCanonicalKey, V> eldest) {
+            if (size() <= capacity) return false;
+            evictions.increment();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package edu.uob;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// One hosted game and the line protocol commands that can be sent to it once a client has created or joined it:
+//   <cell>                 claim a cell, e.g. a1 or aa12
+//   RESIZE <rows> <cols>   grow or shrink the board
+//   THRESHOLD <n>          change the number of cells in a row needed to win
+//   RESET                  start the game again on a 3x3 board
+//   BOARD                  describe the whole board
+// Sessions are not thread-safe - callers make sure only one thread executes commands on a session at a time.
+public class OXOGameSession {
+
+    // Connection count of a game that has ended, so it can't be joined again
+    private static final int ENDED = -1;
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+    // Largest number of rows, columns or threshold a client can ask for, so no one command can take up the
+    // server's memory or keep its thread busy
+    static final int MAX_SIZE = 1024;
+
+    // Changes only when a pool recycles the session for a new game
+    private volatile long id;
+    private final OXOModel model;
+    private final OXOController controller;
+    // The number of connections (or ENDED) in the low half, and in the high half how many times the session has been
+    // recycled, so a connection joining just as the game ends can't end up in the next game by mistake
+    private final AtomicLong connections = new AtomicLong();
+    private OXOJournal journal;
+
+    public OXOGameSession(long id, OXOModel model) {
+        this.id = id;
+        this.model = model;
+        controller = new OXOController(model);
+        controller.setStacklessExceptions(true);
+        // Dead games end straight away, freeing their sessions
+        controller.setEarlyDraws(true);
+        // There is no undo command, so no history to keep
+        controller.setHistoryLimit(0);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public OXOModel getModel() {
+        return model;
+    }
+
+    public OXOController getController() {
+        return controller;
+    }
+
+    void setJournal(OXOJournal journal) {
+        this.journal = journal;
+    }
+
+    // Returns the number of connections now attached, or ENDED if the game with that id is over and can't be joined
+    int attach(long gameId) {
+        while (true) {
+            long current = connections.get();
+            int count = (int) current;
+            if (count == ENDED || id != gameId) return ENDED;
+            if (connections.compareAndSet(current, current + 1)) return count + 1;
+        }
+    }
+
+    // Returns the number of connections still attached; when that is none the game has ended
+    int detach() {
+        long remaining = connections.decrementAndGet();
+        if ((int) remaining > 0) return (int) remaining;
+        // Someone may have joined since
+        return connections.compareAndSet(remaining, remaining | COUNT_MASK) ? 0 : 1;
+    }
+
+    // Turns an ended game into a new one, keeping the model and controller
+    void recycle(long newId, int numberOfRows, int numberOfColumns, int winThreshold) {
+        id = newId;
+        controller.reset(numberOfRows, numberOfColumns, winThreshold);
+        journal = null;
+        connections.set(((connections.get() >>> 32) + 1) << 32);
+    }
+
+    // Runs one command and appends the reply line, without its line terminator
+    public void execute(CharSequence line, StringBuilder reply) {
+        try {
+            if (isKeyword(line, "BOARD")) {
+                appendBoard(reply);
+                return;
+            }
+            // Each command is one batch, so a RESIZE reaches listeners (and spectators) as a single change
+            model.beginBatch();
+            try {
+                if (isKeyword(line, "RESET")) {
+                    controller.reset();
+                    journal(OXOJournal.RESET, 0, 0);
+                } else if (isKeyword(line, "RESIZE")) {
+                    String[] arguments = arguments(line, 2);
+                    resize(checkSize(Integer.parseInt(arguments[0]), "Rows"), checkSize(Integer.parseInt(arguments[1]), "Columns"));
+                } else if (isKeyword(line, "THRESHOLD")) {
+                    int threshold = checkSize(Integer.parseInt(arguments(line, 1)[0]), "Threshold");
+                    setWinThreshold(threshold);
+                    journal(OXOJournal.THRESHOLD, threshold, 0);
+                } else {
+                    OXOMoveResult result = controller.tryMove(line);
+                    // Parsed again only to throw with the reason
+                    if (result.isRejected()) controller.validateCommand(line);
+                    // A move after the game is over is refused without an error, and mustn't be replayed
+                    if (result != OXOMoveResult.GAME_OVER) {
+                        int move = controller.getLastMove();
+                        journal(OXOJournal.MOVE, OXOController.decodeRow(move), OXOController.decodeColumn(move));
+                    }
+                }
+            } finally {
+                model.endBatch();
+            }
+            reply.append("OK ");
+            appendStatus(reply);
+        } catch (OXOMoveException | IllegalArgumentException exception) {
+            reply.append("ERROR ").append(exception.getMessage());
+        }
+    }
+
+    public void appendStatus(StringBuilder reply) {
+        if (model.getWinner() != null) reply.append("WIN ").append(model.getWinner().getPlayingLetter());
+        else if (model.isGameDrawn()) reply.append("DRAW");
+        else reply.append("TURN ").append(model.getPlayerByNumber(model.getCurrentPlayerNumber()).getPlayingLetter());
+    }
+
+    // BOARD <rows> <cols> <threshold> <cells>, with rows separated by '/' and '.' for unclaimed cells
+    private void appendBoard(StringBuilder reply) {
+        reply.append("BOARD ").append(model.getNumberOfRows()).append(' ').append(model.getNumberOfColumns())
+             .append(' ').append(model.getWinThreshold()).append(' ');
+        for (int row = 0; row < model.getNumberOfRows(); row++) {
+            if (row > 0) reply.append('/');
+            for (int col = 0; col < model.getNumberOfColumns(); col++) {
+                OXOPlayer owner = model.getCellOwner(row, col);
+                reply.append(owner == null ? '.' : owner.getPlayingLetter());
+            }
+        }
+    }
+
+    private void resize(int numberOfRows, int numberOfColumns) {
+        while (model.getNumberOfRows() < numberOfRows) {
+            controller.addRow();
+            journal(OXOJournal.ADD_ROW, 0, 0);
+        }
+        while (model.getNumberOfRows() > numberOfRows) {
+            controller.removeRow();
+            journal(OXOJournal.REMOVE_ROW, 0, 0);
+        }
+        while (model.getNumberOfColumns() < numberOfColumns) {
+            controller.addColumn();
+            journal(OXOJournal.ADD_COLUMN, 0, 0);
+        }
+        while (model.getNumberOfColumns() > numberOfColumns) {
+            controller.removeColumn();
+            journal(OXOJournal.REMOVE_COLUMN, 0, 0);
+        }
+    }
+
+    void setWinThreshold(int threshold) {
+        while (model.getWinThreshold() < threshold) controller.increaseWinThreshold();
+        while (model.getWinThreshold() > threshold) controller.decreaseWinThreshold();
+    }
+
+    private void journal(byte type, int first, int second) {
+        if (journal != null) journal.append(type, id, first, second);
+    }
+
+    static int checkSize(int value, String what) {
+        if (value < 1 || value > MAX_SIZE) throw new IllegalArgumentException(what + " must be from 1 to " + MAX_SIZE);
+        return value;
+    }
+
+    // Case-insensitive match of the first word of the line, without copying the line
+    static boolean isKeyword(CharSequence line, String keyword) {
+        if (line.length() < keyword.length()) return false;
+        if (line.length() > keyword.length() && line.charAt(keyword.length()) != ' ') return false;
+        for (int i = 0; i < keyword.length(); i++) {
+            if (Character.toUpperCase(line.charAt(i)) != keyword.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    static String[] arguments(CharSequence line, int count) {
+        String[] words = line.toString().trim().split("\\s+");
+        if (words.length != count + 1) {
+            throw new IllegalArgumentException(words[0].toUpperCase() + " takes " + count + " argument" + (count == 1 ? "" : "s"));
+        }
+        String[] arguments = new String[count];
+        System.arraycopy(words, 1, arguments, 0, count);
+        return arguments;
+    }
+}
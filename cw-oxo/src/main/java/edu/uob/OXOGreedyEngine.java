@@ -0,0 +1,58 @@
+package edu.uob;
+
+import java.util.SplittableRandom;
+
+// Looks one move ahead: wins if it can, otherwise blocks an opponent's winning cell, otherwise plays the cell
+// that makes its own longest line (breaking ties by the longest opposing line it cuts, then at random).
+public class OXOGreedyEngine implements OXOMoveEngine {
+
+    private final SplittableRandom random;
+    private OXOPosition position;
+
+    public OXOGreedyEngine(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    public int chooseMove(OXOModel model) {
+        load(model);
+        int mover = position.getPlayerToMove();
+        int threshold = position.getWinThreshold();
+        int best = -1;
+        long bestScore = Long.MIN_VALUE;
+        int ties = 0;
+        for (int cell = 0; cell < position.getNumberOfCells(); cell++) {
+            if (position.getOwner(cell) != OXOBoard.EMPTY) continue;
+            int own = position.longestLineThrough(cell, mover);
+            if (own >= threshold) return toMove(cell);
+            int opposing = 0;
+            for (int player = 0; player < position.getNumberOfPlayers(); player++) {
+                if (player != mover) opposing = Math.max(opposing, position.longestLineThrough(cell, player));
+            }
+            long score = opposing >= threshold ? Long.MAX_VALUE : (long) own * (threshold + 1) + opposing;
+            if (score > bestScore) {
+                best = cell;
+                bestScore = score;
+                ties = 1;
+            }
+            // Reservoir sampling keeps every tied cell equally likely without collecting them
+            else if (score == bestScore && random.nextInt(++ties) == 0) {
+                best = cell;
+            }
+        }
+        return best < 0 ? -1 : toMove(best);
+    }
+
+    private void load(OXOModel model) {
+        if (position == null || position.getNumberOfRows() != model.getNumberOfRows() || position.getNumberOfColumns() != model.getNumberOfColumns()
+                || position.getWinThreshold() != Math.max(1, model.getWinThreshold()) || position.getNumberOfPlayers() != model.getNumberOfPlayers()) {
+            position = new OXOPosition(model);
+        }
+        else {
+            position.load(model);
+        }
+    }
+
+    private int toMove(int cell) {
+        return OXOController.encodeMove(cell / position.getNumberOfColumns(), cell % position.getNumberOfColumns());
+    }
+}
@@ -0,0 +1,321 @@
+package edu.uob;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+// Write-ahead journal of everything that changes a hosted game, so the games survive the process dying.
+// Every change is a fixed 32 byte record appended to a memory-mapped segment file:
+//   0   type (byte), then up to 7 player letters for CREATE
+//   8   session id (long)
+//   16  three int arguments: rows/cols/threshold for CREATE, row/col for MOVE, the new threshold for THRESHOLD
+//   28  CRC32C of the first 28 bytes, so a record torn by a crash is recognised and replay stops there
+// Appending only writes memory. sync() makes everything appended so far durable, and callers that sync at the
+// same time share one force of the segment (group commit). Segments are numbered within a generation: compaction
+// writes the records still needed into a new generation, switches the CURRENT file over to it and then deletes
+// the old one.
+public class OXOJournal implements Closeable {
+
+    static final int RECORD_SIZE = 32;
+    static final byte CREATE = 1;
+    static final byte MOVE = 2;
+    static final byte ADD_ROW = 3;
+    static final byte ADD_COLUMN = 4;
+    static final byte REMOVE_ROW = 5;
+    static final byte REMOVE_COLUMN = 6;
+    static final byte THRESHOLD = 7;
+    static final byte RESET = 8;
+    static final byte CLOSE = 9;
+    private static final int MAX_LETTERS = 7;
+    private static final String CURRENT = "CURRENT";
+    private static final String SUFFIX = ".oxoj";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32C checksum = new CRC32C();
+    private int generation;
+    private int nextSegment;
+    private MappedByteBuffer segment;
+    private long appended;
+    private long durable;
+    private boolean syncing;
+    private long syncs;
+
+    // Opens (or starts) the journal in a directory. Segments hold segmentSize / 32 records each.
+    public static OXOJournal open(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < RECORD_SIZE || segmentSize % RECORD_SIZE != 0) throw new IllegalArgumentException("Segment size must be a multiple of " + RECORD_SIZE);
+        Files.createDirectories(directory);
+        return new OXOJournal(directory, segmentSize);
+    }
+
+    private OXOJournal(Path directory, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Path current = directory.resolve(CURRENT);
+        generation = Files.exists(current) ? Integer.parseInt(Files.readString(current).trim()) : 0;
+        // Anything from another generation is left over from a compaction that crashed before or after switching
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                if (generationOf(file) == generation) segments.add(file);
+                else Files.delete(file);
+            }
+        }
+        for (Path file : segments) nextSegment = Math.max(nextSegment, segmentOf(file) + 1);
+    }
+
+    // Replays the journal into the registry, then has the registry journal everything that happens from now on.
+    // Returns the number of records replayed.
+    public synchronized long recover(OXOSessionRegistry registry) throws IOException {
+        long replayed = 0;
+        for (Path file : segments()) {
+            ByteBuffer records = map(file);
+            for (int position = 0; position < records.limit() && isValid(records, position); position += RECORD_SIZE) {
+                replay(records, position, registry);
+                replayed++;
+            }
+        }
+        registry.setJournal(this);
+        return replayed;
+    }
+
+    private static void replay(ByteBuffer records, int position, OXOSessionRegistry registry) {
+        byte type = records.get(position);
+        long id = records.getLong(position + 8);
+        int first = records.getInt(position + 16);
+        int second = records.getInt(position + 20);
+        int third = records.getInt(position + 24);
+        if (type == CREATE) {
+            StringBuilder letters = new StringBuilder();
+            for (int i = 1; i <= MAX_LETTERS && records.get(position + i) != 0; i++) letters.append((char) (records.get(position + i) & 0xFF));
+            registry.restore(id, first, second, third, letters);
+            return;
+        }
+        OXOGameSession session = registry.get(id);
+        if (session == null) return;
+        OXOController controller = session.getController();
+        // Replayed moves were counted when they were first made
+        OXOMetrics metrics = controller.getMetrics();
+        controller.setMetrics(null);
+        try {
+            switch (type) {
+                case MOVE -> controller.tryMove(first, second);
+                case ADD_ROW -> controller.addRow();
+                case ADD_COLUMN -> controller.addColumn();
+                case REMOVE_ROW -> controller.removeRow();
+                case REMOVE_COLUMN -> controller.removeColumn();
+                case THRESHOLD -> session.setWinThreshold(first);
+                case RESET -> controller.reset();
+                case CLOSE -> registry.remove(session);
+                default -> throw new IllegalStateException("Unknown journal record type " + type);
+            }
+        } finally {
+            controller.setMetrics(metrics);
+        }
+    }
+
+    void appendCreate(long id, int numberOfRows, int numberOfColumns, int winThreshold, CharSequence letters) {
+        checkLetters(letters);
+        synchronized (this) {
+            record.put(0, CREATE);
+            for (int i = 0; i < MAX_LETTERS; i++) record.put(i + 1, i < letters.length() ? (byte) letters.charAt(i) : 0);
+            finishRecord(id, numberOfRows, numberOfColumns, winThreshold);
+        }
+    }
+
+    static void checkLetters(CharSequence letters) {
+        if (letters.length() > MAX_LETTERS) throw new IllegalArgumentException("Journalled games can have at most " + MAX_LETTERS + " players");
+    }
+
+    synchronized void append(byte type, long id, int first, int second) {
+        record.put(0, type);
+        for (int i = 1; i <= MAX_LETTERS; i++) record.put(i, (byte) 0);
+        finishRecord(id, first, second, 0);
+    }
+
+    private void finishRecord(long id, int first, int second, int third) {
+        record.putLong(8, id).putInt(16, first).putInt(20, second).putInt(24, third);
+        checksum.reset();
+        checksum.update(record.array(), 0, RECORD_SIZE - 4);
+        record.putInt(RECORD_SIZE - 4, (int) checksum.getValue());
+        write(record.array());
+    }
+
+    private void write(byte[] bytes) {
+        try {
+            if (segment == null || !segment.hasRemaining()) roll();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        segment.put(bytes, 0, RECORD_SIZE);
+        appended++;
+    }
+
+    // Moves on to a fresh segment, making the full one durable first
+    private void roll() throws IOException {
+        if (segment != null) {
+            segment.force();
+            durable = appended;
+            syncs++;
+        }
+        Path file = directory.resolve(String.format("%06d-%06d%s", generation, nextSegment++, SUFFIX));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    // Blocks until every record appended before the call is on disk. If another thread is already forcing the
+    // segment this waits for it rather than forcing again, then forces whatever has been appended since.
+    public void sync() throws IOException {
+        long target;
+        MappedByteBuffer forcing;
+        synchronized (this) {
+            target = appended;
+            while (syncing && durable < target) {
+                try {
+                    wait();
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for the journal to sync");
+                }
+            }
+            if (durable >= target || segment == null) return;
+            syncing = true;
+            forcing = segment;
+            target = appended;
+        }
+        try {
+            forcing.force();
+        } finally {
+            synchronized (this) {
+                syncing = false;
+                durable = Math.max(durable, target);
+                syncs++;
+                notifyAll();
+            }
+        }
+    }
+
+    // Whether anything appended is not yet known to be on disk
+    public synchronized boolean hasUnsyncedRecords() {
+        return durable < appended;
+    }
+
+    // Rewrites the journal without the games that have ended or anything from before a game's last reset, and
+    // returns the number of records dropped
+    public synchronized long compact() throws IOException {
+        while (syncing) {
+            try {
+                wait();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for the journal to sync");
+            }
+        }
+        List<ByteBuffer> oldSegments = new ArrayList<>();
+        List<Path> oldFiles = segments();
+        Set<Long> closed = new HashSet<>();
+        Map<Long, Long> lastReset = new HashMap<>();
+        long index = 0;
+        for (Path file : oldFiles) {
+            ByteBuffer records = map(file);
+            oldSegments.add(records);
+            for (int position = 0; position < records.limit() && isValid(records, position); position += RECORD_SIZE, index++) {
+                byte type = records.get(position);
+                if (type == CLOSE) closed.add(records.getLong(position + 8));
+                else if (type == RESET) lastReset.put(records.getLong(position + 8), index);
+            }
+        }
+
+        generation++;
+        nextSegment = 0;
+        segment = null;
+        long before = appended;
+        byte[] bytes = new byte[RECORD_SIZE];
+        index = 0;
+        for (ByteBuffer records : oldSegments) {
+            for (int position = 0; position < records.limit() && isValid(records, position); position += RECORD_SIZE, index++) {
+                byte type = records.get(position);
+                long id = records.getLong(position + 8);
+                if (closed.contains(id)) continue;
+                if (type != CREATE && index < lastReset.getOrDefault(id, -1L)) continue;
+                records.get(position, bytes);
+                write(bytes);
+            }
+        }
+        long kept = appended - before;
+        if (segment != null) segment.force();
+        durable = appended;
+        Path temporary = directory.resolve(CURRENT + ".tmp");
+        Files.writeString(temporary, Integer.toString(generation));
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(CURRENT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (Path file : oldFiles) Files.delete(file);
+        return index - kept;
+    }
+
+    public synchronized long getNumberOfRecordsAppended() {
+        return appended;
+    }
+
+    // How many times a segment has been forced to disk
+    public synchronized long getNumberOfSyncs() {
+        return syncs;
+    }
+
+    public void close() throws IOException {
+        sync();
+    }
+
+    private List<Path> segments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, String.format("%06d-*%s", generation, SUFFIX))) {
+            for (Path file : files) segments.add(file);
+        }
+        // Zero-padded names sort in segment order
+        segments.sort(null);
+        return segments;
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private boolean isValid(ByteBuffer records, int position) {
+        if (position + RECORD_SIZE > records.limit() || records.get(position) == 0) return false;
+        checksum.reset();
+        checksum.update(records.slice(position, RECORD_SIZE - 4));
+        return (int) checksum.getValue() == records.getInt(position + RECORD_SIZE - 4);
+    }
+
+    private static int generationOf(Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(0, name.indexOf('-')));
+    }
+
+    private static int segmentOf(Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(name.indexOf('-') + 1, name.length() - SUFFIX.length()));
+    }
+}
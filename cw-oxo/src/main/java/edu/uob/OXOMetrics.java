@@ -0,0 +1,282 @@
+package edu.uob;
+
+import edu.uob.OXOMoveException.*;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+// Counters and latency histograms for the move path, shared by any number of controllers (see
+// OXOController.setMetrics). Every command's outcome is counted, but only one command in every samplingInterval is
+// timed, which keeps the cost of reading the clock off most moves. Latencies go into log-linear buckets - eight
+// per power of two, so a percentile is within 12.5% of the true value - and snapshot() reads everything at once.
+// The controller also emits the JFR events below, but only while a recording is running - otherwise it doesn't
+// even create them.
+public class OXOMetrics {
+
+    public enum Operation {
+        // A whole command, from the text arriving to the result
+        COMMAND,
+        PARSE,
+        // Range and taken-cell checks on a parsed move
+        VALIDATE,
+        // Claiming the cell and passing the turn on, including the win check
+        APPLY,
+        WIN_CHECK
+    }
+
+    private static final OXOMoveResult[] RESULTS = OXOMoveResult.values();
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Values below this get a bucket each
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+    private static final int NUMBER_OF_BUCKETS = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private static final Set<Recording> runningRecordings = new HashSet<>();
+    private static volatile boolean recording;
+
+    static {
+        // Listening doesn't start the flight recorder; it only finds out when something else does
+        FlightRecorder.addListener(new FlightRecorderListener() {
+            public void recordingStateChanged(Recording changed) {
+                updateRecording(changed);
+            }
+        });
+        // Recordings started before this class loaded, such as one from -XX:StartFlightRecording, are never
+        // announced to the listener. Looking after it is added means none can slip between the two.
+        if (FlightRecorder.isInitialized()) {
+            for (Recording running : FlightRecorder.getFlightRecorder().getRecordings()) updateRecording(running);
+        }
+    }
+
+    private static void updateRecording(Recording changed) {
+        synchronized (runningRecordings) {
+            if (changed.getState() == RecordingState.RUNNING) runningRecordings.add(changed);
+            else runningRecordings.remove(changed);
+            recording = !runningRecordings.isEmpty();
+        }
+    }
+
+    private final int samplingInterval;
+    private final LongAdder[] results = new LongAdder[RESULTS.length];
+    private final AtomicLongArray[] histograms = new AtomicLongArray[OPERATIONS.length];
+
+    public OXOMetrics() {
+        this(64);
+    }
+
+    public OXOMetrics(int samplingInterval) {
+        if (samplingInterval < 1) throw new IllegalArgumentException("Sampling interval must be at least 1");
+        this.samplingInterval = samplingInterval;
+        for (int i = 0; i < results.length; i++) results[i] = new LongAdder();
+        for (int i = 0; i < histograms.length; i++) histograms[i] = new AtomicLongArray(NUMBER_OF_BUCKETS);
+    }
+
+    static boolean isRecording() {
+        return recording;
+    }
+
+    public int getSamplingInterval() {
+        return samplingInterval;
+    }
+
+    public void recordResult(OXOMoveResult result) {
+        results[result.ordinal()].increment();
+    }
+
+    public void recordLatency(Operation operation, long nanos) {
+        histograms[operation.ordinal()].getAndIncrement(bucketOf(Math.max(0, nanos)));
+    }
+
+    // Counts and histograms are copied one at a time, so a snapshot taken while commands run may be a few
+    // commands out between them
+    public Snapshot snapshot() {
+        long[] resultCounts = new long[results.length];
+        for (int i = 0; i < results.length; i++) resultCounts[i] = results[i].sum();
+        long[][] buckets = new long[histograms.length][NUMBER_OF_BUCKETS];
+        for (int i = 0; i < histograms.length; i++) {
+            for (int b = 0; b < NUMBER_OF_BUCKETS; b++) buckets[i][b] = histograms[i].get(b);
+        }
+        return new Snapshot(resultCounts, buckets);
+    }
+
+    public void reset() {
+        for (LongAdder counter : results) counter.reset();
+        for (AtomicLongArray histogram : histograms) {
+            for (int b = 0; b < NUMBER_OF_BUCKETS; b++) histogram.set(b, 0);
+        }
+    }
+
+    // The exception handleIncomingCommand throws for a rejected result, or null if the result isn't a rejection
+    public static Class<? extends OXOMoveException> exceptionTypeOf(OXOMoveResult result) {
+        return switch (result) {
+            case INVALID_LENGTH -> InvalidIdentifierLengthException.class;
+            case INVALID_ROW_CHARACTER, INVALID_COLUMN_CHARACTER -> InvalidIdentifierCharacterException.class;
+            case ROW_OUT_OF_RANGE, COLUMN_OUT_OF_RANGE -> OutsideCellRangeException.class;
+            case CELL_TAKEN -> CellAlreadyTakenException.class;
+            default -> null;
+        };
+    }
+
+    static int bucketOf(long value) {
+        if (value < LINEAR_LIMIT) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    // The largest value that falls in a bucket
+    static long bucketLimit(int bucket) {
+        if (bucket < LINEAR_LIMIT) return bucket;
+        int exponent = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        long subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKETS;
+        long lowest = (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+        return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    public static class Snapshot {
+        private final long[] resultCounts;
+        private final long[][] buckets;
+        private final long[] sampleCounts = new long[OPERATIONS.length];
+
+        private Snapshot(long[] resultCounts, long[][] buckets) {
+            this.resultCounts = resultCounts;
+            this.buckets = buckets;
+            for (int i = 0; i < buckets.length; i++) {
+                for (long count : buckets[i]) sampleCounts[i] += count;
+            }
+        }
+
+        public long getNumberOfCommands() {
+            long total = 0;
+            for (long count : resultCounts) total += count;
+            return total;
+        }
+
+        public long getCount(OXOMoveResult result) {
+            return resultCounts[result.ordinal()];
+        }
+
+        // Rejected commands that handleIncomingCommand would have reported with this kind of exception
+        public long getRejections(Class<? extends OXOMoveException> exceptionType) {
+            long total = 0;
+            for (OXOMoveResult result : RESULTS) {
+                if (exceptionTypeOf(result) == exceptionType) total += resultCounts[result.ordinal()];
+            }
+            return total;
+        }
+
+        public long getRejections() {
+            long total = 0;
+            for (OXOMoveResult result : RESULTS) {
+                if (result.isRejected()) total += resultCounts[result.ordinal()];
+            }
+            return total;
+        }
+
+        // How many times the operation was timed
+        public long getNumberOfSamples(Operation operation) {
+            return sampleCounts[operation.ordinal()];
+        }
+
+        // Latency in nanoseconds that the given fraction of samples (0.5, 0.99, ...) came in at or under
+        public long getPercentile(Operation operation, double fraction) {
+            long total = sampleCounts[operation.ordinal()];
+            if (total == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(fraction * total));
+            long seen = 0;
+            long[] counts = buckets[operation.ordinal()];
+            for (int b = 0; b < counts.length; b++) {
+                seen += counts[b];
+                if (seen >= rank) return bucketLimit(b);
+            }
+            return bucketLimit(counts.length - 1);
+        }
+
+        public long getP50(Operation operation) {
+            return getPercentile(operation, 0.5);
+        }
+
+        public long getP99(Operation operation) {
+            return getPercentile(operation, 0.99);
+        }
+
+        public long getP999(Operation operation) {
+            return getPercentile(operation, 0.999);
+        }
+
+        public long getMax(Operation operation) {
+            return getPercentile(operation, 1);
+        }
+
+        public Map<OXOMoveResult, Long> getResultCounts() {
+            Map<OXOMoveResult, Long> counts = new EnumMap<>(OXOMoveResult.class);
+            for (OXOMoveResult result : RESULTS) {
+                if (resultCounts[result.ordinal()] > 0) counts.put(result, resultCounts[result.ordinal()]);
+            }
+            return counts;
+        }
+
+        public String toString() {
+            StringBuilder report = new StringBuilder();
+            report.append(getNumberOfCommands()).append(" commands ").append(getResultCounts()).append('\n');
+            for (Operation operation : OPERATIONS) {
+                if (getNumberOfSamples(operation) == 0) continue;
+                report.append(String.format("%-10s %8d samples  p50 %6dns  p99 %6dns  p999 %6dns  max %6dns%n", operation, getNumberOfSamples(operation),
+                        getP50(operation), getP99(operation), getP999(operation), getMax(operation)));
+            }
+            return report.toString();
+        }
+    }
+
+    @Name("edu.uob.Parse")
+    @Label("Parse Command")
+    @Category("OXO")
+    @Description("Turning a cell identifier into a row and column")
+    static class ParseEvent extends Event {
+        @Label("Length") int length;
+        @Label("Result") String result;
+    }
+
+    @Name("edu.uob.Validate")
+    @Label("Validate Move")
+    @Category("OXO")
+    static class ValidateEvent extends Event {
+        @Label("Row") int row;
+        @Label("Column") int column;
+        @Label("Result") String result;
+    }
+
+    @Name("edu.uob.Apply")
+    @Label("Apply Move")
+    @Category("OXO")
+    static class ApplyEvent extends Event {
+        @Label("Row") int row;
+        @Label("Column") int column;
+        @Label("Player") int player;
+        @Label("Result") String result;
+    }
+
+    @Name("edu.uob.WinCheck")
+    @Label("Win Check")
+    @Category("OXO")
+    static class WinCheckEvent extends Event {
+        @Label("Row") int row;
+        @Label("Column") int column;
+        @Label("Threshold") int threshold;
+        @Label("Whole Board") @Description("The board or threshold had changed, so every line was checked") boolean wholeBoard;
+        @Label("Won") boolean won;
+    }
+}
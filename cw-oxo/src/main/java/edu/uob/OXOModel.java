@@ -1,25 +1,40 @@
 package edu.uob;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public class OXOModel {
 
-    private ArrayList<ArrayList<OXOPlayer>> cells;
+    // Kinds of change held back until the end of a batch
+    private static final int TURN = 1;
+    private static final int WINNER = 2;
+    private static final int DRAWN = 4;
+    private static final int DIMENSIONS = 8;
+    private static final int THRESHOLD = 16;
+    private static final int RESET = 32;
+
+    private OXOBoard board;
     private ArrayList<OXOPlayer> players;
     private int currentPlayerNumber;
     private OXOPlayer winner;
     private boolean gameDrawn;
     private int winThreshold;
+    // Replaced rather than changed when a listener comes or goes, so notifying needs no lock
+    private volatile OXOModelListener[] listeners = new OXOModelListener[0];
+    private int batchDepth;
+    private int batchChanges;
+    // Cells changed during the current batch, row in the high half and column in the low, so cells anywhere on a
+    // sparse board fit - not just the corner OXOController.encodeMove can pack
+    private long[] batchCells = new long[16];
+    private int numberOfBatchCells;
 
     public OXOModel(int numberOfRows, int numberOfColumns, int winThresh) {
+        this(new OXOBitBoard(numberOfRows, numberOfColumns), winThresh);
+    }
+
+    public OXOModel(OXOBoard board, int winThresh) {
         winThreshold = winThresh;
-        cells = new ArrayList<>();
-        for(int i = 0; i < numberOfRows; i++) {
-            cells.add(i, new ArrayList<OXOPlayer>());
-            for (int j = 0; j < numberOfColumns; j++) {
-                cells.get(i).add(j, null);
-            }
-        }
+        this.board = board;
         players = new ArrayList<>(2);
     }
 
@@ -31,16 +46,30 @@ public class OXOModel {
         players.add(player);
     }
 
+    // Swaps in a different player object under the same number, leaving the one it replaces untouched
+    public void setPlayer(int number, OXOPlayer player) {
+        OXOPlayer replaced = players.set(number, player);
+        if(winner == replaced) winner = player;
+    }
+
     public OXOPlayer getPlayerByNumber(int number) {
         return players.get(number);
     }
 
+    public int getPlayerNumber(OXOPlayer player) {
+        for(int i = 0; i < players.size(); i++){
+            if(players.get(i) == player) return i;
+        }
+        throw new IllegalArgumentException("Player " + player.getPlayingLetter() + " is not in this game");
+    }
+
     public OXOPlayer getWinner() {
         return winner;
     }
 
     public void setWinner(OXOPlayer player) {
         winner = player;
+        fire(WINNER);
     }
 
     public int getCurrentPlayerNumber() {
@@ -49,26 +78,58 @@ public class OXOModel {
 
     public void setCurrentPlayerNumber(int playerNumber) {
         currentPlayerNumber = playerNumber;
+        fire(TURN);
     }
 
     public int getNumberOfRows() {
-        return cells.size();
+        return board.getNumberOfRows();
     }
 
     public int getNumberOfColumns() {
-        return cells.get(0).size();
+        return board.getNumberOfColumns();
     }
 
     public OXOPlayer getCellOwner(int rowNumber, int colNumber) {
-        return cells.get(rowNumber).get(colNumber);
+        int owner = board.getOwner(rowNumber, colNumber);
+        return owner == OXOBoard.EMPTY ? null : players.get(owner);
     }
 
     public void setCellOwner(int rowNumber, int colNumber, OXOPlayer player) {
-        cells.get(rowNumber).set(colNumber, player);
+        setCellOwnerNumber(rowNumber, colNumber, player == null ? OXOBoard.EMPTY : getPlayerNumber(player));
+    }
+
+    public int getCellOwnerNumber(int rowNumber, int colNumber) {
+        return board.getOwner(rowNumber, colNumber);
+    }
+
+    public void setCellOwnerNumber(int rowNumber, int colNumber, int playerNumber) {
+        board.setOwner(rowNumber, colNumber, playerNumber);
+        OXOModelListener[] current = listeners;
+        if (current.length == 0) return;
+        if (batchDepth > 0) {
+            if (numberOfBatchCells == batchCells.length) batchCells = Arrays.copyOf(batchCells, batchCells.length * 2);
+            batchCells[numberOfBatchCells++] = ((long) rowNumber << 32) | colNumber;
+        }
+        else {
+            for (OXOModelListener listener : current) listener.cellChanged(rowNumber, colNumber, playerNumber);
+        }
+    }
+
+    public int getNumberOfClaimedCells() {
+        return board.getNumberOfClaimedCells();
+    }
+
+    public boolean hasLine(int playerNumber, int length) {
+        return board.hasLine(playerNumber, length);
+    }
+
+    public OXOBoard getBoard() {
+        return board;
     }
 
     public void setWinThreshold(int winThresh) {
         winThreshold = winThresh;
+        fire(THRESHOLD);
     }
 
     public int getWinThreshold() {
@@ -76,7 +137,12 @@ public class OXOModel {
     }
 
     public void setGameDrawn() {
-        gameDrawn = true;
+        setGameDrawn(true);
+    }
+
+    public void setGameDrawn(boolean drawn) {
+        gameDrawn = drawn;
+        fire(DRAWN);
     }
 
     public boolean isGameDrawn() {
@@ -84,27 +150,120 @@ public class OXOModel {
     }
 
     public void addRow() {
-        int x = getNumberOfRows();
-        cells.add(x, new ArrayList<OXOPlayer>());
-        for (int i = 0; i < getNumberOfColumns(); i++) {
-            cells.get(x).add(i, null);
-        }
+        board.addRow();
+        fire(DIMENSIONS);
     }
 
     public void addColumn() {
-        for(int i = 0; i < getNumberOfRows(); i++){
-            cells.get(i).add(null);
-        }
+        board.addColumn();
+        fire(DIMENSIONS);
     }
 
     public void removeRow() {
-        cells.remove(getNumberOfRows()-1);
+        board.removeRow();
+        fire(DIMENSIONS);
     }
 
     public void removeColumn() {
-        for(int i = 0; i < getNumberOfRows(); i++){
-            cells.get(i).remove(getNumberOfColumns()-1);
+        board.removeColumn();
+        fire(DIMENSIONS);
+    }
+
+    // Clears every cell, the winner and the draw and gives the first player the turn, keeping the board's size and
+    // threshold. Listeners hear about it as one reset rather than a change to every cell.
+    public void restart() {
+        reset(board.getNumberOfRows(), board.getNumberOfColumns(), winThreshold);
+    }
+
+    // Starts a new game on an empty board of the given size, reusing the board's storage rather than clearing or
+    // removing cells one at a time. Listeners hear about the reset, and the new size and threshold if they changed.
+    public void reset(int numberOfRows, int numberOfColumns, int winThresh) {
+        int changes = RESET;
+        if(numberOfRows != board.getNumberOfRows() || numberOfColumns != board.getNumberOfColumns()) changes |= DIMENSIONS;
+        if(winThresh != winThreshold) changes |= THRESHOLD;
+        board.clear(numberOfRows, numberOfColumns);
+        winThreshold = winThresh;
+        currentPlayerNumber = 0;
+        winner = null;
+        gameDrawn = false;
+        fire(changes);
+    }
+
+    public boolean hasListeners() {
+        return listeners.length > 0;
+    }
+
+    public synchronized void addListener(OXOModelListener listener) {
+        OXOModelListener[] current = listeners;
+        OXOModelListener[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        listeners = updated;
+    }
+
+    public synchronized void removeListener(OXOModelListener listener) {
+        OXOModelListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                OXOModelListener[] updated = new OXOModelListener[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                listeners = updated;
+                return;
+            }
+        }
+    }
+
+    // Holds back notifications until the matching endBatch, then sends one per changed cell and one per other kind
+    // of change, carrying the values as they are at the end. Batches nest; only the outermost one notifies.
+    public void beginBatch() {
+        batchDepth++;
+    }
+
+    public void endBatch() {
+        if (batchDepth == 0) throw new IllegalStateException("No batch to end");
+        if (--batchDepth > 0) return;
+        int changes = batchChanges;
+        int count = numberOfBatchCells;
+        batchChanges = 0;
+        numberOfBatchCells = 0;
+        OXOModelListener[] current = listeners;
+        if (current.length == 0 || (changes == 0 && count == 0)) return;
+        if ((changes & RESET) != 0) {
+            for (OXOModelListener listener : current) listener.gameReset();
+        }
+        // Sorting brings repeated changes to a cell together so each cell is reported once
+        Arrays.sort(batchCells, 0, count);
+        for (int i = 0; i < count; i++) {
+            long cell = batchCells[i];
+            int rowNumber = (int) (cell >>> 32);
+            int colNumber = (int) cell;
+            if ((i > 0 && batchCells[i - 1] == cell) || rowNumber >= getNumberOfRows() || colNumber >= getNumberOfColumns()) continue;
+            int owner = board.getOwner(rowNumber, colNumber);
+            for (OXOModelListener listener : current) listener.cellChanged(rowNumber, colNumber, owner);
+        }
+        for (OXOModelListener listener : current) deliver(listener, changes & ~RESET);
+        for (OXOModelListener listener : current) listener.batchEnded();
+    }
+
+    private void fire(int change) {
+        OXOModelListener[] current = listeners;
+        if (current.length == 0) return;
+        if (batchDepth > 0) {
+            batchChanges |= change;
+            // Cells changed before a reset don't matter any more
+            if ((change & RESET) != 0) numberOfBatchCells = 0;
+        }
+        else {
+            for (OXOModelListener listener : current) deliver(listener, change);
         }
     }
 
+    private void deliver(OXOModelListener listener, int changes) {
+        if ((changes & RESET) != 0) listener.gameReset();
+        if ((changes & DIMENSIONS) != 0) listener.dimensionsChanged(getNumberOfRows(), getNumberOfColumns());
+        if ((changes & THRESHOLD) != 0) listener.thresholdChanged(winThreshold);
+        if ((changes & TURN) != 0) listener.turnChanged(currentPlayerNumber);
+        if ((changes & WINNER) != 0) listener.winnerChanged(winner);
+        if ((changes & DRAWN) != 0) listener.drawnChanged(gameDrawn);
+    }
 }
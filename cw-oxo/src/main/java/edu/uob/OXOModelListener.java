@@ -0,0 +1,27 @@
+package edu.uob;
+
+// Told about changes to an OXOModel on the thread that made them - straight away, or at the end of a batch
+// (see OXOModel.beginBatch). Implement only the changes you care about.
+public interface OXOModelListener {
+
+    // A cell was claimed, or cleared if the player number is EMPTY
+    default void cellChanged(int rowNumber, int colNumber, int playerNumber) {}
+
+    default void turnChanged(int playerNumber) {}
+
+    // The winner was set, or cleared if null
+    default void winnerChanged(OXOPlayer winner) {}
+
+    default void drawnChanged(boolean drawn) {}
+
+    // A row or column was added or removed
+    default void dimensionsChanged(int numberOfRows, int numberOfColumns) {}
+
+    default void thresholdChanged(int winThreshold) {}
+
+    // Every cell was cleared and the game started again
+    default void gameReset() {}
+
+    // The end of a batch, after everything in it has been reported
+    default void batchEnded() {}
+}
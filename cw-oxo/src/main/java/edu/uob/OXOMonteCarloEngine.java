@@ -0,0 +1,308 @@
+package edu.uob;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Monte Carlo tree search for boards too big to search exhaustively. Every worker in the fork-join pool grows
+// its own tree below the root and plays random games out from its leaves. The root moves are shared: workers
+// pick them using visit and score counters that all of them update without locking, so the pool spends its time
+// on the moves that look best to everyone, and the move played is the one visited most.
+public class OXOMonteCarloEngine implements OXOMoveEngine {
+
+    private static final double EXPLORATION = Math.sqrt(2);
+    private static final int NEIGHBOURHOOD = 2;
+    private static final byte UNKNOWN = 0;
+    private static final byte ONGOING = 1;
+    private static final byte WON = 2;
+    private static final byte DRAWN = 3;
+
+    private final long timeBudgetNanos;
+    private final ForkJoinPool pool;
+    private final SplittableRandom seeds;
+    private final LongAdder playouts = new LongAdder();
+    private long lastPlayouts;
+    private long lastElapsedNanos;
+
+    // Shared by the workers for the duration of one search
+    private OXOPosition root;
+    private int[] rootMoves;
+    private AtomicLongArray rootVisits;
+    private AtomicLongArray rootScores;
+    private long deadline;
+
+    public OXOMonteCarloEngine(long timeBudgetMillis) {
+        this(timeBudgetMillis, ForkJoinPool.commonPool(), System.nanoTime());
+    }
+
+    public OXOMonteCarloEngine(long timeBudgetMillis, ForkJoinPool pool, long seed) {
+        if (timeBudgetMillis < 1) throw new IllegalArgumentException("Time budget must be at least a millisecond");
+        timeBudgetNanos = timeBudgetMillis * 1_000_000L;
+        this.pool = pool;
+        seeds = new SplittableRandom(seed);
+    }
+
+    // Playouts per second, over the last search
+    public double getPlayoutsPerSecond() {
+        return lastElapsedNanos == 0 ? 0 : lastPlayouts * 1e9 / lastElapsedNanos;
+    }
+
+    public long getLastPlayouts() {
+        return lastPlayouts;
+    }
+
+    // One worker per thread in the pool
+    public int getNumberOfWorkers() {
+        return Math.max(1, pool.getParallelism());
+    }
+
+    public int chooseMove(OXOModel model) {
+        OXOPosition position = new OXOPosition(model);
+        int cell = chooseMove(position);
+        int columns = model.getNumberOfColumns();
+        return cell < 0 ? -1 : OXOController.encodeMove(cell / columns, cell % columns);
+    }
+
+    // Returns a cell index, or -1 if the position is full
+    public synchronized int chooseMove(OXOPosition position) {
+        long start = System.nanoTime();
+        deadline = start + timeBudgetNanos;
+        root = position;
+        rootMoves = candidateMoves(position, new int[position.getNumberOfCells()]);
+        if (rootMoves.length == 0) return -1;
+        // A forced move needs no simulation
+        if (rootMoves.length == 1) return rootMoves[0];
+        rootVisits = new AtomicLongArray(rootMoves.length);
+        rootScores = new AtomicLongArray(rootMoves.length);
+        playouts.reset();
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[getNumberOfWorkers()];
+        for (int i = 0; i < tasks.length; i++) tasks[i] = pool.submit(new Worker(seeds.split(), i));
+        for (ForkJoinTask<?> task : tasks) task.join();
+        lastPlayouts = playouts.sum();
+        lastElapsedNanos = System.nanoTime() - start;
+
+        int best = 0;
+        for (int i = 1; i < rootMoves.length; i++) {
+            if (rootVisits.get(i) > rootVisits.get(best)) best = i;
+        }
+        root = null;
+        return rootMoves[best];
+    }
+
+    // Unclaimed cells within NEIGHBOURHOOD of a claimed one, or the centre of an empty board. Random playouts
+    // rarely find a single winning cell, so the tree is told about them directly: a move that wins is the only
+    // candidate, and failing that so are the cells that stop another player winning on their next move.
+    static int[] candidateMoves(OXOPosition position, int[] scratch) {
+        int numberOfCells = position.getNumberOfCells();
+        if (numberOfCells == 0 || position.isFull()) return new int[0];
+        int rows = position.getNumberOfRows();
+        int columns = position.getNumberOfColumns();
+        if (position.getNumberOfClaimedCells() == 0) return new int[] { rows / 2 * columns + columns / 2 };
+        int count = 0;
+        for (int cell = 0; cell < numberOfCells; cell++) {
+            if (position.getOwner(cell) != OXOBoard.EMPTY) continue;
+            int row = cell / columns;
+            int col = cell % columns;
+            boolean near = false;
+            for (int r = Math.max(0, row - NEIGHBOURHOOD); r <= Math.min(rows - 1, row + NEIGHBOURHOOD) && !near; r++) {
+                for (int c = Math.max(0, col - NEIGHBOURHOOD); c <= Math.min(columns - 1, col + NEIGHBOURHOOD); c++) {
+                    if (position.getOwner(r * columns + c) != OXOBoard.EMPTY) {
+                        near = true;
+                        break;
+                    }
+                }
+            }
+            if (near) scratch[count++] = cell;
+        }
+        int mover = position.getPlayerToMove();
+        int threshold = position.getWinThreshold();
+        int blocks = 0;
+        for (int i = 0; i < count; i++) {
+            int cell = scratch[i];
+            if (position.longestLineThrough(cell, mover) >= threshold) return new int[] { cell };
+            for (int player = 0; player < position.getNumberOfPlayers(); player++) {
+                if (player != mover && position.longestLineThrough(cell, player) >= threshold) {
+                    // Blocking cells are gathered at the front, which the scan has already passed
+                    scratch[i] = scratch[blocks];
+                    scratch[blocks++] = cell;
+                    break;
+                }
+            }
+        }
+        return Arrays.copyOf(scratch, blocks > 0 ? blocks : count);
+    }
+
+    // A private tree stored as parallel arrays. Node 0 is the root and nodes 1..rootMoves.length are its
+    // children, whose statistics live in the shared root counters instead. Scores are in units of 1/players of
+    // a win, credited to the player who made the move into the node, so a draw is worth 1 to everyone.
+    private class Worker implements Runnable {
+        final SplittableRandom random;
+        final int offset;
+        final OXOPosition scratch;
+        final int[] emptyCells;
+        final int[] candidates;
+        int[] path = new int[64];
+        int[] moves = new int[256];
+        int[] players = new int[256];
+        int[] firstChild = new int[256];
+        int[] childCount = new int[256];
+        long[] visits = new long[256];
+        long[] scores = new long[256];
+        byte[] states = new byte[256];
+        int size;
+
+        Worker(SplittableRandom random, int offset) {
+            this.random = random;
+            this.offset = offset;
+            scratch = root.copy();
+            emptyCells = new int[root.getNumberOfCells()];
+            candidates = new int[root.getNumberOfCells()];
+        }
+
+        public void run() {
+            size = 1;
+            childCount[0] = -1;
+            expand(0, rootMoves);
+            long completed = 0;
+            while ((completed & 15) != 0 || System.nanoTime() < deadline) {
+                iterate();
+                completed++;
+            }
+            playouts.add(completed);
+        }
+
+        void iterate() {
+            scratch.copyFrom(root);
+            int depth = 0;
+            int node = 0;
+            while (childCount[node] > 0 && states[node] != WON && states[node] != DRAWN) {
+                node = node == 0 ? selectRootChild() : selectChild(node);
+                scratch.makeMove(moves[node]);
+                if (states[node] == UNKNOWN) states[node] = classify(moves[node]);
+                if (depth == path.length) path = Arrays.copyOf(path, depth * 2);
+                path[depth++] = node;
+            }
+            int winner;
+            if (states[node] == WON) {
+                winner = players[node];
+            } else if (states[node] == DRAWN) {
+                winner = OXOBoard.EMPTY;
+            } else {
+                if (node != 0 && nodeVisits(node) > 0 && childCount[node] < 0) expand(node, candidateMoves(scratch, candidates));
+                winner = playout();
+            }
+            int numberOfPlayers = root.getNumberOfPlayers();
+            for (int i = 0; i < depth; i++) {
+                int current = path[i];
+                long reward = winner == OXOBoard.EMPTY ? 1 : winner == players[current] ? numberOfPlayers : 0;
+                if (current <= rootMoves.length) {
+                    rootVisits.incrementAndGet(current - 1);
+                    rootScores.addAndGet(current - 1, reward);
+                } else {
+                    visits[current]++;
+                    scores[current] += reward;
+                }
+            }
+        }
+
+        byte classify(int cell) {
+            if (scratch.isWinningCell(cell)) return WON;
+            return scratch.isFull() ? DRAWN : ONGOING;
+        }
+
+        // UCB1 over the shared counters. Unvisited moves come first, with each worker starting its search for
+        // one at a different place so they don't all pile onto the same move.
+        int selectRootChild() {
+            int count = rootMoves.length;
+            long total = 0;
+            for (int i = 0; i < count; i++) {
+                int index = (i + offset) % count;
+                long childVisits = rootVisits.get(index);
+                if (childVisits == 0) return index + 1;
+                total += childVisits;
+            }
+            int best = 0;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            double logTotal = Math.log(total);
+            for (int i = 0; i < count; i++) {
+                double value = ucb(rootScores.get(i), rootVisits.get(i), logTotal);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = i;
+                }
+            }
+            return best + 1;
+        }
+
+        int selectChild(int node) {
+            int first = firstChild[node];
+            int best = first;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            double logTotal = Math.log(Math.max(1, nodeVisits(node)));
+            for (int child = first; child < first + childCount[node]; child++) {
+                if (visits[child] == 0) return child;
+                double value = ucb(scores[child], visits[child], logTotal);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        long nodeVisits(int node) {
+            return node <= rootMoves.length ? rootVisits.get(node - 1) : visits[node];
+        }
+
+        double ucb(long score, long childVisits, double logTotal) {
+            return score / (double) (childVisits * root.getNumberOfPlayers()) + EXPLORATION * Math.sqrt(logTotal / childVisits);
+        }
+
+        void expand(int node, int[] cells) {
+            if (size + cells.length > moves.length) grow(size + cells.length);
+            int player = scratch.getPlayerToMove();
+            firstChild[node] = size;
+            childCount[node] = cells.length;
+            for (int cell : cells) {
+                moves[size] = cell;
+                players[size] = player;
+                childCount[size] = -1;
+                visits[size] = 0;
+                scores[size] = 0;
+                states[size] = UNKNOWN;
+                size++;
+            }
+        }
+
+        void grow(int needed) {
+            int capacity = Math.max(needed, moves.length * 2);
+            moves = Arrays.copyOf(moves, capacity);
+            players = Arrays.copyOf(players, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            childCount = Arrays.copyOf(childCount, capacity);
+            visits = Arrays.copyOf(visits, capacity);
+            scores = Arrays.copyOf(scores, capacity);
+            states = Arrays.copyOf(states, capacity);
+        }
+
+        // Plays uniformly random moves until someone wins or the board fills, and returns the winner (or EMPTY)
+        int playout() {
+            int count = 0;
+            for (int cell = 0; cell < emptyCells.length; cell++) {
+                if (scratch.getOwner(cell) == OXOBoard.EMPTY) emptyCells[count++] = cell;
+            }
+            while (count > 0) {
+                int pick = random.nextInt(count);
+                int cell = emptyCells[pick];
+                emptyCells[pick] = emptyCells[--count];
+                int player = scratch.getPlayerToMove();
+                scratch.makeMove(cell);
+                if (scratch.isWinningCell(cell)) return player;
+            }
+            return OXOBoard.EMPTY;
+        }
+    }
+}
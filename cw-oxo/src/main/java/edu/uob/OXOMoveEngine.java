@@ -0,0 +1,9 @@
+package edu.uob;
+
+// A computer player. Engines choose a move for whoever's turn it is in the model, packed with
+// OXOController.encodeMove so it can go straight into OXOController.tryMove or applyMoves.
+public interface OXOMoveEngine {
+
+    // Returns the chosen move, or -1 if there is no unclaimed cell left
+    int chooseMove(OXOModel model);
+}
@@ -9,37 +9,88 @@ public class OXOMoveException extends Exception {
         super(message);
     }
 
+    // Subclasses build their message on demand, and can skip filling in the stack trace when it is not wanted
+    OXOMoveException(boolean writableStackTrace) {
+        super(null, null, writableStackTrace, writableStackTrace);
+    }
+
     public enum RowOrColumn { ROW, COLUMN }
 
     public static class OutsideCellRangeException extends OXOMoveException {
         @Serial private static final long serialVersionUID = 1;
+        private final RowOrColumn dimension;
+        private final int position;
 
         public OutsideCellRangeException(RowOrColumn dimension, int pos) {
-            super("Position " + pos + " is out of range for " + dimension.name());
+            this(dimension, pos, true);
+        }
+
+        OutsideCellRangeException(RowOrColumn dimension, int pos, boolean writableStackTrace) {
+            super(writableStackTrace);
+            this.dimension = dimension;
+            position = pos;
+        }
+
+        public String getMessage() {
+            return "Position " + position + " is out of range for " + dimension.name();
         }
     }
 
     public static class InvalidIdentifierLengthException extends OXOMoveException {
         @Serial private static final long serialVersionUID = 1;
+        private final int length;
 
         public InvalidIdentifierLengthException(int length) {
-            super("Identifier of size " + length + " is invalid");
+            this(length, true);
+        }
+
+        InvalidIdentifierLengthException(int length, boolean writableStackTrace) {
+            super(writableStackTrace);
+            this.length = length;
+        }
+
+        public String getMessage() {
+            return "Identifier of size " + length + " is invalid";
         }
     }
 
     public static class InvalidIdentifierCharacterException extends OXOMoveException {
         @Serial private static final long serialVersionUID = 1;
+        private final RowOrColumn problemDimension;
+        private final char character;
 
         public InvalidIdentifierCharacterException(RowOrColumn problemDimension, char character) {
-            super(character + " is not a valid character for a " + problemDimension.name());
+            this(problemDimension, character, true);
+        }
+
+        InvalidIdentifierCharacterException(RowOrColumn problemDimension, char character, boolean writableStackTrace) {
+            super(writableStackTrace);
+            this.problemDimension = problemDimension;
+            this.character = character;
+        }
+
+        public String getMessage() {
+            return character + " is not a valid character for a " + problemDimension.name();
         }
     }
 
     public static class CellAlreadyTakenException extends OXOMoveException {
         @Serial private static final long serialVersionUID = 1;
+        private final int row;
+        private final int column;
 
         public CellAlreadyTakenException(int row, int column) {
-            super("Cell [" + row + "," + column + "] has already been claimed");
+            this(row, column, true);
+        }
+
+        CellAlreadyTakenException(int row, int column, boolean writableStackTrace) {
+            super(writableStackTrace);
+            this.row = row;
+            this.column = column;
+        }
+
+        public String getMessage() {
+            return "Cell [" + row + "," + column + "] has already been claimed";
         }
     }
 }
@@ -0,0 +1,19 @@
+package edu.uob;
+
+// Outcome of OXOController.tryMove - the first four mean the command was accepted, the rest match an OXOMoveException
+public enum OXOMoveResult {
+    CLAIMED,
+    WON,
+    DRAWN,
+    GAME_OVER,
+    INVALID_LENGTH,
+    INVALID_ROW_CHARACTER,
+    INVALID_COLUMN_CHARACTER,
+    ROW_OUT_OF_RANGE,
+    COLUMN_OUT_OF_RANGE,
+    CELL_TAKEN;
+
+    public boolean isRejected() {
+        return ordinal() >= INVALID_LENGTH.ordinal();
+    }
+}
@@ -0,0 +1,203 @@
+package edu.uob;
+
+import java.util.Arrays;
+
+// Compact working copy of a game for move engines: one byte per cell (player number + 1, or 0 when unclaimed),
+// indexed row * columns + col. Moves are made and unmade in place and the Zobrist hash is kept up to date with
+// each one, so a search never needs to copy the board.
+public class OXOPosition {
+
+    private static final int[][] DIRECTIONS = { {0, 1}, {1, 0}, {1, 1}, {1, -1} };
+
+    private final int numberOfRows;
+    private final int numberOfColumns;
+    private final int winThreshold;
+    private final int numberOfPlayers;
+    private final byte[] cells;
+    private int playerToMove;
+    private int claimedCells;
+    private long hash;
+
+    public OXOPosition(OXOModel model) {
+        this(model.getNumberOfRows(), model.getNumberOfColumns(), model.getWinThreshold(), model.getNumberOfPlayers());
+        loadCells(model);
+    }
+
+    public OXOPosition(int numberOfRows, int numberOfColumns, int winThreshold, int numberOfPlayers) {
+        this.numberOfRows = numberOfRows;
+        this.numberOfColumns = numberOfColumns;
+        this.winThreshold = Math.max(1, winThreshold);
+        this.numberOfPlayers = numberOfPlayers;
+        cells = new byte[numberOfRows * numberOfColumns];
+        hash = shapeKey() ^ turnKey(0);
+    }
+
+    private OXOPosition(OXOPosition original) {
+        numberOfRows = original.numberOfRows;
+        numberOfColumns = original.numberOfColumns;
+        winThreshold = original.winThreshold;
+        numberOfPlayers = original.numberOfPlayers;
+        cells = original.cells.clone();
+        playerToMove = original.playerToMove;
+        claimedCells = original.claimedCells;
+        hash = original.hash;
+    }
+
+    public OXOPosition copy() {
+        return new OXOPosition(this);
+    }
+
+    // Overwrites this position with another of the same shape, without allocating
+    public void copyFrom(OXOPosition other) {
+        System.arraycopy(other.cells, 0, cells, 0, cells.length);
+        playerToMove = other.playerToMove;
+        claimedCells = other.claimedCells;
+        hash = other.hash;
+    }
+
+    // Overwrites this position with the state of a model of the same shape, without allocating
+    public void load(OXOModel model) {
+        if (model.getNumberOfRows() != numberOfRows || model.getNumberOfColumns() != numberOfColumns) {
+            throw new IllegalArgumentException("Model is " + model.getNumberOfRows() + "x" + model.getNumberOfColumns()
+                    + " but the position is " + numberOfRows + "x" + numberOfColumns);
+        }
+        Arrays.fill(cells, (byte) 0);
+        claimedCells = 0;
+        hash = shapeKey() ^ turnKey(0);
+        playerToMove = 0;
+        loadCells(model);
+    }
+
+    private void loadCells(OXOModel model) {
+        for (int row = 0; row < numberOfRows; row++) {
+            for (int col = 0; col < numberOfColumns; col++) {
+                int owner = model.getCellOwnerNumber(row, col);
+                if (owner != OXOBoard.EMPTY) claim(row * numberOfColumns + col, owner);
+            }
+        }
+        passTurn(model.getCurrentPlayerNumber());
+    }
+
+    public int getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    public int getNumberOfColumns() {
+        return numberOfColumns;
+    }
+
+    public int getNumberOfCells() {
+        return cells.length;
+    }
+
+    public int getWinThreshold() {
+        return winThreshold;
+    }
+
+    public int getNumberOfPlayers() {
+        return numberOfPlayers;
+    }
+
+    public int getPlayerToMove() {
+        return playerToMove;
+    }
+
+    public int getNumberOfClaimedCells() {
+        return claimedCells;
+    }
+
+    public boolean isFull() {
+        return claimedCells == cells.length;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    public int getOwner(int cell) {
+        return cells[cell] - 1;
+    }
+
+    public void setPlayerToMove(int player) {
+        passTurn(player);
+    }
+
+    // Claims a cell for the player to move and passes the turn on
+    public void makeMove(int cell) {
+        claim(cell, playerToMove);
+        passTurn(playerToMove + 1 == numberOfPlayers ? 0 : playerToMove + 1);
+    }
+
+    public void unmakeMove(int cell) {
+        passTurn(playerToMove == 0 ? numberOfPlayers - 1 : playerToMove - 1);
+        hash ^= cellKey(cell, playerToMove);
+        cells[cell] = 0;
+        claimedCells--;
+    }
+
+    // True if the owner of the cell has a line of at least winThreshold through it
+    public boolean isWinningCell(int cell) {
+        return longestLineThrough(cell, getOwner(cell)) >= winThreshold;
+    }
+
+    // Longest run of the player's cells through this cell in any direction, counting the cell itself
+    public int longestLineThrough(int cell, int player) {
+        int row = cell / numberOfColumns;
+        int col = cell % numberOfColumns;
+        int longest = 0;
+        for (int[] direction : DIRECTIONS) {
+            int length = 1 + countRun(row, col, direction[0], direction[1], player) + countRun(row, col, -direction[0], -direction[1], player);
+            longest = Math.max(longest, length);
+        }
+        return longest;
+    }
+
+    private int countRun(int row, int col, int rowStep, int colStep, int player) {
+        int count = 0;
+        byte owner = (byte) (player + 1);
+        row += rowStep;
+        col += colStep;
+        while (count < winThreshold && row >= 0 && row < numberOfRows && col >= 0 && col < numberOfColumns
+                && cells[row * numberOfColumns + col] == owner) {
+            count++;
+            row += rowStep;
+            col += colStep;
+        }
+        return count;
+    }
+
+    private void passTurn(int player) {
+        hash ^= turnKey(playerToMove) ^ turnKey(player);
+        playerToMove = player;
+    }
+
+    private void claim(int cell, int player) {
+        cells[cell] = (byte) (player + 1);
+        hash ^= cellKey(cell, player);
+        claimedCells++;
+    }
+
+    // Zobrist keys are computed rather than looked up, so a position on a huge board doesn't need a key table
+    // as big as the board. Mixing the column count in keeps cells of differently shaped boards apart.
+    private long cellKey(int cell, int player) {
+        return mix(((long) numberOfColumns << 40) ^ ((long) cell * numberOfPlayers + player));
+    }
+
+    private long turnKey(int player) {
+        return mix(-1L - player);
+    }
+
+    // Part of every hash, so the same cells on boards with a different number of rows or a different threshold,
+    // which play out differently, hash differently too
+    private long shapeKey() {
+        return mix(Long.MIN_VALUE ^ ((long) numberOfRows << 32) ^ winThreshold);
+    }
+
+    // The SplitMix64 finaliser
+    private static long mix(long index) {
+        long z = (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
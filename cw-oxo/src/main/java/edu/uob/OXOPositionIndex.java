@@ -0,0 +1,85 @@
+package edu.uob;
+
+// Numbers every arrangement of claimed cells that the turn order allows (the first player has claimed as many
+// cells as anyone, the last as few) from 0 to size() - 1, grouped by the number of claimed cells. Within a group,
+// arrangements are ranked in lexicographic order of their cells using multinomial coefficients, so an index is
+// as dense as it can be without knowing which arrangements can actually come up in a game.
+public class OXOPositionIndex {
+
+    private final int numberOfCells;
+    private final int numberOfPlayers;
+    // Cell contents are ranked as symbols, 0 for unclaimed and player + 1 for claimed. A count of each symbol
+    // is packed into one int as digits in base (cells + 1), with symbol s at place value weights[s].
+    private final int[] weights;
+    private final long[] arrangements;
+    private final int[] groupCounts;
+    private final long[] groupOffsets;
+
+    public OXOPositionIndex(int numberOfCells, int numberOfPlayers) {
+        if (numberOfCells < 1 || numberOfPlayers < 1) throw new IllegalArgumentException("Need at least one cell and one player");
+        this.numberOfCells = numberOfCells;
+        this.numberOfPlayers = numberOfPlayers;
+        int symbols = numberOfPlayers + 1;
+        weights = new int[symbols];
+        long tableSize = 1;
+        for (int s = symbols - 1; s >= 0; s--) {
+            weights[s] = (int) tableSize;
+            tableSize *= numberOfCells + 1;
+            if (tableSize > 1 << 24) throw new IllegalArgumentException("Board is too big to index");
+        }
+        arrangements = new long[(int) tableSize];
+        for (int counts = 0; counts < arrangements.length; counts++) arrangements[counts] = countArrangements(counts);
+        groupCounts = new int[numberOfCells + 1];
+        groupOffsets = new long[numberOfCells + 2];
+        for (int claimed = 0; claimed <= numberOfCells; claimed++) {
+            int counts = (numberOfCells - claimed) * weights[0];
+            for (int player = 0; player < numberOfPlayers; player++) {
+                counts += (claimed + numberOfPlayers - 1 - player) / numberOfPlayers * weights[player + 1];
+            }
+            groupCounts[claimed] = counts;
+            groupOffsets[claimed + 1] = Math.addExact(groupOffsets[claimed], arrangements[counts]);
+        }
+    }
+
+    public long size() {
+        return groupOffsets[numberOfCells + 1];
+    }
+
+    // Rank of the position after moving its cells by a symmetry from OXOSymmetry, or -1 if the turn order
+    // can't produce it
+    public long rank(OXOPosition position, int[] sources) {
+        int claimed = position.getNumberOfClaimedCells();
+        int counts = groupCounts[claimed];
+        long rank = groupOffsets[claimed];
+        for (int i = 0; i < numberOfCells; i++) {
+            int symbol = position.getOwner(sources[i]) + 1;
+            for (int s = 0; s < symbol; s++) {
+                if (digit(counts, s) > 0) rank += arrangements[counts - weights[s]];
+            }
+            if (digit(counts, symbol) == 0) return -1;
+            counts -= weights[symbol];
+        }
+        return rank;
+    }
+
+    private int digit(int counts, int symbol) {
+        return counts / weights[symbol] % (numberOfCells + 1);
+    }
+
+    // Multinomial coefficient: the ways of laying out the symbol counts along that many cells
+    private long countArrangements(int counts) {
+        int total = 0;
+        for (int s = 0; s <= numberOfPlayers; s++) total += digit(counts, s);
+        if (total > numberOfCells) return 0;
+        long result = 1;
+        int placed = 0;
+        for (int s = 0; s <= numberOfPlayers; s++) {
+            for (int i = 1; i <= digit(counts, s); i++) {
+                placed++;
+                // C(placed, i) built up one factor at a time stays exact
+                result = Math.multiplyExact(result, placed) / i;
+            }
+        }
+        return result;
+    }
+}
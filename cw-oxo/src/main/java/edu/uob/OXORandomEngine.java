@@ -0,0 +1,27 @@
+package edu.uob;
+
+import java.util.SplittableRandom;
+
+// Plays any unclaimed cell, each equally likely. The baseline opponent for the simulation harness.
+public class OXORandomEngine implements OXOMoveEngine {
+
+    private final SplittableRandom random;
+
+    public OXORandomEngine(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    public int chooseMove(OXOModel model) {
+        int rows = model.getNumberOfRows();
+        int columns = model.getNumberOfColumns();
+        int unclaimed = rows * columns - model.getNumberOfClaimedCells();
+        if (unclaimed <= 0) return -1;
+        int skip = random.nextInt(unclaimed);
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                if (model.getCellOwnerNumber(row, col) == OXOBoard.EMPTY && skip-- == 0) return OXOController.encodeMove(row, col);
+            }
+        }
+        return -1;
+    }
+}
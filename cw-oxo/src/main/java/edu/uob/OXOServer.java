@@ -0,0 +1,319 @@
+package edu.uob;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+// Headless game server: a few selector threads multiplex every connection, and each connection speaks the
+// line protocol of OXOSessionRegistry (CREATE/JOIN) and OXOGameSession (moves, RESIZE, THRESHOLD, RESET, BOARD).
+// Several connections can join the same game from different selector threads, so commands on a session run
+// while holding its monitor. Given a journal directory as its third argument, the server recovers the games in it
+// on startup and journals every change from then on.
+public class OXOServer implements Closeable {
+
+    private static final int MAX_LINE_LENGTH = 1024;
+
+    private final OXOSessionRegistry registry;
+    private final ServerSocketChannel serverChannel;
+    private final EventLoop[] loops;
+    private final Syncer syncer = new Syncer();
+    private volatile boolean running;
+    private int nextLoop;
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        OXOSessionRegistry registry = new OXOSessionRegistry(new OXOSessionPool(4096));
+        if (args.length > 2) {
+            long replayed = OXOJournal.open(Path.of(args[2]), 1 << 20).recover(registry);
+            System.out.println("Recovered " + registry.size() + " games from " + replayed + " journal records");
+        }
+        OXOServer server = new OXOServer(port, threads, registry);
+        server.start();
+        System.out.println("OXO server listening on port " + server.getPort() + " with " + threads + " threads");
+    }
+
+    public OXOServer(int port, int numberOfThreads) throws IOException {
+        this(port, numberOfThreads, new OXOSessionRegistry());
+    }
+
+    public OXOServer(int port, int numberOfThreads, OXOSessionRegistry registry) throws IOException {
+        this.registry = registry;
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        loops = new EventLoop[Math.max(1, numberOfThreads)];
+        for (int i = 0; i < loops.length; i++) loops[i] = new EventLoop(i);
+        serverChannel.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public OXOSessionRegistry getRegistry() {
+        return registry;
+    }
+
+    public void start() {
+        running = true;
+        for (EventLoop loop : loops) loop.thread.start();
+        syncer.thread.start();
+    }
+
+    public void close() throws IOException {
+        running = false;
+        for (EventLoop loop : loops) loop.selector.wakeup();
+        for (EventLoop loop : loops) {
+            try {
+                loop.thread.join();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        syncer.thread.interrupt();
+        try {
+            syncer.thread.join();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        serverChannel.close();
+    }
+
+    private class EventLoop implements Runnable {
+        final Selector selector;
+        final Thread thread;
+        final Queue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+        // Connections whose replies the syncer has made durable
+        final Queue<Connection> synced = new ConcurrentLinkedQueue<>();
+
+        EventLoop(int number) throws IOException {
+            selector = Selector.open();
+            thread = new Thread(this, "oxo-server-" + number);
+        }
+
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    registerAccepted();
+                    writeSynced();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        try {
+                            if (!key.isValid()) continue;
+                            if (key.isAcceptable()) accept();
+                            else if (key.isReadable()) read(key);
+                            else if (key.isWritable()) write(key);
+                        } catch (IOException exception) {
+                            disconnect(key);
+                        } catch (RuntimeException exception) {
+                            // A command that blows up loses its own connection, not everyone else's on this loop
+                            System.out.println("Closing connection after " + exception);
+                            if (key.attachment() != null) disconnect(key);
+                        }
+                    }
+                }
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() != null) disconnect(key);
+                }
+                selector.close();
+            } catch (IOException exception) {
+                System.out.println("Server loop failed: " + exception);
+            }
+        }
+
+        void registerAccepted() throws IOException {
+            SocketChannel channel;
+            while ((channel = accepted.poll()) != null) {
+                Connection connection = new Connection(channel, this);
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            }
+        }
+
+        void writeSynced() {
+            Connection connection;
+            while ((connection = synced.poll()) != null) {
+                if (!connection.key.isValid()) continue;
+                try {
+                    if (connection.syncFailed) disconnect(connection.key);
+                    else write(connection.key);
+                } catch (IOException exception) {
+                    disconnect(connection.key);
+                }
+            }
+        }
+
+        // Only the first loop accepts, then hands each connection to the loops in turn
+        void accept() throws IOException {
+            SocketChannel channel;
+            while ((channel = serverChannel.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                EventLoop loop = loops[nextLoop++ % loops.length];
+                loop.accepted.add(channel);
+                if (loop != this) loop.selector.wakeup();
+            }
+            registerAccepted();
+        }
+
+        void read(SelectionKey key) throws IOException {
+            Connection connection = (Connection) key.attachment();
+            if (connection.channel.read(connection.input) < 0) {
+                disconnect(key);
+                return;
+            }
+            connection.handleLines();
+            // Replies only go out once the changes behind them are durable. The syncer waits for the disk so this
+            // loop can get on with other connections; this one stops reading until its replies have gone.
+            OXOJournal journal = registry.getJournal();
+            if (journal != null && journal.hasUnsyncedRecords()) {
+                key.interestOps(0);
+                syncer.waiting.add(connection);
+                return;
+            }
+            write(key);
+        }
+
+        void write(SelectionKey key) throws IOException {
+            Connection connection = (Connection) key.attachment();
+            connection.output.flip();
+            connection.channel.write(connection.output);
+            boolean pending = connection.output.hasRemaining();
+            connection.output.compact();
+            key.interestOps(pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
+        void disconnect(SelectionKey key) {
+            Connection connection = (Connection) key.attachment();
+            key.cancel();
+            if (connection.session != null) registry.release(connection.session);
+            connection.session = null;
+            try {
+                connection.channel.close();
+            } catch (IOException ignored) {
+                // Already gone
+            }
+        }
+    }
+
+    // Makes journalled changes durable off the selector threads. Connections that ask while a sync is running
+    // share the next one.
+    private class Syncer implements Runnable {
+        final BlockingQueue<Connection> waiting = new LinkedBlockingQueue<>();
+        final Thread thread = new Thread(this, "oxo-server-sync");
+
+        public void run() {
+            List<Connection> batch = new ArrayList<>();
+            try {
+                while (true) {
+                    batch.add(waiting.take());
+                    waiting.drainTo(batch);
+                    boolean failed = false;
+                    try {
+                        OXOJournal journal = registry.getJournal();
+                        if (journal != null) journal.sync();
+                    } catch (IOException exception) {
+                        System.out.println("Journal sync failed: " + exception);
+                        failed = true;
+                    }
+                    for (Connection connection : batch) {
+                        connection.syncFailed = failed;
+                        connection.loop.synced.add(connection);
+                        connection.loop.selector.wakeup();
+                    }
+                    batch.clear();
+                }
+            } catch (InterruptedException exception) {
+                // The server is closing
+            }
+        }
+    }
+
+    private class Connection {
+        final SocketChannel channel;
+        final EventLoop loop;
+        SelectionKey key;
+        // Set by the syncer if the replies waiting to go out could not be made durable
+        volatile boolean syncFailed;
+        final ByteBuffer input = ByteBuffer.allocate(MAX_LINE_LENGTH);
+        ByteBuffer output = ByteBuffer.allocate(256);
+        final StringBuilder line = new StringBuilder();
+        final StringBuilder reply = new StringBuilder();
+        OXOGameSession session;
+
+        Connection(SocketChannel channel, EventLoop loop) {
+            this.channel = channel;
+            this.loop = loop;
+        }
+
+        void handleLines() {
+            input.flip();
+            int start = 0;
+            for (int i = 0; i < input.limit(); i++) {
+                if (input.get(i) != '\n') continue;
+                line.setLength(0);
+                for (int j = start; j < i; j++) {
+                    char c = (char) (input.get(j) & 0xFF);
+                    if (c != '\r') line.append(c);
+                }
+                handleLine();
+                start = i + 1;
+            }
+            input.position(start);
+            input.compact();
+            if (!input.hasRemaining()) {
+                input.clear();
+                reply.setLength(0);
+                reply.append("ERROR Line is longer than ").append(MAX_LINE_LENGTH).append(" bytes");
+                send();
+            }
+        }
+
+        void handleLine() {
+            reply.setLength(0);
+            if (OXOSessionRegistry.isLobbyCommand(line)) {
+                OXOGameSession previous = session;
+                OXOGameSession next = registry.execute(line, reply);
+                if (next != null) {
+                    session = next;
+                    if (previous != null) registry.release(previous);
+                }
+            } else if (session == null) {
+                reply.append("ERROR Send CREATE or JOIN first");
+            } else {
+                synchronized (session) {
+                    session.execute(line, reply);
+                }
+            }
+            send();
+        }
+
+        void send() {
+            if (output.remaining() < reply.length() + 1) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(output.capacity() * 2, output.position() + reply.length() + 1));
+                output.flip();
+                larger.put(output);
+                output = larger;
+            }
+            for (int i = 0; i < reply.length(); i++) output.put((byte) reply.charAt(i));
+            output.put((byte) '\n');
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package edu.uob;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+// Runs every command for one game on that game's own virtual thread. The model and controller are only ever
+// touched by that thread, so the plain sequential controller code needs no locks; other threads post lines
+// to the mailbox and wait for the reply.
+public class OXOSessionLoop implements AutoCloseable {
+
+    private record Request(String line, CompletableFuture<String> reply) {}
+
+    private static final Request STOP = new Request(null, null);
+
+    private final OXOGameSession session;
+    private final BlockingQueue<Request> mailbox = new LinkedBlockingQueue<>();
+    private final Thread thread;
+
+    public OXOSessionLoop(OXOGameSession session) {
+        this.session = session;
+        thread = Thread.ofVirtual().name("oxo-session-" + session.getId()).start(this::run);
+    }
+
+    public OXOGameSession getSession() {
+        return session;
+    }
+
+    // Blocks the calling thread until the session thread has run the command
+    public String execute(String line) throws InterruptedException {
+        CompletableFuture<String> reply = new CompletableFuture<>();
+        mailbox.add(new Request(line, reply));
+        try {
+            return reply.get();
+        } catch (ExecutionException exception) {
+            throw new IllegalStateException("Session " + session.getId() + " failed", exception.getCause());
+        }
+    }
+
+    public void close() {
+        mailbox.add(STOP);
+    }
+
+    public void join() throws InterruptedException {
+        thread.join();
+    }
+
+    private void run() {
+        StringBuilder reply = new StringBuilder();
+        try {
+            for (Request request = mailbox.take(); request != STOP; request = mailbox.take()) {
+                reply.setLength(0);
+                try {
+                    session.execute(request.line(), reply);
+                    request.reply().complete(reply.toString());
+                } catch (RuntimeException exception) {
+                    request.reply().completeExceptionally(exception);
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package edu.uob;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Keeps ended games to host new ones, so a lobby that starts and ends games all day reuses their models, boards,
+// controllers and player lists instead of allocating new ones each time. Games are kept by their players' letters,
+// since those are fixed for a model's life; anything else (size, threshold) is reset in constant time when the
+// game is handed out again. At most maximumIdle games are kept, and a game something is still listening to is
+// never kept. Safe to share between threads.
+public class OXOSessionPool {
+
+    private final int maximumIdle;
+    private final ConcurrentHashMap<String, ConcurrentLinkedDeque<OXOGameSession>> idle = new ConcurrentHashMap<>();
+    private final AtomicInteger numberOfIdle = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder discards = new LongAdder();
+
+    public OXOSessionPool(int maximumIdle) {
+        if (maximumIdle < 0) throw new IllegalArgumentException("Pool size can't be negative");
+        this.maximumIdle = maximumIdle;
+    }
+
+    // A game with a fresh board and the given id: a recycled one if there is one with the same players
+    public OXOGameSession acquire(long id, int numberOfRows, int numberOfColumns, int winThreshold, CharSequence letters) {
+        ConcurrentLinkedDeque<OXOGameSession> sessions = idle.get(letters.toString());
+        OXOGameSession session = sessions == null ? null : sessions.pollFirst();
+        if (session == null) {
+            misses.increment();
+            OXOModel model = new OXOModel(numberOfRows, numberOfColumns, winThreshold);
+            for (int i = 0; i < letters.length(); i++) model.addPlayer(new OXOPlayer(letters.charAt(i)));
+            return new OXOGameSession(id, model);
+        }
+        numberOfIdle.decrementAndGet();
+        hits.increment();
+        session.recycle(id, numberOfRows, numberOfColumns, winThreshold);
+        return session;
+    }
+
+    // Takes back a game that has ended. Returns false if it wasn't kept.
+    public boolean release(OXOGameSession session) {
+        if (session.getModel().hasListeners()) {
+            discards.increment();
+            return false;
+        }
+        if (numberOfIdle.incrementAndGet() > maximumIdle) {
+            numberOfIdle.decrementAndGet();
+            discards.increment();
+            return false;
+        }
+        // Most recently used first, while its memory is still likely to be cached
+        idle.computeIfAbsent(lettersOf(session.getModel()), letters -> new ConcurrentLinkedDeque<>()).addFirst(session);
+        return true;
+    }
+
+    public int getNumberOfIdleSessions() {
+        return numberOfIdle.get();
+    }
+
+    public int getMaximumIdle() {
+        return maximumIdle;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    // Games handed back but not kept, because the pool was full or something was still listening to them
+    public long getDiscards() {
+        return discards.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public String toString() {
+        return String.format("%d idle of %d, %d hits, %d misses (%.1f%% hit rate), %d discarded",
+                getNumberOfIdleSessions(), maximumIdle, getHits(), getMisses(), getHitRate() * 100, getDiscards());
+    }
+
+    private static String lettersOf(OXOModel model) {
+        StringBuilder letters = new StringBuilder(model.getNumberOfPlayers());
+        for (int i = 0; i < model.getNumberOfPlayers(); i++) letters.append(model.getPlayerByNumber(i).getPlayingLetter());
+        return letters.toString();
+    }
+}
@@ -0,0 +1,137 @@
+package edu.uob;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Every game hosted by a server, plus the two lobby commands that pick a game for a connection:
+//   CREATE <rows> <cols> <threshold> <letters>   start a new game, e.g. CREATE 3 3 3 XO
+//   JOIN <id>                                    play or watch an existing game
+public class OXOSessionRegistry {
+
+    private final ConcurrentHashMap<Long, OXOGameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private volatile OXOJournal journal;
+    // Shared by every game's controller
+    private final OXOMetrics metrics = new OXOMetrics();
+    private final OXOSessionPool pool;
+
+    public OXOSessionRegistry() {
+        this(null);
+    }
+
+    // Games that end once their last connection leaves go back to the pool, if there is one, to host new games
+    public OXOSessionRegistry(OXOSessionPool pool) {
+        this.pool = pool;
+    }
+
+    public OXOGameSession create(int numberOfRows, int numberOfColumns, int winThreshold, CharSequence letters) {
+        return create(numberOfRows, numberOfColumns, winThreshold, letters, false);
+    }
+
+    // A creator is attached before the game can be found, so a JOIN that gets in first and leaves again can't end it
+    private OXOGameSession create(int numberOfRows, int numberOfColumns, int winThreshold, CharSequence letters, boolean attach) {
+        OXOGameSession.checkSize(numberOfRows, "Rows");
+        OXOGameSession.checkSize(numberOfColumns, "Columns");
+        OXOGameSession.checkSize(winThreshold, "Threshold");
+        if (letters.length() < 1) throw new IllegalArgumentException("A game needs at least one player");
+        // Everything that can refuse the game is checked before a session is taken from the pool
+        OXOJournal current = journal;
+        if (current != null) OXOJournal.checkLetters(letters);
+        OXOGameSession session = newSession(nextId.getAndIncrement(), numberOfRows, numberOfColumns, winThreshold, letters);
+        if (current != null) {
+            try {
+                current.appendCreate(session.getId(), numberOfRows, numberOfColumns, winThreshold, letters);
+            } catch (RuntimeException exception) {
+                if (pool != null) pool.release(session);
+                throw exception;
+            }
+            session.setJournal(current);
+        }
+        if (attach) session.attach(session.getId());
+        sessions.put(session.getId(), session);
+        return session;
+    }
+
+    // Puts back a game from the journal under its old id, without journalling it again
+    void restore(long id, int numberOfRows, int numberOfColumns, int winThreshold, CharSequence letters) {
+        sessions.put(id, newSession(id, numberOfRows, numberOfColumns, winThreshold, letters));
+        nextId.accumulateAndGet(id + 1, Math::max);
+    }
+
+    private OXOGameSession newSession(long id, int numberOfRows, int numberOfColumns, int winThreshold, CharSequence letters) {
+        OXOGameSession session;
+        if (pool != null) {
+            session = pool.acquire(id, numberOfRows, numberOfColumns, winThreshold, letters);
+        } else {
+            OXOModel model = new OXOModel(numberOfRows, numberOfColumns, winThreshold);
+            for (int i = 0; i < letters.length(); i++) model.addPlayer(new OXOPlayer(letters.charAt(i)));
+            session = new OXOGameSession(id, model);
+        }
+        session.getController().setMetrics(metrics);
+        return session;
+    }
+
+    public OXOSessionPool getPool() {
+        return pool;
+    }
+
+    public OXOMetrics getMetrics() {
+        return metrics;
+    }
+
+    public OXOJournal getJournal() {
+        return journal;
+    }
+
+    // From now on every game created here, and every change to the games already here, is journalled
+    public void setJournal(OXOJournal journal) {
+        this.journal = journal;
+        for (OXOGameSession session : sessions.values()) session.setJournal(journal);
+    }
+
+    public OXOGameSession get(long id) {
+        return sessions.get(id);
+    }
+
+    public void remove(OXOGameSession session) {
+        OXOJournal current = journal;
+        if (sessions.remove(session.getId(), session) && current != null) current.append(OXOJournal.CLOSE, session.getId(), 0, 0);
+    }
+
+    // Called when a connection leaves a session it created or joined - the last one out ends the game
+    public boolean release(OXOGameSession session) {
+        if (session.detach() > 0) return false;
+        remove(session);
+        if (pool != null) pool.release(session);
+        return true;
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public static boolean isLobbyCommand(CharSequence line) {
+        return OXOGameSession.isKeyword(line, "CREATE") || OXOGameSession.isKeyword(line, "JOIN");
+    }
+
+    // Runs a lobby command and returns the session it attached the caller to, or null after appending an error
+    public OXOGameSession execute(CharSequence line, StringBuilder reply) {
+        try {
+            OXOGameSession session;
+            if (OXOGameSession.isKeyword(line, "CREATE")) {
+                String[] arguments = OXOGameSession.arguments(line, 4);
+                session = create(Integer.parseInt(arguments[0]), Integer.parseInt(arguments[1]), Integer.parseInt(arguments[2]), arguments[3], true);
+            } else {
+                long id = Long.parseLong(OXOGameSession.arguments(line, 1)[0]);
+                session = get(id);
+                // A game that has just ended may still be in the map for a moment, or already hosting another game
+                if (session == null || session.attach(id) < 0) throw new IllegalArgumentException("No game with id " + id);
+            }
+            reply.append("GAME ").append(session.getId());
+            return session;
+        } catch (IllegalArgumentException exception) {
+            reply.append("ERROR ").append(exception.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package edu.uob;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.LongFunction;
+
+// Headless self-play for tuning board sizes and thresholds: plays complete games between computer strategies
+// through OXOController, with the games shared out across a pool of workers. Each worker owns one model and one
+// engine per strategy and restarts the same board for every game. Strategies take turns to move first (game g
+// seats strategy (seat + g) % strategies), so the results can be split by who opened.
+public class OXOSimulation {
+
+    private static final String LETTERS = "XOABCDEFGHIJKLMNPQRSTUVWYZ";
+
+    private final ForkJoinPool pool;
+    private final List<String> names = new ArrayList<>();
+    private final List<LongFunction<? extends OXOMoveEngine>> strategies = new ArrayList<>();
+
+    public static void main(String[] args) {
+        if (args.length < 4) {
+            System.out.println("Usage: OXOSimulation <games> <workers> <strategy,strategy,...> <rows>x<columns>/<threshold> ...");
+            System.out.println("Strategies: random, greedy");
+            return;
+        }
+        long numberOfGames = Long.parseLong(args[0]);
+        ForkJoinPool pool = new ForkJoinPool(Integer.parseInt(args[1]));
+        try {
+            OXOSimulation simulation = new OXOSimulation(pool);
+            for (String name : args[2].split(",")) {
+                switch (name) {
+                    case "random" -> simulation.addStrategy(name, OXORandomEngine::new);
+                    case "greedy" -> simulation.addStrategy(name, OXOGreedyEngine::new);
+                    default -> throw new IllegalArgumentException("Unknown strategy " + name);
+                }
+            }
+            for (int i = 3; i < args.length; i++) {
+                String[] shape = args[i].split("[x/]");
+                Result result = simulation.run(Integer.parseInt(shape[0]), Integer.parseInt(shape[1]), Integer.parseInt(shape[2]), numberOfGames, i);
+                System.out.println(result);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public OXOSimulation(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // Strategies play in the order they are added. The factory is given a seed and called once per worker.
+    public OXOSimulation addStrategy(String name, LongFunction<? extends OXOMoveEngine> factory) {
+        if (names.size() == LETTERS.length()) throw new IllegalArgumentException("Too many strategies");
+        names.add(name);
+        strategies.add(factory);
+        return this;
+    }
+
+    public int getNumberOfWorkers() {
+        return Math.max(1, pool.getParallelism());
+    }
+
+    public Result run(int numberOfRows, int numberOfColumns, int winThreshold, long numberOfGames, long seed) {
+        if (strategies.size() < 2) throw new IllegalStateException("A simulation needs at least two strategies");
+        SplittableRandom seeds = new SplittableRandom(seed);
+        Result total = new Result(this, numberOfRows, numberOfColumns, winThreshold);
+        long start = System.nanoTime();
+        List<ForkJoinTask<Result>> tasks = new ArrayList<>();
+        int numberOfWorkers = (int) Math.max(1, Math.min(getNumberOfWorkers(), numberOfGames));
+        for (int i = 0; i < numberOfWorkers; i++) {
+            long firstSeed = seeds.nextLong();
+            int worker = i;
+            tasks.add(pool.submit(() -> play(numberOfRows, numberOfColumns, winThreshold, worker, numberOfWorkers, numberOfGames, firstSeed)));
+        }
+        for (ForkJoinTask<Result> task : tasks) total.add(task.join());
+        total.elapsedNanos = System.nanoTime() - start;
+        return total;
+    }
+
+    // Plays games worker, worker + numberOfWorkers, ... on one reused board
+    private Result play(int numberOfRows, int numberOfColumns, int winThreshold, int worker, int numberOfWorkers, long numberOfGames, long seed) {
+        int numberOfStrategies = strategies.size();
+        OXOModel model = new OXOModel(numberOfRows, numberOfColumns, winThreshold);
+        for (int i = 0; i < numberOfStrategies; i++) model.addPlayer(new OXOPlayer(LETTERS.charAt(i)));
+        OXOController controller = new OXOController(model);
+        OXOMoveEngine[] engines = new OXOMoveEngine[numberOfStrategies];
+        SplittableRandom seeds = new SplittableRandom(seed);
+        for (int i = 0; i < numberOfStrategies; i++) engines[i] = strategies.get(i).apply(seeds.nextLong());
+
+        Result result = new Result(this, numberOfRows, numberOfColumns, winThreshold);
+        for (long game = worker; game < numberOfGames; game += numberOfWorkers) {
+            int opener = (int) (game % numberOfStrategies);
+            controller.restart();
+            OXOMoveResult outcome = OXOMoveResult.CLAIMED;
+            while (outcome == OXOMoveResult.CLAIMED) {
+                int strategy = (model.getCurrentPlayerNumber() + opener) % numberOfStrategies;
+                int move = engines[strategy].chooseMove(model);
+                if (move < 0) break;
+                outcome = controller.tryMove(OXOController.decodeRow(move), OXOController.decodeColumn(move));
+                if (outcome.isRejected()) throw new IllegalStateException(names.get(strategy) + " played an illegal move: " + outcome);
+                result.moves++;
+            }
+            int winner = model.getWinner() == null ? numberOfStrategies : (model.getPlayerNumber(model.getWinner()) + opener) % numberOfStrategies;
+            result.outcomes[opener][winner]++;
+            result.games++;
+        }
+        return result;
+    }
+
+    public static class Result {
+        private final List<String> names;
+        private final int numberOfRows;
+        private final int numberOfColumns;
+        private final int winThreshold;
+        // outcomes[opener][winner], with the last column counting draws
+        private final long[][] outcomes;
+        private long games;
+        private long moves;
+        private long elapsedNanos;
+
+        private Result(OXOSimulation simulation, int numberOfRows, int numberOfColumns, int winThreshold) {
+            names = List.copyOf(simulation.names);
+            this.numberOfRows = numberOfRows;
+            this.numberOfColumns = numberOfColumns;
+            this.winThreshold = winThreshold;
+            outcomes = new long[names.size()][names.size() + 1];
+        }
+
+        private void add(Result other) {
+            for (int i = 0; i < outcomes.length; i++) {
+                for (int j = 0; j < outcomes[i].length; j++) outcomes[i][j] += other.outcomes[i][j];
+            }
+            games += other.games;
+            moves += other.moves;
+        }
+
+        public long getNumberOfGames() {
+            return games;
+        }
+
+        // Games strategy number `opener` started and strategy number `winner` won
+        public long getWins(int opener, int winner) {
+            return outcomes[opener][winner];
+        }
+
+        public long getDraws(int opener) {
+            return outcomes[opener][names.size()];
+        }
+
+        // Share of all games won by whoever moved first
+        public double getFirstMoverWinRate() {
+            long wins = 0;
+            for (int i = 0; i < outcomes.length; i++) wins += outcomes[i][i];
+            return games == 0 ? 0 : (double) wins / games;
+        }
+
+        public double getAverageLength() {
+            return games == 0 ? 0 : (double) moves / games;
+        }
+
+        public double getGamesPerSecond() {
+            return elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos;
+        }
+
+        public String toString() {
+            StringBuilder report = new StringBuilder();
+            report.append(String.format("%dx%d, %d in a row: %d games at %.0f games/s, %.1f moves on average, first mover wins %.1f%%%n",
+                    numberOfRows, numberOfColumns, winThreshold, games, getGamesPerSecond(), getAverageLength(), 100 * getFirstMoverWinRate()));
+            for (int opener = 0; opener < outcomes.length; opener++) {
+                long started = 0;
+                for (long count : outcomes[opener]) started += count;
+                report.append(String.format("  %s first (%d games):", names.get(opener), started));
+                for (int winner = 0; winner < names.size(); winner++) {
+                    report.append(String.format(" %s wins %.1f%%,", names.get(winner), percentage(outcomes[opener][winner], started)));
+                }
+                report.append(String.format(" draws %.1f%%%n", percentage(getDraws(opener), started)));
+            }
+            return report.toString();
+        }
+
+        private static double percentage(long count, long total) {
+            return total == 0 ? 0 : 100.0 * count / total;
+        }
+    }
+}
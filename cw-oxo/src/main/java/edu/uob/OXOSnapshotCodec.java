@@ -0,0 +1,175 @@
+package edu.uob;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+// Compact binary form of a whole game, for moving games between servers, syncing spectators and saving:
+//   version          one byte
+//   rows, columns    unsigned varints
+//   threshold        zigzag varint
+//   players          unsigned varint, then each player's letter as an unsigned varint
+//   current player   unsigned varint
+//   flags            one byte: 1 if there is a winner, 2 if the game is drawn
+//   winner           unsigned varint, only if there is one
+//   cells            owner + 1 of every cell, row by row, packed into as few bits as the number of players
+//                    needs (2 bits for two or three players), lowest bits first
+// Reading and writing work straight on the buffer, from its position, and leave it just past the snapshot.
+public class OXOSnapshotCodec {
+
+    static final int VERSION = 1;
+    private static final int HAS_WINNER = 1;
+    private static final int DRAWN = 2;
+
+    private OXOSnapshotCodec() {}
+
+    public static int bitsPerCell(int numberOfPlayers) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(numberOfPlayers));
+    }
+
+    // Exactly how many bytes write() will use for this model
+    public static int encodedSize(OXOModel model) {
+        int size = 1 + varintSize(model.getNumberOfRows()) + varintSize(model.getNumberOfColumns())
+                + varintSize(zigzag(model.getWinThreshold())) + varintSize(model.getNumberOfPlayers());
+        for (int i = 0; i < model.getNumberOfPlayers(); i++) size += varintSize(model.getPlayerByNumber(i).getPlayingLetter());
+        size += varintSize(model.getCurrentPlayerNumber()) + 1;
+        if (model.getWinner() != null) size += varintSize(model.getPlayerNumber(model.getWinner()));
+        long cellBits = (long) model.getNumberOfRows() * model.getNumberOfColumns() * bitsPerCell(model.getNumberOfPlayers());
+        return Math.toIntExact(size + (cellBits + 7) / 8);
+    }
+
+    public static void write(OXOModel model, ByteBuffer buffer) {
+        int numberOfPlayers = model.getNumberOfPlayers();
+        buffer.put((byte) VERSION);
+        putVarint(buffer, model.getNumberOfRows());
+        putVarint(buffer, model.getNumberOfColumns());
+        putVarint(buffer, zigzag(model.getWinThreshold()));
+        putVarint(buffer, numberOfPlayers);
+        for (int i = 0; i < numberOfPlayers; i++) putVarint(buffer, model.getPlayerByNumber(i).getPlayingLetter());
+        putVarint(buffer, model.getCurrentPlayerNumber());
+        OXOPlayer winner = model.getWinner();
+        buffer.put((byte) ((winner != null ? HAS_WINNER : 0) | (model.isGameDrawn() ? DRAWN : 0)));
+        if (winner != null) putVarint(buffer, model.getPlayerNumber(winner));
+
+        int bits = bitsPerCell(numberOfPlayers);
+        long pending = 0;
+        int pendingBits = 0;
+        for (int row = 0; row < model.getNumberOfRows(); row++) {
+            for (int col = 0; col < model.getNumberOfColumns(); col++) {
+                pending |= (long) (model.getCellOwnerNumber(row, col) + 1) << pendingBits;
+                pendingBits += bits;
+                while (pendingBits >= 8) {
+                    buffer.put((byte) pending);
+                    pending >>>= 8;
+                    pendingBits -= 8;
+                }
+            }
+        }
+        if (pendingBits > 0) buffer.put((byte) pending);
+    }
+
+    public static OXOModel read(ByteBuffer buffer) {
+        return read(buffer, null);
+    }
+
+    // Reads a snapshot into an existing model, which is resized to fit and must have the same number of players.
+    // Players whose letter differs are replaced with new ones, since the old ones may be shared. With a null model
+    // a new one is made. The header is checked against the bytes actually there before anything is allocated.
+    public static OXOModel read(ByteBuffer buffer, OXOModel model) {
+        try {
+            int version = buffer.get() & 0xFF;
+            if (version != VERSION) throw new IllegalArgumentException("Unknown snapshot version " + version);
+            int numberOfRows = getVarint(buffer);
+            int numberOfColumns = getVarint(buffer);
+            int winThreshold = unzigzag(getVarint(buffer));
+            int numberOfPlayers = getVarint(buffer);
+            if (numberOfRows < 1 || numberOfColumns < 1 || numberOfPlayers < 1) throw new IllegalArgumentException("Snapshot has an empty board or no players");
+            // Every letter takes at least a byte
+            if (numberOfPlayers > buffer.remaining()) throw new IllegalArgumentException("Snapshot is truncated");
+            if (model != null && model.getNumberOfPlayers() != numberOfPlayers) {
+                throw new IllegalArgumentException("Snapshot has " + numberOfPlayers + " players but the model has " + model.getNumberOfPlayers());
+            }
+            char[] letters = new char[numberOfPlayers];
+            for (int i = 0; i < numberOfPlayers; i++) letters[i] = (char) getVarint(buffer);
+            int currentPlayer = checkPlayer(getVarint(buffer), numberOfPlayers);
+            int flags = buffer.get();
+            int winner = (flags & HAS_WINNER) != 0 ? checkPlayer(getVarint(buffer), numberOfPlayers) : OXOBoard.EMPTY;
+            int bits = bitsPerCell(numberOfPlayers);
+            long cells = (long) numberOfRows * numberOfColumns;
+            if (cells > buffer.remaining() * 8L / bits) {
+                throw new IllegalArgumentException("Snapshot of " + numberOfRows + "x" + numberOfColumns + " is larger than its " + buffer.remaining() + " bytes of cells");
+            }
+
+            if (model == null) {
+                model = new OXOModel(numberOfRows, numberOfColumns, winThreshold);
+                for (char letter : letters) model.addPlayer(new OXOPlayer(letter));
+            } else {
+                for (int i = 0; i < numberOfPlayers; i++) {
+                    if (model.getPlayerByNumber(i).getPlayingLetter() != letters[i]) model.setPlayer(i, new OXOPlayer(letters[i]));
+                }
+                while (model.getNumberOfRows() < numberOfRows) model.addRow();
+                while (model.getNumberOfRows() > numberOfRows) model.removeRow();
+                while (model.getNumberOfColumns() < numberOfColumns) model.addColumn();
+                while (model.getNumberOfColumns() > numberOfColumns) model.removeColumn();
+                model.setWinThreshold(winThreshold);
+            }
+            model.setCurrentPlayerNumber(currentPlayer);
+            model.setWinner(winner == OXOBoard.EMPTY ? null : model.getPlayerByNumber(winner));
+            model.setGameDrawn((flags & DRAWN) != 0);
+
+            int mask = (1 << bits) - 1;
+            long pending = 0;
+            int pendingBits = 0;
+            for (int row = 0; row < numberOfRows; row++) {
+                for (int col = 0; col < numberOfColumns; col++) {
+                    // Cells of more than 8 bits span several bytes
+                    while (pendingBits < bits) {
+                        pending |= (long) (buffer.get() & 0xFF) << pendingBits;
+                        pendingBits += 8;
+                    }
+                    int owner = (int) (pending & mask) - 1;
+                    pending >>>= bits;
+                    pendingBits -= bits;
+                    model.setCellOwnerNumber(row, col, checkPlayer(owner, numberOfPlayers));
+                }
+            }
+            return model;
+        } catch (BufferUnderflowException exception) {
+            throw new IllegalArgumentException("Snapshot is truncated");
+        }
+    }
+
+    private static int checkPlayer(int player, int numberOfPlayers) {
+        if (player < OXOBoard.EMPTY || player >= numberOfPlayers) throw new IllegalArgumentException("Snapshot refers to player " + player);
+        return player;
+    }
+
+    static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int getVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalArgumentException("Snapshot has a malformed number");
+    }
+
+    static int varintSize(int value) {
+        return value == 0 ? 1 : (38 - Integer.numberOfLeadingZeros(value)) / 7;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,174 @@
+package edu.uob;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+// Board that only stores claimed cells, in an open-addressed hash table keyed by (row, col) packed
+// into a long. Adding rows or columns just moves the edge, so memory follows the number of moves
+// rather than the area of the board.
+public class OXOSparseBoard implements OXOBoard {
+
+    private static final long FREE = Long.MIN_VALUE;
+    private static final int[][] DIRECTIONS = { {0, 1}, {1, 0}, {1, 1}, {1, -1} };
+
+    private long[] keys;
+    private int[] owners;
+    private int numberOfRows;
+    private int numberOfColumns;
+    private int claimedCells;
+
+    public OXOSparseBoard(int numberOfRows, int numberOfColumns) {
+        this.numberOfRows = numberOfRows;
+        this.numberOfColumns = numberOfColumns;
+        allocate(16);
+    }
+
+    public int getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    public int getNumberOfColumns() {
+        return numberOfColumns;
+    }
+
+    public int getNumberOfClaimedCells() {
+        return claimedCells;
+    }
+
+    public int getOwner(int rowNumber, int colNumber) {
+        Objects.checkIndex(rowNumber, numberOfRows);
+        Objects.checkIndex(colNumber, numberOfColumns);
+        return ownerAt(rowNumber, colNumber);
+    }
+
+    public void setOwner(int rowNumber, int colNumber, int playerNumber) {
+        Objects.checkIndex(rowNumber, numberOfRows);
+        Objects.checkIndex(colNumber, numberOfColumns);
+        long key = key(rowNumber, colNumber);
+        int slot = find(key);
+        if (playerNumber == EMPTY) {
+            if (keys[slot] != FREE) delete(slot);
+            return;
+        }
+        if (keys[slot] == FREE) {
+            if ((claimedCells + 1) * 2 > keys.length) {
+                rehash(keys.length * 2);
+                slot = find(key);
+            }
+            keys[slot] = key;
+            claimedCells++;
+        }
+        owners[slot] = playerNumber;
+    }
+
+    // Only the first cell of each run needs following, so every run is walked once
+    public boolean hasLine(int playerNumber, int length) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] == FREE || owners[slot] != playerNumber) continue;
+            if (length <= 1) return true;
+            int row = (int) (keys[slot] >> 32);
+            int col = (int) keys[slot];
+            for (int[] direction : DIRECTIONS) {
+                if (ownerAt(row - direction[0], col - direction[1]) == playerNumber) continue;
+                int count = 1;
+                while (count < length && ownerAt(row + direction[0] * count, col + direction[1] * count) == playerNumber) count++;
+                if (count == length) return true;
+            }
+        }
+        return false;
+    }
+
+    public void addRow() {
+        numberOfRows++;
+    }
+
+    public void addColumn() {
+        numberOfColumns++;
+    }
+
+    public void removeRow() {
+        if (numberOfRows == 0) return;
+        numberOfRows--;
+        clearOutside();
+    }
+
+    public void removeColumn() {
+        if (numberOfColumns == 0) return;
+        numberOfColumns--;
+        clearOutside();
+    }
+
+    // The table keeps its capacity, which follows the most cells claimed in one game rather than the board's area
+    public void clear(int numberOfRows, int numberOfColumns) {
+        if (claimedCells > 0) Arrays.fill(keys, FREE);
+        claimedCells = 0;
+        this.numberOfRows = numberOfRows;
+        this.numberOfColumns = numberOfColumns;
+    }
+
+    private int ownerAt(int rowNumber, int colNumber) {
+        if (rowNumber < 0 || rowNumber >= numberOfRows || colNumber < 0 || colNumber >= numberOfColumns) return EMPTY;
+        int slot = find(key(rowNumber, colNumber));
+        return keys[slot] == FREE ? EMPTY : owners[slot];
+    }
+
+    // Drop any claimed cells that have fallen off the edge of the board
+    private void clearOutside() {
+        rehash(keys.length);
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != FREE && keys[slot] != key) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    // Backward-shift deletion keeps every probe chain unbroken without tombstones
+    private void delete(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keys[next] != FREE) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                owners[hole] = owners[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = FREE;
+        claimedCells--;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldOwners = owners;
+        allocate(capacity);
+        claimedCells = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] == FREE) continue;
+            if ((int) (oldKeys[slot] >> 32) >= numberOfRows || (int) oldKeys[slot] >= numberOfColumns) continue;
+            claimedCells++;
+            int newSlot = find(oldKeys[slot]);
+            keys[newSlot] = oldKeys[slot];
+            owners[newSlot] = oldOwners[slot];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        owners = new int[capacity];
+        Arrays.fill(keys, FREE);
+    }
+
+    private static long key(int rowNumber, int colNumber) {
+        return ((long) rowNumber << 32) | (colNumber & 0xFFFFFFFFL);
+    }
+
+    private static int hash(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+}
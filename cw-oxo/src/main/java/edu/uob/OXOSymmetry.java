@@ -0,0 +1,39 @@
+package edu.uob;
+
+// The rotations and reflections of a board, as cell permutations over cells numbered row * columns + col.
+// Transform t turns a board into one whose cell i holds whatever was in cell sources[t][i] of the original.
+// Square boards have eight symmetries; other boards only keep the four that don't swap rows with columns.
+public class OXOSymmetry {
+
+    private OXOSymmetry() {}
+
+    public static int[][] sources(int numberOfRows, int numberOfColumns) {
+        int lastRow = numberOfRows - 1;
+        int lastCol = numberOfColumns - 1;
+        int count = numberOfRows == numberOfColumns ? 8 : 4;
+        int[][] sources = new int[count][numberOfRows * numberOfColumns];
+        for (int row = 0; row < numberOfRows; row++) {
+            for (int col = 0; col < numberOfColumns; col++) {
+                int cell = row * numberOfColumns + col;
+                sources[0][cell] = cell;
+                sources[1][cell] = (lastRow - row) * numberOfColumns + lastCol - col;
+                sources[2][cell] = row * numberOfColumns + lastCol - col;
+                sources[3][cell] = (lastRow - row) * numberOfColumns + col;
+                if (count == 8) {
+                    sources[4][cell] = col * numberOfColumns + row;
+                    sources[5][cell] = (lastCol - col) * numberOfColumns + lastRow - row;
+                    sources[6][cell] = (lastCol - col) * numberOfColumns + row;
+                    sources[7][cell] = col * numberOfColumns + lastRow - row;
+                }
+            }
+        }
+        return sources;
+    }
+
+    // For mapping cells the other way: the transformed board holds original cell c at index inverse[c]
+    public static int[] inverse(int[] sources) {
+        int[] inverse = new int[sources.length];
+        for (int i = 0; i < sources.length; i++) inverse[sources[i]] = i;
+        return inverse;
+    }
+}
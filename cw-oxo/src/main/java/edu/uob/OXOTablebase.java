@@ -0,0 +1,129 @@
+package edu.uob;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Perfect play for one small game, answered straight from a memory-mapped file written by OXOTablebaseGenerator.
+// A lookup ranks the position under each symmetry, takes the lowest rank as the canonical one and finds its
+// entry through the presence bitmap and its block counts, so it costs the same for every position and only
+// touches the map and a per-thread scratch position.
+//
+// File layout, big-endian:
+//   header     magic, version, rows, columns, threshold, players (ints) and the index size (long)
+//   bitmap     one bit per index, set for the canonical positions that were solved
+//   counts     for each block of 512 bits, the number of set bits before it (int)
+//   entries    one byte per set bit, in index order
+public class OXOTablebase implements OXOMoveEngine {
+
+    // The outcome of a position the tablebase doesn't cover
+    public static final int UNKNOWN = -2;
+
+    private final MappedByteBuffer map;
+    private final int numberOfRows;
+    private final int numberOfColumns;
+    private final int winThreshold;
+    private final int numberOfPlayers;
+    private final OXOPositionIndex index;
+    private final int[][] sources;
+    private final int countsOffset;
+    private final int entriesOffset;
+    private final ThreadLocal<OXOPosition> scratch;
+
+    public static OXOTablebase open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException(file + " is too big to be a tablebase");
+            // The mapping stays valid after the channel is closed
+            return new OXOTablebase(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file);
+        }
+    }
+
+    private OXOTablebase(MappedByteBuffer map, Path file) throws IOException {
+        this.map = map;
+        if (map.limit() < OXOTablebaseGenerator.HEADER_SIZE || map.getInt(0) != OXOTablebaseGenerator.MAGIC) {
+            throw new IOException(file + " is not a tablebase");
+        }
+        if (map.getInt(4) != OXOTablebaseGenerator.VERSION) throw new IOException(file + " has unsupported version " + map.getInt(4));
+        numberOfRows = map.getInt(8);
+        numberOfColumns = map.getInt(12);
+        winThreshold = map.getInt(16);
+        numberOfPlayers = map.getInt(20);
+        long size = map.getLong(24);
+        index = new OXOPositionIndex(numberOfRows * numberOfColumns, numberOfPlayers);
+        if (index.size() != size) throw new IOException(file + " has the wrong number of positions for its board");
+        sources = OXOSymmetry.sources(numberOfRows, numberOfColumns);
+        int words = (int) ((size + 63) / 64);
+        countsOffset = OXOTablebaseGenerator.HEADER_SIZE + words * 8;
+        entriesOffset = countsOffset + (words + OXOTablebaseGenerator.BLOCK_BITS / 64 - 1) / (OXOTablebaseGenerator.BLOCK_BITS / 64) * 4;
+        scratch = ThreadLocal.withInitial(() -> new OXOPosition(numberOfRows, numberOfColumns, winThreshold, numberOfPlayers));
+    }
+
+    public int getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    public int getNumberOfColumns() {
+        return numberOfColumns;
+    }
+
+    public int getWinThreshold() {
+        return winThreshold;
+    }
+
+    public int getNumberOfPlayers() {
+        return numberOfPlayers;
+    }
+
+    // True if the model is playing the game this tablebase solved
+    public boolean covers(OXOModel model) {
+        return model.getNumberOfRows() == numberOfRows && model.getNumberOfColumns() == numberOfColumns
+                && model.getWinThreshold() == winThreshold && model.getNumberOfPlayers() == numberOfPlayers;
+    }
+
+    // The player who wins with perfect play from here, OXOBoard.EMPTY for a draw, or UNKNOWN if the game has
+    // already finished or the position isn't in the tablebase
+    public int getOutcome(OXOModel model) {
+        int found = lookup(model);
+        if (found < 0) return UNKNOWN;
+        int outcome = found & 3;
+        return outcome == 0 ? OXOBoard.EMPTY : outcome - 1;
+    }
+
+    // A perfect move, or -1 if the position isn't in the tablebase
+    public int chooseMove(OXOModel model) {
+        int found = lookup(model);
+        if (found < 0) return -1;
+        int cell = sources[found >>> 8][((found & 0xFF) >>> 2) - 1];
+        return OXOController.encodeMove(cell / numberOfColumns, cell % numberOfColumns);
+    }
+
+    // The entry for the position in its low byte and the symmetry that made it canonical above that, or -1
+    private int lookup(OXOModel model) {
+        if (!covers(model) || model.getWinner() != null || model.isGameDrawn()) return -1;
+        OXOPosition position = scratch.get();
+        position.load(model);
+        if (position.isFull() || position.getPlayerToMove() != position.getNumberOfClaimedCells() % numberOfPlayers) return -1;
+        long canonical = Long.MAX_VALUE;
+        int transform = 0;
+        for (int t = 0; t < sources.length; t++) {
+            long rank = index.rank(position, sources[t]);
+            if (rank < 0) return -1;
+            if (rank < canonical) {
+                canonical = rank;
+                transform = t;
+            }
+        }
+        int word = (int) (canonical >>> 6);
+        long bits = map.getLong(OXOTablebaseGenerator.HEADER_SIZE + word * 8);
+        long bit = 1L << (canonical & 63);
+        if ((bits & bit) == 0) return -1;
+        int wordsPerBlock = OXOTablebaseGenerator.BLOCK_BITS / 64;
+        int block = word / wordsPerBlock;
+        int present = map.getInt(countsOffset + block * 4);
+        for (int w = block * wordsPerBlock; w < word; w++) present += Long.bitCount(map.getLong(OXOTablebaseGenerator.HEADER_SIZE + w * 8));
+        present += Long.bitCount(bits & (bit - 1));
+        return transform << 8 | map.get(entriesOffset + present) & 0xFF;
+    }
+}
@@ -0,0 +1,150 @@
+package edu.uob;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Solves every position of a small game that can come up under the controller's rules (player 0 first, play
+// stops at the first win) and writes the results out for OXOTablebase. Positions that are rotations or
+// reflections of each other are solved and stored once, under whichever of them has the lowest index.
+//
+// Usage: OXOTablebaseGenerator <rows> <columns> <threshold> <players> <file>
+public class OXOTablebaseGenerator {
+
+    static final int MAGIC = 0x4F584F54;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    // Bits per block of the presence bitmap that gets a running count in the file
+    static final int BLOCK_BITS = 512;
+
+    private final int numberOfRows;
+    private final int numberOfColumns;
+    private final int winThreshold;
+    private final int numberOfPlayers;
+    private final OXOPositionIndex index;
+    private final int[][] sources;
+    private final int[][] targets;
+    private final OXOPosition position;
+    // One byte per index: 0 until solved, then the outcome in the low two bits (0 for a draw or winner + 1)
+    // and the best move in the rest (cell + 1, as seen from the canonical orientation)
+    private final byte[] entries;
+    private long numberOfPositions;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 5) {
+            System.out.println("Usage: OXOTablebaseGenerator <rows> <columns> <threshold> <players> <file>");
+            return;
+        }
+        OXOTablebaseGenerator generator = new OXOTablebaseGenerator(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+                Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+        long start = System.nanoTime();
+        generator.generate(Path.of(args[4]));
+        System.out.println("Solved " + generator.getNumberOfPositions() + " positions in "
+                + (System.nanoTime() - start) / 1_000_000 + "ms, written to " + args[4]);
+    }
+
+    public OXOTablebaseGenerator(int numberOfRows, int numberOfColumns, int winThreshold, int numberOfPlayers) {
+        if (numberOfPlayers < 1 || numberOfPlayers > 3) throw new IllegalArgumentException("Tablebases support one to three players");
+        if (numberOfRows * numberOfColumns > 62) throw new IllegalArgumentException("Tablebases support boards of up to 62 cells");
+        this.numberOfRows = numberOfRows;
+        this.numberOfColumns = numberOfColumns;
+        this.winThreshold = winThreshold;
+        this.numberOfPlayers = numberOfPlayers;
+        index = new OXOPositionIndex(numberOfRows * numberOfColumns, numberOfPlayers);
+        if (index.size() > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Too many positions to solve in memory");
+        sources = OXOSymmetry.sources(numberOfRows, numberOfColumns);
+        targets = new int[sources.length][];
+        for (int t = 0; t < sources.length; t++) targets[t] = OXOSymmetry.inverse(sources[t]);
+        position = new OXOPosition(numberOfRows, numberOfColumns, winThreshold, numberOfPlayers);
+        entries = new byte[(int) index.size()];
+    }
+
+    // Distinct positions solved, not counting symmetric copies
+    public long getNumberOfPositions() {
+        return numberOfPositions;
+    }
+
+    public void generate(Path file) throws IOException {
+        solve();
+        int words = (entries.length + 63) / 64;
+        long[] bitmap = new long[words];
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i] != 0) bitmap[i >>> 6] |= 1L << (i & 63);
+        }
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(numberOfRows);
+            output.writeInt(numberOfColumns);
+            output.writeInt(winThreshold);
+            output.writeInt(numberOfPlayers);
+            output.writeLong(entries.length);
+            for (long word : bitmap) output.writeLong(word);
+            int wordsPerBlock = BLOCK_BITS / 64;
+            int present = 0;
+            for (int word = 0; word < words; word++) {
+                if (word % wordsPerBlock == 0) output.writeInt(present);
+                present += Long.bitCount(bitmap[word]);
+            }
+            for (byte entry : entries) {
+                if (entry != 0) output.writeByte(entry);
+            }
+        }
+    }
+
+    private void solve() {
+        if (numberOfPositions == 0) solvePosition();
+    }
+
+    // Returns the outcome code of the position, which is neither won nor full
+    private int solvePosition() {
+        long canonical = Long.MAX_VALUE;
+        int transform = 0;
+        for (int t = 0; t < sources.length; t++) {
+            long rank = index.rank(position, sources[t]);
+            if (rank < canonical) {
+                canonical = rank;
+                transform = t;
+            }
+        }
+        byte known = entries[(int) canonical];
+        if (known != 0) return known & 3;
+
+        int mover = position.getPlayerToMove();
+        int bestOutcome = -1;
+        int bestMove = -1;
+        // A slower forced win scores the same as winning now, so take any immediate win first
+        for (int cell = 0; cell < position.getNumberOfCells() && bestMove < 0; cell++) {
+            if (position.getOwner(cell) != OXOBoard.EMPTY) continue;
+            if (position.longestLineThrough(cell, mover) >= position.getWinThreshold()) {
+                bestOutcome = mover + 1;
+                bestMove = cell;
+            }
+        }
+        // Every move is followed, even once a win has turned up, so that positions reached by worse moves are solved too
+        for (int cell = 0; cell < position.getNumberOfCells(); cell++) {
+            if (position.getOwner(cell) != OXOBoard.EMPTY) continue;
+            position.makeMove(cell);
+            int outcome;
+            if (position.isWinningCell(cell)) outcome = mover + 1;
+            else if (position.isFull()) outcome = 0;
+            else outcome = solvePosition();
+            position.unmakeMove(cell);
+            if (bestMove < 0 || preference(outcome, mover) > preference(bestOutcome, mover)) {
+                bestOutcome = outcome;
+                bestMove = cell;
+            }
+        }
+        entries[(int) canonical] = (byte) ((targets[transform][bestMove] + 1) << 2 | bestOutcome);
+        numberOfPositions++;
+        return bestOutcome;
+    }
+
+    // Every player would rather win than draw, and rather draw than see someone else win
+    private static int preference(int outcome, int player) {
+        if (outcome == player + 1) return 2;
+        return outcome == 0 ? 1 : 0;
+    }
+}
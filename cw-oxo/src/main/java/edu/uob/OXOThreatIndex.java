@@ -0,0 +1,178 @@
+package edu.uob;
+
+import java.util.Arrays;
+
+// Every window of winThreshold cells in a row, column or diagonal, and which of them a player could still fill.
+// A window stays open while it holds cells of at most one player; once two players have cells in it, nobody can
+// win there. When the last open window closes, nobody can win anywhere, which usually happens long before a
+// large board fills up.
+// The index follows the model through claim() and release() as moves are made and taken back, and rebuilds itself
+// from the model whenever its size, threshold or players have changed, or after invalidate(). Each claim or release
+// touches the winThreshold windows through the cell in each direction.
+// Open windows also say where play matters, so getPotential() and orderMoves() rank cells for move engines.
+public class OXOThreatIndex {
+
+    // Row and column steps of the four directions: along a row, down a column, and both diagonals
+    private static final int[] ROW_STEPS = {0, 1, 1, 1};
+    private static final int[] COL_STEPS = {1, 0, 1, -1};
+    // A window with cells of two players; otherwise a window's state is (owner + 1) << 16 | cells, or 0 when empty
+    private static final int DEAD = -1;
+
+    private int numberOfRows = -1;
+    private int numberOfColumns = -1;
+    private int windowLength;
+    private int numberOfPlayers;
+    // One window per direction per starting cell, indexed direction * cells + row * columns + col. Starting cells
+    // whose window would run off the board are never used.
+    private int[] windows = new int[0];
+    private int openWindows;
+    private boolean stale = true;
+
+    // Brings the index up to date with a cell the player has just claimed
+    public void claim(OXOModel model, int rowNumber, int colNumber, int playerNumber) {
+        if (sync(model)) return;
+        for (int direction = 0; direction < 4; direction++) {
+            for (int i = 0; i < windowLength; i++) {
+                int window = windowAt(rowNumber - i * ROW_STEPS[direction], colNumber - i * COL_STEPS[direction], direction);
+                if (window < 0) continue;
+                int state = windows[window];
+                if (state == DEAD) continue;
+                int owner = (state >>> 16) - 1;
+                if (state == 0 || owner == playerNumber) {
+                    windows[window] = (playerNumber + 1) << 16 | ((state & 0xFFFF) + 1);
+                } else {
+                    windows[window] = DEAD;
+                    openWindows--;
+                }
+            }
+        }
+    }
+
+    // Brings the index up to date with a cell that has just been cleared, by recounting the windows through it
+    public void release(OXOModel model, int rowNumber, int colNumber) {
+        if (sync(model)) return;
+        for (int direction = 0; direction < 4; direction++) {
+            for (int i = 0; i < windowLength; i++) {
+                int window = windowAt(rowNumber - i * ROW_STEPS[direction], colNumber - i * COL_STEPS[direction], direction);
+                if (window < 0) continue;
+                int state = count(model, window, direction);
+                if (windows[window] == DEAD && state != DEAD) openWindows++;
+                windows[window] = state;
+            }
+        }
+    }
+
+    // Rebuild from the model next time it is used, for changes it wasn't told about (a restart, say)
+    public void invalidate() {
+        stale = true;
+    }
+
+    // False once no player can complete a line anywhere on the board
+    public boolean isWinPossible(OXOModel model) {
+        sync(model);
+        return openWindows > 0;
+    }
+
+    public int getNumberOfOpenWindows(OXOModel model) {
+        sync(model);
+        return openWindows;
+    }
+
+    // How much an unclaimed cell is worth to the player: every open window through it counts, four times as much
+    // for each cell already in it, whether it is the player's window to build or another player's to block
+    public long getPotential(OXOModel model, int rowNumber, int colNumber, int playerNumber) {
+        sync(model);
+        long potential = 0;
+        for (int direction = 0; direction < 4; direction++) {
+            for (int i = 0; i < windowLength; i++) {
+                int window = windowAt(rowNumber - i * ROW_STEPS[direction], colNumber - i * COL_STEPS[direction], direction);
+                if (window < 0 || windows[window] == DEAD) continue;
+                int cells = windows[window] & 0xFFFF;
+                long weight = 1L << Math.min(2 * cells, 40);
+                // Finishing its own line is worth more to the player than stopping someone else's
+                potential += (windows[window] >>> 16) - 1 == playerNumber ? weight * 2 : weight;
+            }
+        }
+        return potential;
+    }
+
+    // Fills moves with the unclaimed cells (packed with OXOController.encodeMove), best for the player first, and
+    // returns how many there are
+    public int orderMoves(OXOModel model, int playerNumber, int[] moves) {
+        sync(model);
+        long[] keyed = new long[numberOfRows * numberOfColumns];
+        int count = 0;
+        for (int row = 0; row < numberOfRows; row++) {
+            for (int col = 0; col < numberOfColumns; col++) {
+                if (model.getCellOwnerNumber(row, col) != OXOBoard.EMPTY) continue;
+                long potential = Math.min(getPotential(model, row, col, playerNumber), Integer.MAX_VALUE);
+                // Highest potential first, and the earlier cell first among equals
+                keyed[count++] = (Integer.MAX_VALUE - potential) << 32 | (row * numberOfColumns + col);
+            }
+        }
+        Arrays.sort(keyed, 0, count);
+        int filled = Math.min(count, moves.length);
+        for (int i = 0; i < filled; i++) {
+            int cell = (int) keyed[i];
+            moves[i] = OXOController.encodeMove(cell / numberOfColumns, cell % numberOfColumns);
+        }
+        return count;
+    }
+
+    // Rebuilds the index if the model has changed shape or it was invalidated, and returns whether it did
+    private boolean sync(OXOModel model) {
+        int length = Math.max(1, model.getWinThreshold());
+        if (!stale && model.getNumberOfRows() == numberOfRows && model.getNumberOfColumns() == numberOfColumns
+                && length == windowLength && model.getNumberOfPlayers() == numberOfPlayers) return false;
+        numberOfRows = model.getNumberOfRows();
+        numberOfColumns = model.getNumberOfColumns();
+        windowLength = length;
+        numberOfPlayers = model.getNumberOfPlayers();
+        int cells = numberOfRows * numberOfColumns;
+        if (windows.length < 4 * cells) windows = new int[4 * cells];
+        openWindows = 0;
+        boolean empty = model.getNumberOfClaimedCells() == 0;
+        for (int direction = 0; direction < 4; direction++) {
+            for (int row = 0; row < numberOfRows; row++) {
+                for (int col = 0; col < numberOfColumns; col++) {
+                    if (!fits(row, col, direction)) continue;
+                    int window = direction * cells + row * numberOfColumns + col;
+                    windows[window] = empty ? 0 : count(model, window, direction);
+                    if (windows[window] != DEAD) openWindows++;
+                }
+            }
+        }
+        stale = false;
+        return true;
+    }
+
+    private int count(OXOModel model, int window, int direction) {
+        int start = window % (numberOfRows * numberOfColumns);
+        int row = start / numberOfColumns;
+        int col = start % numberOfColumns;
+        int owner = OXOBoard.EMPTY;
+        int cells = 0;
+        for (int i = 0; i < windowLength; i++, row += ROW_STEPS[direction], col += COL_STEPS[direction]) {
+            int player = model.getCellOwnerNumber(row, col);
+            if (player == OXOBoard.EMPTY) continue;
+            if (owner != OXOBoard.EMPTY && owner != player) return DEAD;
+            owner = player;
+            cells++;
+        }
+        return cells == 0 ? 0 : (owner + 1) << 16 | cells;
+    }
+
+    // Whether a window starting at the cell stays on the board
+    private boolean fits(int rowNumber, int colNumber, int direction) {
+        int endRow = rowNumber + (windowLength - 1) * ROW_STEPS[direction];
+        int endCol = colNumber + (windowLength - 1) * COL_STEPS[direction];
+        return endRow < numberOfRows && endCol >= 0 && endCol < numberOfColumns;
+    }
+
+    // The window starting at the cell, or -1 if there isn't one there
+    private int windowAt(int rowNumber, int colNumber, int direction) {
+        if (rowNumber < 0 || rowNumber >= numberOfRows || colNumber < 0 || colNumber >= numberOfColumns) return -1;
+        if (!fits(rowNumber, colNumber, direction)) return -1;
+        return direction * numberOfRows * numberOfColumns + rowNumber * numberOfColumns + colNumber;
+    }
+}
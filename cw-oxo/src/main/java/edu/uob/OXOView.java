@@ -2,71 +2,326 @@ package edu.uob;
 
 import java.awt.Color;
 import java.awt.Font;
+import java.awt.FontMetrics;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.event.InputEvent;
+import java.awt.image.BufferedImage;
 import java.io.Serial;
+import java.util.Arrays;
 import javax.swing.JPanel;
 
+// Shows a window onto the board: as many whole rows and columns as fit at the current cell size, starting from
+// the first visible row and column. By default cells stretch to fill the panel, but never below MIN_CELL_SIZE, so
+// big boards scroll (mouse wheel, shift + wheel for columns) and zoom (ctrl + wheel) rather than shrinking away.
+// The grid and labels for the window are drawn once into a cached image, rebuilt only when the panel, the board
+// size or the window changes. A second image holds the grid with the cells drawn on it: the model tells the view
+// which cells change, and each frame only those are redrawn into it (and only their part of the panel is
+// repainted). Painting costs as much as the window holds, however big the board is.
 public class OXOView extends JPanel {
     @Serial private static final long serialVersionUID = 1;
     private static int FONT_SIZE = 20;
+    private static int MIN_FONT_SIZE = 8;
     private static Font FONT = new Font("SansSerif", Font.PLAIN, FONT_SIZE);
     private static int MARGIN = 50;
+    private static int STATUS_HEIGHT = 30;
+    static final int MIN_CELL_SIZE = 24;
+    static final int MAX_CELL_SIZE = 400;
 
-    private OXOModel model;
+    private transient OXOModel model;
+    private transient BufferedImage background;
+    private transient BufferedImage frame;
+    private transient Font cellFont = FONT;
+    // Zero while cells stretch to fit the panel
+    private int cellSize;
+    private int firstRow;
+    private int firstColumn;
+    // The window the cached images were drawn for
+    private int frameRows;
+    private int frameColumns;
+    private int frameFirstRow;
+    private int frameFirstColumn;
+    private int visibleRows;
+    private int visibleColumns;
+    private float horiSpacing;
+    private float vertSpacing;
+    // Cells changed since the last frame, row in the high half and column in the low, so the window can be anywhere
+    // on a sparse board
+    private long[] dirtyCells = new long[16];
+    // Swapped with dirtyCells by each frame, which draws from it while the model carries on filling the other
+    private long[] drawingCells = new long[16];
+    private int numberOfDirtyCells;
+    private boolean allDirty = true;
+    private int cellsPainted;
 
+    @SuppressWarnings("this-escape")
     public OXOView(OXOModel mod) {
         model = mod;
+        model.addListener(new OXOModelListener() {
+            public void cellChanged(int rowNumber, int colNumber, int playerNumber) {
+                markDirty(rowNumber, colNumber);
+            }
+            public void dimensionsChanged(int numberOfRows, int numberOfColumns) {
+                markAllDirty();
+                repaint();
+            }
+            public void gameReset() {
+                markAllDirty();
+                repaint();
+            }
+            public void turnChanged(int playerNumber) {
+                repaintStatus();
+            }
+            public void winnerChanged(OXOPlayer winner) {
+                repaintStatus();
+            }
+            public void drawnChanged(boolean drawn) {
+                repaintStatus();
+            }
+        });
+        addMouseWheelListener(event -> {
+            int steps = event.getWheelRotation();
+            if ((event.getModifiersEx() & InputEvent.CTRL_DOWN_MASK) != 0) zoom(steps < 0 ? 1.25 : 0.8);
+            else if ((event.getModifiersEx() & InputEvent.SHIFT_DOWN_MASK) != 0) scrollBy(0, steps * 3);
+            else scrollBy(steps * 3, 0);
+        });
+    }
+
+    // Cells drawn by the last frame - every visible cell after the window changes, otherwise just the ones that changed
+    int getCellsPainted() {
+        return cellsPainted;
+    }
+
+    public int getFirstVisibleRow() {
+        return firstRow;
+    }
+
+    public int getFirstVisibleColumn() {
+        return firstColumn;
+    }
+
+    // Size of the window as of the last frame
+    public int getNumberOfVisibleRows() {
+        return visibleRows;
+    }
+
+    public int getNumberOfVisibleColumns() {
+        return visibleColumns;
+    }
+
+    // Zero while cells stretch to fit the panel
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    // Fixes the width and height of every cell in pixels, or stretches them to fit the panel again with zero
+    public void setCellSize(int size) {
+        cellSize = size == 0 ? 0 : Math.max(MIN_CELL_SIZE, Math.min(MAX_CELL_SIZE, size));
+        repaint();
+    }
+
+    public void zoom(double factor) {
+        int current = cellSize == 0 ? Math.round(Math.min(horiSpacing, vertSpacing)) : cellSize;
+        setCellSize(Math.max(MIN_CELL_SIZE, (int) Math.round(Math.max(current, MIN_CELL_SIZE) * factor)));
+    }
+
+    // Scrolls so the given cell is at the top left, as near as the board allows
+    public void scrollTo(int rowNumber, int colNumber) {
+        firstRow = Math.max(0, rowNumber);
+        firstColumn = Math.max(0, colNumber);
+        repaint();
+    }
+
+    public void scrollBy(int rows, int columns) {
+        scrollTo(firstRow + rows, firstColumn + columns);
     }
 
     protected void paintComponent(Graphics g) {
+        if (getWidth() <= 0 || getHeight() <= 0) return;
+        layoutWindow();
+        if (background == null || background.getWidth() != getWidth() || background.getHeight() != getHeight()
+                || frameRows != model.getNumberOfRows() || frameColumns != model.getNumberOfColumns()
+                || frameFirstRow != firstRow || frameFirstColumn != firstColumn) {
+            frameRows = model.getNumberOfRows();
+            frameColumns = model.getNumberOfColumns();
+            frameFirstRow = firstRow;
+            frameFirstColumn = firstColumn;
+            background = drawBackground();
+            frame = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
+            markAllDirty();
+        }
+        drawDirtyCells();
+        g.drawImage(frame, 0, 0, null);
+
+        String message;
+        if (model.getWinner() != null) message = "Player " + model.getWinner().getPlayingLetter() + " is the winner !";
+        else if (model.isGameDrawn()) message = "Stalemate - game is a draw !";
+        else message = "Player " + model.getPlayerByNumber(model.getCurrentPlayerNumber()).getPlayingLetter() + "'s turn";
+
+        // Draw the message near the bottom of the screen
         g.setFont(FONT);
+        g.setColor(Color.BLACK);
+        g.drawString(message, 7, getHeight() - 10);
+    }
+
+    // Works out the cell size and which rows and columns fit, keeping the window on the board
+    private void layoutWindow() {
+        int rows = model.getNumberOfRows();
+        int columns = model.getNumberOfColumns();
+        float width = Math.max(1, getWidth() - MARGIN * 2);
+        float height = Math.max(1, getHeight() - MARGIN * 2);
+        float newHoriSpacing = cellSize != 0 ? cellSize : Math.max(MIN_CELL_SIZE, width / columns);
+        float newVertSpacing = cellSize != 0 ? cellSize : Math.max(MIN_CELL_SIZE, height / rows);
+        int newVisibleColumns = Math.max(1, Math.min(columns, (int) (width / newHoriSpacing)));
+        int newVisibleRows = Math.max(1, Math.min(rows, (int) (height / newVertSpacing)));
+        firstRow = Math.max(0, Math.min(firstRow, rows - newVisibleRows));
+        firstColumn = Math.max(0, Math.min(firstColumn, columns - newVisibleColumns));
+        if (newHoriSpacing != horiSpacing || newVertSpacing != vertSpacing || newVisibleRows != visibleRows || newVisibleColumns != visibleColumns) {
+            horiSpacing = newHoriSpacing;
+            vertSpacing = newVertSpacing;
+            visibleRows = newVisibleRows;
+            visibleColumns = newVisibleColumns;
+            int fontSize = Math.max(MIN_FONT_SIZE, Math.min(FONT_SIZE, (int) (Math.min(horiSpacing, vertSpacing) * 0.6f)));
+            cellFont = FONT.deriveFont((float) fontSize);
+            // Forces the cached images to be redrawn
+            background = null;
+        }
+    }
+
+    private BufferedImage drawBackground() {
+        BufferedImage image = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setFont(cellFont);
+        FontMetrics metrics = g.getFontMetrics();
 
         // Clear the whole board
         g.setColor(Color.WHITE);
         g.fillRect(0, 0, getWidth(), getHeight());
 
-        float horiSpacing = (float)(getWidth()-MARGIN*2) / model.getNumberOfColumns();
-        float vertSpacing = (float)(getHeight()-MARGIN*2) / model.getNumberOfRows();
+        // Lines run to the edge of the window, and past its last row or column when the board carries on
+        int right = cellLeft(firstColumn + visibleColumns);
+        int bottom = cellTop(firstRow + visibleRows);
+        int lastRowLine = firstRow + visibleRows < frameRows ? visibleRows : visibleRows - 1;
+        int lastColumnLine = firstColumn + visibleColumns < frameColumns ? visibleColumns : visibleColumns - 1;
 
         // Draw horizontal lines
         g.setColor(Color.BLACK);
-        for (int i = 0; i < model.getNumberOfRows() - 1; i++) {
-            g.drawLine(MARGIN, (int)(MARGIN+vertSpacing*(i+1)), getWidth()-MARGIN, (int)(MARGIN+vertSpacing*(i+1)));
+        for (int i = 0; i < lastRowLine; i++) {
+            g.drawLine(MARGIN, cellTop(firstRow + i + 1), right, cellTop(firstRow + i + 1));
         }
         // Draw vertical lines
-        for (int i = 0; i < model.getNumberOfColumns() - 1; i++) {
-            g.drawLine((int)(MARGIN+horiSpacing*(i+1)), MARGIN, (int)(MARGIN+horiSpacing*(i+1)), getHeight()-MARGIN);
+        for (int i = 0; i < lastColumnLine; i++) {
+            g.drawLine(cellLeft(firstColumn + i + 1), MARGIN, cellLeft(firstColumn + i + 1), bottom);
         }
 
         // Draw the row labels
         g.setColor(Color.LIGHT_GRAY);
-        for (int i = 0; i < model.getNumberOfRows(); i++) {
-            g.drawString("" + (char)('a'+i), MARGIN/2, (int)(MARGIN-2+(FONT_SIZE/2.0f)+vertSpacing*(i+0.5)));
+        StringBuilder label = new StringBuilder();
+        for (int i = firstRow; i < firstRow + visibleRows; i++) {
+            label.setLength(0);
+            OXOCommandParser.appendRowLabel(label, i);
+            g.drawString(label.toString(), MARGIN / 2 - metrics.stringWidth(label.toString()) / 2,
+                    (int) (cellTop(i) + vertSpacing / 2 + metrics.getAscent() / 2.0f - 2));
         }
 
         // Draw the column labels
-        g.setColor(Color.LIGHT_GRAY);
-        for (int i = 0; i < model.getNumberOfColumns(); i++) {
-            g.drawString("" + (char)('1'+i), (int)(MARGIN+2-(FONT_SIZE/2.0f)+horiSpacing*(i+0.5)), (int)((MARGIN/2)+(FONT_SIZE/2.0f)));
+        for (int i = firstColumn; i < firstColumn + visibleColumns; i++) {
+            String number = Integer.toString(i + 1);
+            g.drawString(number, (int) (cellLeft(i) + horiSpacing / 2 - metrics.stringWidth(number) / 2.0f),
+                    (int) (MARGIN / 2 + metrics.getAscent() / 2.0f));
         }
+        g.dispose();
+        return image;
+    }
 
-        // Draw the board state
+    private void drawDirtyCells() {
+        long[] cells;
+        int count;
+        boolean all;
+        synchronized (this) {
+            cells = dirtyCells;
+            dirtyCells = drawingCells;
+            drawingCells = cells;
+            count = numberOfDirtyCells;
+            all = allDirty;
+            numberOfDirtyCells = 0;
+            allDirty = false;
+        }
+        Graphics2D g = frame.createGraphics();
+        g.setFont(cellFont);
         g.setColor(Color.BLACK);
-        for (int colNumber = 0; colNumber < model.getNumberOfColumns(); colNumber++) {
-            for (int rowNumber = 0; rowNumber < model.getNumberOfRows(); rowNumber++) {
-                int xpos = (int) (((float) MARGIN) + 2 - (FONT_SIZE / 2) + (horiSpacing * (colNumber + 0.5f)));
-                int ypos = (int) (((float) MARGIN) + (FONT_SIZE / 2) + (vertSpacing * (rowNumber + 0.5f)));
-                OXOPlayer cellOwner = model.getCellOwner(rowNumber, colNumber);
-                if (cellOwner != null) g.drawString("" + cellOwner.getPlayingLetter(), xpos, ypos);
+        cellsPainted = 0;
+        if (all) {
+            g.drawImage(background, 0, 0, null);
+            for (int colNumber = firstColumn; colNumber < firstColumn + visibleColumns; colNumber++) {
+                for (int rowNumber = firstRow; rowNumber < firstRow + visibleRows; rowNumber++) {
+                    if (drawLetter(g, rowNumber, colNumber)) cellsPainted++;
+                }
             }
         }
-        String message;
-        if (model.getWinner() != null) message = "Player " + model.getWinner().getPlayingLetter() + " is the winner !";
-        else if (model.isGameDrawn()) message = "Stalemate - game is a draw !";
-        else message = "Player " + model.getPlayerByNumber(model.getCurrentPlayerNumber()).getPlayingLetter() + "'s turn";
+        else {
+            for (int i = 0; i < count; i++) {
+                int rowNumber = (int) (cells[i] >>> 32);
+                int colNumber = (int) cells[i];
+                if (!isVisible(rowNumber, colNumber)) continue;
+                // Put back the grid under the cell, then its letter if it has one
+                int left = cellLeft(colNumber);
+                int top = cellTop(rowNumber);
+                int right = cellLeft(colNumber + 1);
+                int bottom = cellTop(rowNumber + 1);
+                g.drawImage(background, left, top, right, bottom, left, top, right, bottom, null);
+                drawLetter(g, rowNumber, colNumber);
+                cellsPainted++;
+            }
+        }
+        g.dispose();
+    }
 
-        // Draw the message near the bottom of the screen
-        g.setColor(Color.BLACK);
-        g.drawString(message, 7, getHeight() - 10);
+    private boolean drawLetter(Graphics2D g, int rowNumber, int colNumber) {
+        OXOPlayer cellOwner = model.getCellOwner(rowNumber, colNumber);
+        if (cellOwner == null) return false;
+        int fontSize = cellFont.getSize();
+        int xpos = (int) (cellLeft(colNumber) + 2 - (fontSize / 2) + horiSpacing * 0.5f);
+        int ypos = (int) (cellTop(rowNumber) + (fontSize / 2) + vertSpacing * 0.5f);
+        g.drawString("" + cellOwner.getPlayingLetter(), xpos, ypos);
+        return true;
+    }
+
+    private boolean isVisible(int rowNumber, int colNumber) {
+        return rowNumber >= firstRow && rowNumber < firstRow + visibleRows && rowNumber < frameRows
+                && colNumber >= firstColumn && colNumber < firstColumn + visibleColumns && colNumber < frameColumns;
+    }
+
+    private synchronized void markDirty(int rowNumber, int colNumber) {
+        if (!isVisible(rowNumber, colNumber)) return;
+        if (!allDirty) {
+            // Past a quarter of the window it is as cheap to redraw everything, so the whole board goes to the screen
+            if (numberOfDirtyCells >= Math.max(16, visibleRows * visibleColumns / 4)) {
+                markAllDirty();
+                repaint(0, 0, getWidth(), getHeight() - STATUS_HEIGHT);
+                return;
+            }
+            if (numberOfDirtyCells == dirtyCells.length) dirtyCells = Arrays.copyOf(dirtyCells, dirtyCells.length * 2);
+            dirtyCells[numberOfDirtyCells++] = ((long) rowNumber << 32) | colNumber;
+        }
+        // Even when everything is being redrawn, only the regions asked for reach the screen
+        repaint(cellLeft(colNumber), cellTop(rowNumber), cellLeft(colNumber + 1) - cellLeft(colNumber) + 1, cellTop(rowNumber + 1) - cellTop(rowNumber) + 1);
+    }
+
+    private void repaintStatus() {
+        repaint(0, getHeight() - STATUS_HEIGHT, getWidth(), STATUS_HEIGHT);
+    }
+
+    private synchronized void markAllDirty() {
+        allDirty = true;
+        numberOfDirtyCells = 0;
+    }
+
+    private int cellLeft(int colNumber) {
+        return (int) (MARGIN + horiSpacing * (colNumber - firstColumn));
+    }
+
+    private int cellTop(int rowNumber) {
+        return (int) (MARGIN + vertSpacing * (rowNumber - firstRow));
     }
 }
@@ -0,0 +1,108 @@
+package edu.uob;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Blocking alternative to OXOServer with the same line protocol: every connection gets a virtual thread that
+// reads lines with plain blocking I/O, and every game runs on its own OXOSessionLoop thread.
+public class OXOVirtualThreadServer implements Closeable {
+
+    private final OXOSessionRegistry registry = new OXOSessionRegistry();
+    private final ConcurrentHashMap<Long, OXOSessionLoop> loops = new ConcurrentHashMap<>();
+    private final ServerSocket serverSocket;
+    private Thread acceptor;
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        OXOVirtualThreadServer server = new OXOVirtualThreadServer(args.length > 0 ? Integer.parseInt(args[0]) : 7070);
+        server.start();
+        System.out.println("OXO server listening on port " + server.getPort() + " with a virtual thread per session");
+        try {
+            server.acceptor.join();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public OXOVirtualThreadServer(int port) throws IOException {
+        serverSocket = new ServerSocket(port);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public OXOSessionRegistry getRegistry() {
+        return registry;
+    }
+
+    public void start() {
+        acceptor = Thread.ofVirtual().name("oxo-acceptor").start(this::acceptConnections);
+    }
+
+    public void close() throws IOException {
+        serverSocket.close();
+        loops.values().forEach(OXOSessionLoop::close);
+    }
+
+    private void acceptConnections() {
+        try {
+            while (!serverSocket.isClosed()) {
+                Socket socket = serverSocket.accept();
+                Thread.ofVirtual().start(() -> serve(socket));
+            }
+        } catch (IOException exception) {
+            // Closing the server socket ends the accept loop
+        }
+    }
+
+    private void serve(Socket socket) {
+        OXOSessionLoop current = null;
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.ISO_8859_1);
+            StringBuilder reply = new StringBuilder();
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                reply.setLength(0);
+                if (OXOSessionRegistry.isLobbyCommand(line)) {
+                    OXOGameSession session = registry.execute(line, reply);
+                    if (session != null) {
+                        OXOSessionLoop previous = current;
+                        current = loops.computeIfAbsent(session.getId(), id -> new OXOSessionLoop(session));
+                        leave(previous);
+                    }
+                } else if (current == null) {
+                    reply.append("ERROR Send CREATE or JOIN first");
+                } else {
+                    reply.append(current.execute(line));
+                }
+                out.append(reply).append('\n').flush();
+            }
+        } catch (IOException exception) {
+            // Client went away
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } finally {
+            leave(current);
+        }
+    }
+
+    private void leave(OXOSessionLoop loop) {
+        if (loop == null) return;
+        // A pooled session gets a new id once it is released
+        long id = loop.getSession().getId();
+        if (registry.release(loop.getSession())) {
+            loops.remove(id, loop);
+            loop.close();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardTests {
+
+  OXOBoard makeBoard(int rows, int columns) {
+    return new OXOBitBoard(rows, columns);
+  }
+
+  @Test
+  void testClaimAndClear() {
+    OXOBoard board = makeBoard(3, 3);
+    assertEquals(OXOBoard.EMPTY, board.getOwner(1, 1), "New board should be empty");
+    board.setOwner(1, 1, 0);
+    board.setOwner(2, 0, 2);
+    assertEquals(0, board.getOwner(1, 1), "Cell b2 wasn't claimed by player 0");
+    assertEquals(2, board.getOwner(2, 0), "Cell c1 wasn't claimed by player 2");
+    assertEquals(2, board.getNumberOfClaimedCells(), "Claimed cell count is wrong");
+    board.setOwner(1, 1, 1);
+    assertEquals(1, board.getOwner(1, 1), "Reclaiming a cell should replace its owner");
+    assertEquals(2, board.getNumberOfClaimedCells(), "Reclaiming a cell shouldn't change the count");
+    board.setOwner(1, 1, OXOBoard.EMPTY);
+    assertEquals(OXOBoard.EMPTY, board.getOwner(1, 1), "Cell b2 wasn't cleared");
+    assertEquals(1, board.getNumberOfClaimedCells(), "Claimed cell count is wrong after clearing");
+    assertThrows(IndexOutOfBoundsException.class, ()-> board.getOwner(3, 0), "Reading outside the board should fail");
+  }
+
+  @Test
+  void testManyPlayers() {
+    OXOBoard board = makeBoard(3, 3);
+    board.setOwner(0, 0, 127);
+    board.setOwner(1, 1, 260);
+    board.setOwner(2, 2, 255);
+    assertEquals(127, board.getOwner(0, 0));
+    assertEquals(260, board.getOwner(1, 1), "Player numbers past a byte shouldn't wrap");
+    assertEquals(255, board.getOwner(2, 2), "Player 255 isn't an empty cell");
+    assertEquals(3, board.getNumberOfClaimedCells());
+    assertTrue(board.hasLine(260, 1));
+    for (int i = 0; i < 20; i++) board.addColumn();
+    assertEquals(260, board.getOwner(1, 1), "Owners should survive growing the board");
+  }
+
+  @Test
+  void testResizeKeepsCells() {
+    OXOBoard board = makeBoard(3, 3);
+    board.setOwner(0, 0, 0);
+    board.setOwner(2, 2, 1);
+    for (int i = 0; i < 40; i++) board.addColumn();
+    for (int i = 0; i < 40; i++) board.addRow();
+    assertEquals(43, board.getNumberOfRows());
+    assertEquals(43, board.getNumberOfColumns());
+    assertEquals(0, board.getOwner(0, 0), "Cell a1 was lost while growing the board");
+    assertEquals(1, board.getOwner(2, 2), "Cell c3 was lost while growing the board");
+    board.setOwner(42, 42, 0);
+    for (int i = 0; i < 40; i++) board.removeRow();
+    for (int i = 0; i < 40; i++) board.removeColumn();
+    assertEquals(2, board.getNumberOfClaimedCells(), "Removed cells should no longer count as claimed");
+    board.addRow();
+    board.addColumn();
+    assertEquals(OXOBoard.EMPTY, board.getOwner(3, 3), "A removed cell came back when the board grew again");
+  }
+
+  @Test
+  void testClearEmptiesAndResizes() {
+    OXOBoard board = makeBoard(3, 3);
+    for (int i = 0; i < 7; i++) board.addColumn();
+    for (int i = 0; i < 7; i++) board.addRow();
+    board.setOwner(0, 0, 0);
+    board.setOwner(9, 9, 1);
+    board.setOwner(5, 2, 1);
+    board.clear(4, 5);
+    assertEquals(4, board.getNumberOfRows());
+    assertEquals(5, board.getNumberOfColumns());
+    assertEquals(0, board.getNumberOfClaimedCells(), "Clearing should empty the board");
+    for (int row = 0; row < 4; row++) {
+      for (int col = 0; col < 5; col++) assertEquals(OXOBoard.EMPTY, board.getOwner(row, col));
+    }
+    assertFalse(board.hasLine(1, 1), "Cells from before the clear shouldn't count towards lines");
+    assertThrows(IndexOutOfBoundsException.class, ()-> board.getOwner(4, 0));
+
+    board.clear(2, 80);
+    for (int col = 77; col < 80; col++) board.setOwner(1, col, 0);
+    board.setOwner(0, 79, 1);
+    assertTrue(board.hasLine(0, 3));
+    assertFalse(board.hasLine(0, 4), "A line shouldn't wrap onto the next row after widening");
+    assertEquals(1, board.getOwner(0, 79));
+  }
+
+  @Test
+  void testLinesInEveryDirection() {
+    OXOBoard board = makeBoard(5, 5);
+    board.setOwner(0, 4, 0);
+    board.setOwner(1, 3, 0);
+    assertFalse(board.hasLine(0, 3), "Two cells shouldn't make a line of three");
+    board.setOwner(2, 2, 0);
+    assertTrue(board.hasLine(0, 3), "Anti-diagonal line wasn't found");
+    assertFalse(board.hasLine(1, 1), "Player without cells shouldn't have a line");
+
+    board = makeBoard(5, 5);
+    for (int row = 1; row < 5; row++) board.setOwner(row, 2, 1);
+    assertTrue(board.hasLine(1, 4), "Vertical line wasn't found");
+    assertFalse(board.hasLine(1, 5), "Vertical line is too long");
+
+    board = makeBoard(5, 5);
+    for (int i = 0; i < 4; i++) board.setOwner(i + 1, i, 0);
+    assertTrue(board.hasLine(0, 4), "Diagonal line wasn't found");
+  }
+
+  @Test
+  void testLinesDoNotWrapRows() {
+    OXOBoard board = makeBoard(4, 4);
+    board.setOwner(0, 2, 0);
+    board.setOwner(0, 3, 0);
+    board.setOwner(1, 0, 0);
+    assertFalse(board.hasLine(0, 3), "A row line wrapped onto the next row");
+    board.setOwner(1, 1, 0);
+    board.setOwner(2, 3, 0);
+    board.setOwner(3, 0, 0);
+    assertFalse(board.hasLine(0, 3), "A diagonal line wrapped around the board edge");
+    board.addColumn();
+    board.setOwner(0, 4, 0);
+    assertTrue(board.hasLine(0, 3), "Row line wasn't found after adding a column");
+  }
+}
@@ -0,0 +1,207 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BroadcastTests {
+
+  private static OXOGameSession makeSession() {
+    OXOModel model = new OXOModel(3, 3, 3);
+    model.addPlayer(new OXOPlayer('X'));
+    model.addPlayer(new OXOPlayer('O'));
+    return new OXOGameSession(1, model);
+  }
+
+  private static String run(OXOGameSession session, String line) {
+    StringBuilder reply = new StringBuilder();
+    session.execute(line, reply);
+    return reply.toString();
+  }
+
+  private static OXOModel drain(OXOBroadcaster.Subscription subscription, OXOModel replica) {
+    for (ByteBuffer frame = subscription.poll(); frame != null; frame = subscription.poll()) replica = OXOBroadcaster.apply(frame, replica);
+    return replica;
+  }
+
+  private static String board(OXOModel model) {
+    ByteBuffer buffer = ByteBuffer.allocate(OXOSnapshotCodec.encodedSize(model));
+    OXOSnapshotCodec.write(model, buffer);
+    return Arrays.toString(buffer.array());
+  }
+
+  @Test
+  void testSpectatorsFollowTheGame() {
+    OXOGameSession session = makeSession();
+    OXOBroadcaster broadcaster = new OXOBroadcaster(session.getModel(), OXOBroadcaster.SlowConsumerPolicy.RESYNC);
+    OXOBroadcaster.Subscription subscription = broadcaster.subscribe(100);
+    ByteBuffer first = subscription.poll();
+    assertEquals(OXOBroadcaster.SNAPSHOT, first.get(0), "Subscribers should start with the whole game");
+    OXOModel replica = OXOBroadcaster.apply(first, null);
+
+    run(session, "b2");
+    ByteBuffer move = subscription.poll();
+    assertEquals(OXOBroadcaster.DELTA, move.get(0));
+    assertEquals(1, OXOBroadcaster.sequenceOf(move));
+    assertTrue(move.remaining() <= 8, "A move should be a few bytes, not " + move.remaining());
+    replica = OXOBroadcaster.apply(move, replica);
+    assertEquals(board(session.getModel()), board(replica));
+
+    run(session, "RESIZE 5 6");
+    assertEquals(1, subscription.getNumberOfQueuedFrames(), "A resize is one command, so one frame");
+    for (String line : new String[] {"THRESHOLD 4", "a1", "e6", "zz", "a2", "RESET", "c3", "a1", "b1", "a2", "b2", "a3"}) run(session, line);
+    replica = drain(subscription, replica);
+    assertEquals(board(session.getModel()), board(replica));
+    assertEquals(1, replica.getPlayerNumber(replica.getWinner()), "O should have won down the first column");
+    assertEquals(13, broadcaster.getSequence(), "The rejected move shouldn't have sent anything");
+  }
+
+  @Test
+  void testDeltasReachAcrossSparseBoards() {
+    OXOModel model = new OXOModel(new OXOSparseBoard(10, 100_000), 5);
+    model.addPlayer(new OXOPlayer('X'));
+    model.addPlayer(new OXOPlayer('O'));
+    OXOBroadcaster broadcaster = new OXOBroadcaster(model, OXOBroadcaster.SlowConsumerPolicy.RESYNC);
+    OXOBroadcaster.Subscription subscription = broadcaster.subscribe(10);
+    OXOModel replica = OXOBroadcaster.apply(subscription.poll(), null);
+    model.beginBatch();
+    model.setCellOwnerNumber(9, 70_000, 1);
+    model.setCurrentPlayerNumber(0);
+    model.endBatch();
+    ByteBuffer delta = subscription.poll();
+    assertEquals(OXOBroadcaster.DELTA, delta.get(0));
+    replica = OXOBroadcaster.apply(delta, replica);
+    assertEquals(1, replica.getCellOwnerNumber(9, 70_000));
+    assertEquals(1, replica.getNumberOfClaimedCells());
+  }
+
+  @Test
+  void testSlowSpectatorsAreResynced() {
+    OXOGameSession session = makeSession();
+    OXOBroadcaster broadcaster = new OXOBroadcaster(session.getModel(), OXOBroadcaster.SlowConsumerPolicy.RESYNC);
+    OXOBroadcaster.Subscription slow = broadcaster.subscribe(2);
+    OXOBroadcaster.Subscription keen = broadcaster.subscribe(2);
+    OXOModel keenReplica = drain(keen, null);
+    for (String line : new String[] {"a1", "b1", "a2", "b2"}) {
+      run(session, line);
+      keenReplica = drain(keen, keenReplica);
+    }
+    assertEquals(1, slow.getNumberOfQueuedFrames(), "Everything the slow spectator missed is replaced by one snapshot");
+    ByteBuffer frame = slow.poll();
+    assertEquals(OXOBroadcaster.SNAPSHOT, frame.get(0));
+    assertEquals(broadcaster.getSequence(), OXOBroadcaster.sequenceOf(frame));
+    assertEquals(board(session.getModel()), board(OXOBroadcaster.apply(frame, null)));
+    assertEquals(board(session.getModel()), board(keenReplica));
+    assertEquals(2, broadcaster.getResyncs());
+    assertEquals(2, broadcaster.getNumberOfSubscribers());
+  }
+
+  @Test
+  void testSlowSpectatorsCanBeDropped() {
+    OXOGameSession session = makeSession();
+    OXOBroadcaster broadcaster = new OXOBroadcaster(session.getModel(), OXOBroadcaster.SlowConsumerPolicy.DROP);
+    OXOBroadcaster.Subscription slow = broadcaster.subscribe(2);
+    OXOBroadcaster.Subscription leaving = broadcaster.subscribe(2);
+    leaving.close();
+    run(session, "a1");
+    run(session, "b1");
+    assertTrue(slow.isClosed());
+    assertNull(OXOBroadcaster.apply(slow.poll(), null), "Dropped spectators are told so");
+    assertEquals(1, broadcaster.getDrops(), "Spectators that left aren't counted as dropped");
+    assertEquals(0, broadcaster.getNumberOfSubscribers());
+  }
+
+  // Plays a game to 10,000 spectators, each reading frames on its own virtual thread, and reports how many frames
+  // a second reach them and how long after the move they arrive. Flooding plays moves as fast as the controller
+  // takes them, so spectators fall behind and the slow consumer policy kicks in; pacing plays 25 moves a second.
+  @Test
+  @Tag("stress")
+  void testFanOutToManySpectators(TestReporter reporter) {
+    assertTimeoutPreemptively(Duration.ofSeconds(120), ()-> {
+      fanOut(reporter, OXOBroadcaster.SlowConsumerPolicy.DROP, 20, 0);
+      fanOut(reporter, OXOBroadcaster.SlowConsumerPolicy.RESYNC, 20, 0);
+      fanOut(reporter, OXOBroadcaster.SlowConsumerPolicy.DROP, 8, 40);
+    });
+  }
+
+  private static void fanOut(TestReporter reporter, OXOBroadcaster.SlowConsumerPolicy policy, int size, long pauseMillis) throws Exception {
+    int watchers = 10_000;
+    OXOModel model = new OXOModel(size, size, size);
+    model.addPlayer(new OXOPlayer('X'));
+    model.addPlayer(new OXOPlayer('O'));
+    OXOController controller = new OXOController(model);
+    OXOBroadcaster broadcaster = new OXOBroadcaster(model, policy);
+    int moves = size * size;
+    long[] movedAt = new long[moves + 1];
+    OXOBroadcaster.Subscription[] subscriptions = new OXOBroadcaster.Subscription[watchers];
+    for (int i = 0; i < watchers; i++) subscriptions[i] = broadcaster.subscribe(64);
+
+    long elapsed;
+    long[][] latencies = new long[watchers][];
+    try (ExecutorService spectators = Executors.newVirtualThreadPerTaskExecutor()) {
+      List<Future<OXOModel>> replicas = new ArrayList<>();
+      for (int i = 0; i < watchers; i++) {
+        int watcher = i;
+        replicas.add(spectators.submit(()-> {
+          long[] seen = new long[moves];
+          int count = 0;
+          OXOModel replica = null;
+          while (true) {
+            ByteBuffer frame = subscriptions[watcher].take();
+            long now = System.nanoTime();
+            long sequence = OXOBroadcaster.sequenceOf(frame);
+            replica = OXOBroadcaster.apply(frame, replica);
+            if (replica == null) break;
+            if (sequence > 0) seen[count++] = now - movedAt[(int) sequence];
+            if (sequence == moves) break;
+          }
+          latencies[watcher] = Arrays.copyOf(seen, count);
+          return replica;
+        }));
+      }
+      long start = System.nanoTime();
+      // Fills the board row by row, swapping neighbouring cells in every other pair of rows so no row, column or
+      // diagonal ends up all one player's
+      OXOMoveResult result = null;
+      for (int move = 0; move < moves; move++) {
+        if (pauseMillis > 0) Thread.sleep(pauseMillis);
+        movedAt[move + 1] = System.nanoTime();
+        int row = move / size;
+        int col = move % size;
+        result = controller.tryMove(row, (row / 2) % 2 == 0 ? col : col ^ 1);
+      }
+      assertEquals(OXOMoveResult.DRAWN, result);
+      for (Future<OXOModel> replica : replicas) {
+        OXOModel watched = replica.get();
+        if (watched != null) assertEquals(board(model), board(watched));
+      }
+      elapsed = System.nanoTime() - start;
+    }
+    assertEquals(moves, broadcaster.getSequence());
+    if (policy == OXOBroadcaster.SlowConsumerPolicy.RESYNC) assertEquals(0, broadcaster.getDrops(), "Resyncing never drops anyone");
+    else assertEquals(0, broadcaster.getResyncs(), "Dropping never resyncs anyone");
+    long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+    long frames = all.length * 1_000_000_000L / elapsed;
+    if (pauseMillis > 0) {
+      assertEquals(0, broadcaster.getDrops(), "Nobody should fall behind a paced game");
+      assertEquals((long) watchers * moves, all.length, "Every spectator should see every move of a paced game");
+      assertTrue(all[all.length / 2] < pauseMillis * 1_000_000, "Most moves should reach spectators before the next one is played");
+    } else {
+      assertTrue(all.length > 0, "Spectators should see moves even when flooded, not just the first snapshot");
+    }
+    reporter.publishEntry(policy + (pauseMillis == 0 ? " flood" : " " + 1000 / pauseMillis + " moves/s"),
+        String.format("%d watchers, %d frames/s, p50 %d us, p99 %d us, p999 %d us, max %d us, %d resyncs, %d drops", watchers, frames,
+            all[all.length / 2] / 1000, all[all.length * 99 / 100] / 1000, all[(int) (all.length * 999L / 1000)] / 1000,
+            all[all.length - 1] / 1000, broadcaster.getResyncs(), broadcaster.getDrops()));
+  }
+}
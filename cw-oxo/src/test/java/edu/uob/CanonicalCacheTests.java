@@ -0,0 +1,78 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CanonicalCacheTests {
+
+  private static OXOModel makeModel(int rows, int cols, int threshold, String moves) {
+    OXOModel model = new OXOModel(rows, cols, threshold);
+    model.addPlayer(new OXOPlayer('X'));
+    model.addPlayer(new OXOPlayer('O'));
+    assertEquals(0, new OXOController(model).applyMoves(moves).getNumberOfRejectedMoves());
+    return model;
+  }
+
+  @Test
+  void testSymmetricPositionsShareAKey() {
+    OXOCanonicalKey key = OXOCanonicalKey.of(makeModel(3, 3, 3, "a1 b2 a2"));
+    assertEquals(key, OXOCanonicalKey.of(makeModel(3, 3, 3, "c3 b2 c2")), "Rotating the board shouldn't change the key");
+    assertEquals(key, OXOCanonicalKey.of(makeModel(3, 3, 3, "a3 b2 a2")), "Reflecting the board shouldn't change the key");
+    assertEquals(key, OXOCanonicalKey.of(makeModel(3, 3, 3, "a1 b2 b1")), "Transposing the board shouldn't change the key");
+    assertEquals(key.hashCode(), OXOCanonicalKey.of(makeModel(3, 3, 3, "c1 b2 b1")).hashCode());
+    assertNotEquals(key, OXOCanonicalKey.of(makeModel(3, 3, 3, "a1 b2 a3")));
+    assertNotEquals(key, OXOCanonicalKey.of(makeModel(3, 3, 4, "a1 b2 a2")), "The threshold is part of the key");
+    OXOModel otherTurn = makeModel(3, 3, 3, "a1 b2 a2");
+    otherTurn.setCurrentPlayerNumber(0);
+    assertNotEquals(key, OXOCanonicalKey.of(otherTurn), "The player to move is part of the key");
+  }
+
+  @Test
+  void testTurnedBoardsAndMoveMapping() {
+    OXOModel wide = makeModel(3, 4, 3, "a1 c4 b1");
+    OXOModel tall = makeModel(4, 3, 3, "a1 d3 a2");
+    OXOCanonicalKey wideKey = OXOCanonicalKey.of(wide);
+    OXOCanonicalKey tallKey = OXOCanonicalKey.of(tall);
+    assertEquals(wideKey, tallKey, "A board on its side is the same game");
+    assertTrue(wideKey.getNumberOfRows() <= wideKey.getNumberOfColumns());
+    // c1 finishes the column on the wide board, and a3 is the same cell on the tall one
+    int wideMove = wideKey.toCanonicalMove(OXOController.encodeMove(2, 0));
+    assertEquals(wideMove, tallKey.toCanonicalMove(OXOController.encodeMove(0, 2)));
+    assertEquals(OXOController.encodeMove(0, 2), tallKey.fromCanonicalMove(wideMove));
+    for (int row = 0; row < 4; row++) {
+      for (int col = 0; col < 3; col++) {
+        int move = OXOController.encodeMove(row, col);
+        assertEquals(move, tallKey.fromCanonicalMove(tallKey.toCanonicalMove(move)), "Moves should round-trip");
+        int canonical = tallKey.toCanonicalMove(move);
+        assertEquals(tall.getCellOwnerNumber(row, col), tallKey.getOwner(OXOController.decodeRow(canonical), OXOController.decodeColumn(canonical)));
+      }
+    }
+  }
+
+  @Test
+  void testCacheEvictsAndCounts() {
+    OXOEvaluationCache<String> cache = new OXOEvaluationCache<>(2, 1);
+    OXOCanonicalKey first = OXOCanonicalKey.of(makeModel(3, 3, 3, "a1"));
+    OXOCanonicalKey second = OXOCanonicalKey.of(makeModel(3, 3, 3, "b2"));
+    OXOCanonicalKey third = OXOCanonicalKey.of(makeModel(3, 3, 3, "a2"));
+    assertEquals("first", cache.get(first, key -> "first"));
+    assertEquals("second", cache.get(second, key -> "second"));
+    assertEquals("first", cache.get(OXOCanonicalKey.of(makeModel(3, 3, 3, "c3")), key -> "wrong"), "A corner is a corner");
+    cache.put(third, "third");
+    assertNull(cache.get(second), "The least recently used entry should have gone");
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.getEvictions());
+    assertEquals(1, cache.getHits());
+    assertEquals(3, cache.getMisses());
+  }
+
+  @Test
+  void testCachedEngineAnswersRotations() {
+    OXOCachedEngine engine = new OXOCachedEngine(new OXOAlphaBetaEngine(200), new OXOEvaluationCache<>(1000));
+    assertEquals(OXOController.encodeMove(0, 2), engine.chooseMove(makeModel(3, 3, 3, "a1 b1 a2 b2")));
+    // The same position turned a quarter turn: X has a1 and b1, so the winning cell is c1
+    assertEquals(OXOController.encodeMove(2, 0), engine.chooseMove(makeModel(3, 3, 3, "a1 a2 b1 b2")));
+    assertEquals(1, engine.getCache().getHits(), "The second position should have come from the cache");
+  }
+}
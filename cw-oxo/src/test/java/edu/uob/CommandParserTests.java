@@ -0,0 +1,76 @@
+package edu.uob;
+
+import edu.uob.OXOMoveException.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandParserTests {
+  private OXOCommandParser parser;
+
+  @BeforeEach
+  void setup() {
+    parser = new OXOCommandParser();
+  }
+
+  @Test
+  void testSpreadsheetRows() throws OXOMoveException {
+    parser.parse("a1", 1000, 1000);
+    assertEquals(0, parser.getRow());
+    assertEquals(0, parser.getColumn());
+    parser.parse("z10", 1000, 1000);
+    assertEquals(25, parser.getRow(), "Row z should be the 26th row");
+    assertEquals(9, parser.getColumn());
+    parser.parse("AA123", 1000, 1000);
+    assertEquals(26, parser.getRow(), "Row aa should come straight after z");
+    assertEquals(122, parser.getColumn());
+    parser.parse("aLl999", 1000, 1000);
+    assertEquals(999, parser.getRow(), "Row all should be the 1000th row");
+    assertEquals(998, parser.getColumn());
+    assertEquals("all999", OXOCommandParser.cellName(999, 998), "Cell names should round-trip through the parser");
+    assertEquals("z1", OXOCommandParser.cellName(25, 0));
+    assertEquals("aa27", OXOCommandParser.cellName(26, 26));
+  }
+
+  @Test
+  void testByteBufferAndSubSequence() throws OXOMoveException {
+    ByteBuffer buffer = ByteBuffer.wrap("ab12".getBytes(StandardCharsets.US_ASCII));
+    parser.parse(buffer, 100, 100);
+    assertEquals(27, parser.getRow());
+    assertEquals(11, parser.getColumn());
+    assertEquals(0, buffer.position(), "Parsing shouldn't move the buffer position");
+    parser.parse("c3 b2 a1", 3, 5, 3, 3);
+    assertEquals(1, parser.getRow());
+    assertEquals(1, parser.getColumn());
+  }
+
+  @Test
+  void testIdentifierLengthDependsOnBoard() throws OXOMoveException {
+    assertThrows(InvalidIdentifierLengthException.class, ()-> parser.parse("a10", 3, 9), "Nine columns only need one digit");
+    assertThrows(OutsideCellRangeException.class, ()-> parser.parse("a11", 3, 10), "Column 11 is outside a ten column board");
+    assertThrows(InvalidIdentifierLengthException.class, ()-> parser.parse("aa1", 26, 9), "Twenty-six rows only need one letter");
+    assertThrows(OutsideCellRangeException.class, ()-> parser.parse("ab1", 27, 9), "Row ab is outside a 27 row board");
+    assertThrows(InvalidIdentifierCharacterException.class, ()-> parser.parse("a1b", 30, 30));
+    assertThrows(InvalidIdentifierCharacterException.class, ()-> parser.parse("ab", 30, 30));
+    assertThrows(InvalidIdentifierCharacterException.class, ()-> parser.parse("é1", 30, 30));
+  }
+
+  @Test
+  void testControllerOnLargeBoard() throws OXOMoveException {
+    OXOModel model = new OXOModel(new OXOSparseBoard(1000, 1000), 3);
+    model.addPlayer(new OXOPlayer('X'));
+    model.addPlayer(new OXOPlayer('O'));
+    OXOController controller = new OXOController(model);
+    OXOPlayer firstMovingPlayer = model.getPlayerByNumber(model.getCurrentPlayerNumber());
+    controller.handleIncomingCommand("zz500");
+    controller.handleIncomingCommand("a1");
+    controller.handleIncomingCommand("zz501");
+    controller.handleIncomingCommand(ByteBuffer.wrap("b1".getBytes(StandardCharsets.US_ASCII)));
+    controller.handleIncomingCommand(new StringBuilder("ZZ502"));
+    assertEquals(firstMovingPlayer, model.getCellOwner(701, 501), "Cell zz502 wasn't claimed by the first player");
+    assertEquals(firstMovingPlayer, model.getWinner(), "Row zz should be a win for the first player");
+  }
+}
@@ -0,0 +1,117 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentModelTests {
+
+  private static OXOConcurrentModel makeModel() {
+    OXOConcurrentModel model = new OXOConcurrentModel(3, 3, 3);
+    model.addPlayer(new OXOPlayer('X'));
+    model.addPlayer(new OXOPlayer('O'));
+    return model;
+  }
+
+  @Test
+  void testSnapshotsAreSharedUntilAChange() {
+    OXOConcurrentModel model = makeModel();
+    OXOController controller = new OXOController(model);
+    OXOConcurrentModel.Snapshot before = model.snapshot();
+    assertSame(before, model.snapshot(), "Nothing changed, so the same snapshot should come back");
+    controller.tryMove("b2");
+    OXOConcurrentModel.Snapshot after = model.snapshot();
+    assertNotSame(before, after);
+    assertTrue(after.getVersion() > before.getVersion());
+    assertEquals(0, after.getCellOwnerNumber(1, 1));
+    assertEquals(OXOBoard.EMPTY, before.getCellOwnerNumber(1, 1), "Old snapshots shouldn't change");
+    assertEquals(1, after.getCurrentPlayerNumber());
+    assertEquals('O', after.getPlayingLetter(1));
+    assertEquals(OXOBoard.EMPTY, after.getWinnerNumber());
+  }
+
+  @Test
+  void testSnapshotsOfManyPlayers() {
+    OXOConcurrentModel model = new OXOConcurrentModel(3, 3, 3);
+    for (int i = 0; i < 300; i++) model.addPlayer(new OXOPlayer((char) ('A' + i)));
+    model.setCellOwnerNumber(0, 0, 127);
+    model.setCellOwnerNumber(1, 1, 255);
+    model.setCellOwnerNumber(2, 2, 299);
+    OXOConcurrentModel.Snapshot snapshot = model.snapshot();
+    assertEquals(127, snapshot.getCellOwnerNumber(0, 0));
+    assertEquals(255, snapshot.getCellOwnerNumber(1, 1), "Player numbers past a byte shouldn't wrap");
+    assertEquals(299, snapshot.getCellOwnerNumber(2, 2));
+    assertEquals(3, snapshot.getNumberOfClaimedCells());
+  }
+
+  @Test
+  void testListenersCanTakeSnapshots() {
+    OXOConcurrentModel model = makeModel();
+    List<OXOConcurrentModel.Snapshot> seen = new ArrayList<>();
+    model.addListener(new OXOModelListener() {
+      public void batchEnded() {
+        seen.add(model.snapshot());
+      }
+    });
+    OXOController controller = new OXOController(model);
+    controller.tryMove("a1");
+    controller.applyMoves("b1 a2 b2 a3");
+    assertEquals(2, seen.size(), "A list of moves should arrive as one batch");
+    assertEquals(1, seen.get(0).getNumberOfClaimedCells());
+    OXOConcurrentModel.Snapshot last = seen.get(1);
+    assertEquals(0, last.getWinnerNumber());
+    assertEquals(5, last.getNumberOfClaimedCells());
+  }
+
+  @Test
+  void testReadersSeeWholeMoves() throws Exception {
+    OXOConcurrentModel model = makeModel();
+    OXOController controller = new OXOController(model);
+    AtomicBoolean playing = new AtomicBoolean(true);
+    AtomicReference<String> problem = new AtomicReference<>();
+    Thread[] readers = new Thread[3];
+    for (int t = 0; t < readers.length; t++) {
+      readers[t] = new Thread(() -> {
+        long lastVersion = -1;
+        while (playing.get() && problem.get() == null) {
+          OXOConcurrentModel.Snapshot snapshot = model.snapshot();
+          if (snapshot.getVersion() < lastVersion) problem.set("Versions went backwards");
+          lastVersion = snapshot.getVersion();
+          // X always moves first, so after whole moves X has as many cells as O or one more
+          int x = 0;
+          int o = 0;
+          for (int row = 0; row < snapshot.getNumberOfRows(); row++) {
+            for (int col = 0; col < snapshot.getNumberOfColumns(); col++) {
+              int owner = snapshot.getCellOwnerNumber(row, col);
+              if (owner == 0) x++;
+              else if (owner == 1) o++;
+            }
+          }
+          if (snapshot.getCurrentPlayerNumber() != (x == o ? 0 : 1) || x - o > 1 || x < o) {
+            problem.set("Saw " + x + " X, " + o + " O with player " + snapshot.getCurrentPlayerNumber() + " to move");
+          }
+        }
+      });
+      readers[t].start();
+    }
+    try {
+      for (int game = 0; game < 2000 && problem.get() == null; game++) {
+        int size = 3 + game % 4;
+        while (model.getNumberOfRows() < size) controller.addRow();
+        while (model.getNumberOfColumns() < size) controller.addColumn();
+        for (int cell = 0; cell < size * size && model.getWinner() == null && !model.isGameDrawn(); cell++) {
+          controller.tryMove(cell / size, cell % size);
+        }
+        controller.reset();
+      }
+    } finally {
+      playing.set(false);
+      for (Thread reader : readers) reader.join();
+    }
+    assertNull(problem.get(), problem.get());
+  }
+}
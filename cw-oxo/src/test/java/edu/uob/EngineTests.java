@@ -0,0 +1,165 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineTests {
+
+  private static OXOModel makeModel(int rows, int cols, int threshold, String letters) {
+    OXOModel model = new OXOModel(rows, cols, threshold);
+    for (char letter : letters.toCharArray()) model.addPlayer(new OXOPlayer(letter));
+    return model;
+  }
+
+  private static void play(OXOController controller, String moves) {
+    OXOBatchResult result = controller.applyMoves(moves);
+    assertEquals(0, result.getNumberOfRejectedMoves(), "Test moves should all be legal");
+  }
+
+  @Test
+  void testPositionMakeAndUnmake() {
+    OXOModel model = makeModel(4, 5, 3, "XOH");
+    OXOController controller = new OXOController(model);
+    play(controller, "a1 b2 c3");
+    OXOPosition position = new OXOPosition(model);
+    long hash = position.getHash();
+    assertEquals(0, position.getPlayerToMove());
+    assertEquals(2, position.getOwner(2 * 5 + 2), "Cell c3 should belong to the third player");
+    position.makeMove(19);
+    assertEquals(0, position.getOwner(19));
+    assertEquals(1, position.getPlayerToMove());
+    assertNotEquals(hash, position.getHash());
+    position.unmakeMove(19);
+    assertEquals(hash, position.getHash(), "Unmaking a move should restore the hash");
+    assertEquals(OXOBoard.EMPTY, position.getOwner(19));
+    assertEquals(hash, new OXOPosition(model).getHash(), "Equal positions should hash the same");
+  }
+
+  @Test
+  void testHashCoversShapeAndThreshold() {
+    long hash = new OXOPosition(3, 3, 3, 2).getHash();
+    assertNotEquals(hash, new OXOPosition(4, 3, 3, 2).getHash(), "An extra row changes how the game plays out");
+    assertNotEquals(hash, new OXOPosition(3, 3, 4, 2).getHash(), "So does a longer line to win");
+
+    // The same cells under a shorter threshold: X can now win next to a1, whatever the table says about threshold 3
+    OXOAlphaBetaEngine engine = new OXOAlphaBetaEngine(200);
+    OXOModel longer = makeModel(3, 3, 3, "XO");
+    play(new OXOController(longer), "a1 b2");
+    engine.chooseMove(longer);
+    OXOModel shorter = makeModel(3, 3, 2, "XO");
+    OXOController controller = new OXOController(shorter);
+    play(controller, "a1 b2");
+    int move = engine.chooseMove(shorter);
+    assertEquals(OXOMoveResult.WON, controller.tryMove(OXOController.decodeRow(move), OXOController.decodeColumn(move)));
+  }
+
+  @Test
+  void testTakesImmediateWin() {
+    OXOModel model = makeModel(3, 3, 3, "XO");
+    OXOController controller = new OXOController(model);
+    play(controller, "a1 b1 a2 b2");
+    int move = new OXOAlphaBetaEngine(200).chooseMove(model);
+    assertEquals(OXOController.encodeMove(0, 2), move, "X should complete the top row at a3");
+  }
+
+  @Test
+  void testBlocksThreat() {
+    OXOModel model = makeModel(3, 3, 3, "XO");
+    OXOController controller = new OXOController(model);
+    play(controller, "a1 b2 c3 c1");
+    int move = new OXOAlphaBetaEngine(200).chooseMove(model);
+    assertEquals(OXOController.encodeMove(0, 2), move, "X has to stop O's diagonal at a3");
+  }
+
+  @Test
+  void testPerfectPlayDraws() {
+    OXOModel model = makeModel(3, 3, 3, "XO");
+    OXOController controller = new OXOController(model);
+    OXOAlphaBetaEngine engine = new OXOAlphaBetaEngine(500);
+    while (model.getWinner() == null && !model.isGameDrawn()) {
+      int move = engine.chooseMove(model);
+      assertTrue(controller.tryMove(OXOController.decodeRow(move), OXOController.decodeColumn(move)).ordinal() < OXOMoveResult.GAME_OVER.ordinal());
+    }
+    assertNull(model.getWinner(), "Noughts and crosses is a draw when both sides play perfectly");
+  }
+
+  @Test
+  void testMorePlayersAndLongerLines() {
+    OXOModel model = makeModel(6, 7, 4, "XOH");
+    OXOController controller = new OXOController(model);
+    // H has c5, d5 and e5 with b5 already taken, so X has to block the other end
+    play(controller, "a1 b5 c5 a2 b2 d5 f7 f6 e5");
+    int move = new OXOAlphaBetaEngine(300).chooseMove(model);
+    assertEquals(OXOController.encodeMove(5, 4), move, "X should block H's column at f5");
+  }
+
+  @Test
+  void testMeetsDeadlineOnLargeBoard() {
+    OXOModel model = makeModel(19, 19, 5, "XO");
+    OXOController controller = new OXOController(model);
+    play(controller, "j10 j11 k10 k11 l12 i9");
+    OXOAlphaBetaEngine engine = new OXOAlphaBetaEngine(100);
+    long start = System.nanoTime();
+    int move = engine.chooseMove(model);
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+    assertTrue(elapsedMillis < 300, "Search took " + elapsedMillis + "ms on a 100ms budget");
+    assertTrue(engine.getCompletedDepth() >= 1, "At least one full search should fit in the budget");
+    assertEquals(OXOMoveResult.CLAIMED, controller.tryMove(OXOController.decodeRow(move), OXOController.decodeColumn(move)));
+  }
+
+  // A node here costs hundreds of thousands of cell visits, so counting a thousand nodes between looks at the clock
+  // would blow well past the budget
+  @Test
+  void testMeetsDeadlineOnHugeBoard() {
+    OXOModel model = makeModel(400, 400, 5, "XO");
+    OXOController controller = new OXOController(model);
+    play(controller, "gh200 gh201 gi200 gi201");
+    OXOAlphaBetaEngine engine = new OXOAlphaBetaEngine(20);
+    long start = System.nanoTime();
+    int move = engine.chooseMove(model);
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+    assertTrue(elapsedMillis < 150, "Search took " + elapsedMillis + "ms on a 20ms budget");
+    assertEquals(OXOMoveResult.CLAIMED, controller.tryMove(OXOController.decodeRow(move), OXOController.decodeColumn(move)));
+  }
+
+  @Test
+  void testMonteCarloBlocksThreat() {
+    OXOModel model = makeModel(3, 3, 3, "XO");
+    OXOController controller = new OXOController(model);
+    play(controller, "a1 b2 c3 c1");
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      int move = new OXOMonteCarloEngine(300, pool, 42).chooseMove(model);
+      assertEquals(OXOController.encodeMove(0, 2), move, "X has to stop O's diagonal at a3");
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  void testMonteCarloOnLargeBoard() {
+    OXOModel model = makeModel(15, 15, 5, "XO");
+    OXOController controller = new OXOController(model);
+    play(controller, "h8 g7 h9 g9 i8 j9");
+    OXOMonteCarloEngine engine = new OXOMonteCarloEngine(100);
+    long start = System.nanoTime();
+    int move = engine.chooseMove(model);
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+    assertTrue(elapsedMillis < 300, "Search took " + elapsedMillis + "ms on a 100ms budget");
+    assertTrue(engine.getLastPlayouts() > 0, "Some playouts should have finished");
+    assertTrue(engine.getPlayoutsPerSecond() > 0);
+    assertEquals(OXOMoveResult.CLAIMED, controller.tryMove(OXOController.decodeRow(move), OXOController.decodeColumn(move)));
+  }
+
+  @Test
+  void testMonteCarloBlocksFourInARow() {
+    OXOModel model = makeModel(15, 15, 5, "XO");
+    OXOController controller = new OXOController(model);
+    // O has c3 to c6 with c2 already taken, so X has to block at c7
+    play(controller, "h8 c3 c2 c4 h9 c5 m12 c6");
+    int move = new OXOMonteCarloEngine(300).chooseMove(model);
+    assertEquals(OXOController.encodeMove(2, 6), move, "X should block O's row at c7");
+  }
+}
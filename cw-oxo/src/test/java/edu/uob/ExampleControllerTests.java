@@ -115,6 +115,24 @@ class ExampleControllerTests {
     assertTrue(model.isGameDrawn(), failedTestComment);
   }
 
+  @Test
+  void testWinOnFinalCell() throws OXOMoveException {
+    OXOPlayer firstMovingPlayer = model.getPlayerByNumber(model.getCurrentPlayerNumber());
+    sendCommandToController("a1"); // First player
+    sendCommandToController("a2"); // Second player
+    sendCommandToController("a3"); // First player
+    sendCommandToController("b1"); // Second player
+    sendCommandToController("b3"); // First player
+    sendCommandToController("b2"); // Second player
+    sendCommandToController("c2"); // First player
+    sendCommandToController("c1"); // Second player
+    sendCommandToController("c3"); // First player - fills the board and completes column 3
+
+    String failedTestComment = "Winner was expected to be " + firstMovingPlayer.getPlayingLetter() + " but wasn't";
+    assertEquals(firstMovingPlayer, model.getWinner(), failedTestComment);
+    assertFalse(model.isGameDrawn(), "A winning final move shouldn't also be a draw");
+  }
+
   // Example of how to test for the throwing of exceptions
   @Test
   void testInvalidIdentifierException() throws OXOMoveException {
@@ -156,4 +174,56 @@ class ExampleControllerTests {
     // Check Player 2 cannot claim a cell they already own
     assertThrows(CellAlreadyTakenException.class, ()-> sendCommandToController("a1"), failedTestComment);
   }
+
+  @Test
+  void testTryMoveResults() {
+    assertEquals(OXOMoveResult.CLAIMED, controller.tryMove("a1"));
+    assertEquals(OXOMoveResult.CELL_TAKEN, controller.tryMove("a1"));
+    assertEquals(OXOMoveResult.INVALID_LENGTH, controller.tryMove("abc123"));
+    assertEquals(OXOMoveResult.INVALID_ROW_CHARACTER, controller.tryMove("13"));
+    assertEquals(OXOMoveResult.INVALID_COLUMN_CHARACTER, controller.tryMove("c."));
+    assertEquals(OXOMoveResult.ROW_OUT_OF_RANGE, controller.tryMove("d3"));
+    assertEquals(OXOMoveResult.COLUMN_OUT_OF_RANGE, controller.tryMove("a0"));
+    assertEquals(OXOMoveResult.CLAIMED, controller.tryMove(1, 0));
+    assertEquals(OXOMoveResult.CLAIMED, controller.tryMove("a2"));
+    assertEquals(OXOMoveResult.CLAIMED, controller.tryMove("b2"));
+    assertEquals(OXOMoveResult.WON, controller.tryMove("a3"));
+    assertEquals(OXOMoveResult.GAME_OVER, controller.tryMove("c3"));
+    assertNull(model.getCellOwner(2, 2), "No cell should be claimed after the game is won");
+  }
+
+  @Test
+  void testStacklessExceptions() throws OXOMoveException {
+    controller.setStacklessExceptions(true);
+    sendCommandToController("b2");
+    CellAlreadyTakenException taken = assertThrows(CellAlreadyTakenException.class, ()-> sendCommandToController("b2"));
+    assertEquals("Cell [1,1] has already been claimed", taken.getMessage());
+    assertEquals(0, taken.getStackTrace().length, "Stackless exceptions shouldn't capture a stack trace");
+    OutsideCellRangeException outside = assertThrows(OutsideCellRangeException.class, ()-> sendCommandToController("d1"));
+    assertEquals("Position 3 is out of range for ROW", outside.getMessage());
+    controller.setStacklessExceptions(false);
+    InvalidIdentifierCharacterException invalid = assertThrows(InvalidIdentifierCharacterException.class, ()-> sendCommandToController("b?"));
+    assertEquals("? is not a valid character for a COLUMN", invalid.getMessage());
+    assertNotEquals(0, invalid.getStackTrace().length, "Exceptions should capture a stack trace by default");
+  }
+
+  @Test
+  void testBatchMoves() {
+    OXOPlayer firstMovingPlayer = model.getPlayerByNumber(model.getCurrentPlayerNumber());
+    OXOBatchResult result = controller.applyMoves("  a1 b1\ta1 a2\nb2 a3 c3 c2 ");
+    assertEquals(6, result.getNumberOfMoves(), "Batch should stop at the winning move");
+    assertEquals(OXOMoveResult.CELL_TAKEN, result.getOutcome(2));
+    assertEquals(1, result.getNumberOfRejectedMoves());
+    assertEquals(OXOMoveResult.WON, result.getOutcome(5));
+    assertTrue(result.isGameOver());
+    assertEquals(firstMovingPlayer, model.getWinner(), "Winner was expected to be " + firstMovingPlayer.getPlayingLetter() + " but wasn't");
+    assertNull(model.getCellOwner(2, 2), "Moves after the win shouldn't be applied");
+
+    controller.reset();
+    int[] moves = {OXOController.encodeMove(0, 0), OXOController.encodeMove(1, 1), OXOController.encodeMove(5, 0)};
+    result = controller.applyMoves(moves);
+    assertEquals(2, result.count(OXOMoveResult.CLAIMED));
+    assertEquals(OXOMoveResult.ROW_OUT_OF_RANGE, result.getOutcome(2));
+    assertFalse(result.isGameOver());
+  }
 }
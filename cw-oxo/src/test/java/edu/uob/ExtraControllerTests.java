@@ -76,4 +76,38 @@ public class ExtraControllerTests {
         String failedClaimComment = "Cell f4 wasn't claimed by the third player";
         assertEquals(thirdMovingPlayer, controller.gameModel.getCellOwner(5, 3), failedClaimComment);
     }
+
+    @Test
+    void testWinAfterThresholdChange() {
+        sendCommandToController("a1");
+        sendCommandToController("b1");
+        sendCommandToController("c1");
+        sendCommandToController("a2");
+        assertNull(model.getWinner(), "Two in a row shouldn't win with a threshold of 5");
+        controller.decreaseWinThreshold();
+        controller.decreaseWinThreshold();
+        controller.decreaseWinThreshold();
+        // Second player moves next, so gets first claim on the lines that now meet the lower threshold
+        OXOPlayer secondMovingPlayer = model.getPlayerByNumber(model.getCurrentPlayerNumber());
+        sendCommandToController("b2");
+        String failedTestComment = "Winner was expected to be " + secondMovingPlayer.getPlayingLetter() + " but wasn't";
+        assertEquals(secondMovingPlayer, model.getWinner(), failedTestComment);
+    }
+
+    @Test
+    void testWinAfterResize() {
+        controller.gameModel.setWinThreshold(3);
+        OXOPlayer firstMovingPlayer = model.getPlayerByNumber(model.getCurrentPlayerNumber());
+        sendCommandToController("i7");
+        sendCommandToController("a1");
+        sendCommandToController("a2");
+        sendCommandToController("i8");
+        sendCommandToController("b1");
+        sendCommandToController("b2");
+        controller.addRow();
+        controller.addColumn();
+        sendCommandToController("i9");
+        String failedTestComment = "Winner was expected to be " + firstMovingPlayer.getPlayingLetter() + " but wasn't";
+        assertEquals(firstMovingPlayer, model.getWinner(), failedTestComment);
+    }
 }
@@ -0,0 +1,176 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Test;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryTests {
+
+  private static OXOModel makeModel() {
+    OXOModel model = new OXOModel(3, 3, 3);
+    model.addPlayer(new OXOPlayer('X'));
+    model.addPlayer(new OXOPlayer('O'));
+    return model;
+  }
+
+  private static String state(OXOModel model) {
+    ByteBuffer buffer = ByteBuffer.allocate(OXOSnapshotCodec.encodedSize(model));
+    OXOSnapshotCodec.write(model, buffer);
+    return Arrays.toString(buffer.array());
+  }
+
+  @Test
+  void testUndoAndRedoMoves() {
+    OXOModel model = makeModel();
+    OXOController controller = new OXOController(model);
+    assertFalse(controller.undo(), "Nothing to undo yet");
+    List<String> states = new ArrayList<>();
+    states.add(state(model));
+    for (String move : new String[] {"a1", "b1", "a2", "b2", "a3"}) {
+      controller.tryMove(move);
+      states.add(state(model));
+    }
+    assertEquals(model.getPlayerByNumber(0), model.getWinner());
+    for (int i = states.size() - 2; i >= 0; i--) {
+      assertTrue(controller.undo());
+      assertEquals(states.get(i), state(model), "Undo should give back the game as it was");
+    }
+    assertFalse(controller.canUndo());
+    assertEquals(-1, controller.getLastMove());
+    for (int i = 1; i < states.size(); i++) {
+      assertTrue(controller.redo());
+      assertEquals(states.get(i), state(model), "Redo should make the move again");
+    }
+    assertFalse(controller.redo());
+    assertEquals(OXOMoveResult.GAME_OVER, controller.tryMove("c3"));
+
+    controller.undo();
+    controller.undo();
+    assertEquals(OXOController.encodeMove(0, 1), controller.getLastMove(), "The last move is a2 again");
+    assertEquals(OXOMoveResult.CLAIMED, controller.tryMove("c3"), "O can take a different turn");
+    assertFalse(controller.canRedo(), "A new move forgets what was undone");
+    assertEquals(4, controller.getHistorySize());
+  }
+
+  @Test
+  void testUndoDraw() {
+    OXOModel model = makeModel();
+    OXOController controller = new OXOController(model);
+    assertEquals(1, controller.applyMoves("a1 b2 a3 a2 c2 b3 b1 c1 c3").count(OXOMoveResult.DRAWN));
+    controller.undo();
+    assertFalse(model.isGameDrawn());
+    assertEquals(0, model.getCurrentPlayerNumber());
+    controller.redo();
+    assertTrue(model.isGameDrawn());
+  }
+
+  @Test
+  void testUndoResizesAndThresholds() {
+    OXOModel model = makeModel();
+    OXOController controller = new OXOController(model);
+    controller.tryMove("a1");
+    controller.addColumn();
+    controller.increaseWinThreshold();
+    controller.tryMove("c4");
+    controller.tryMove("a4");
+    String before = state(model);
+    controller.removeColumn();
+    controller.removeRow();
+    assertEquals(2, model.getNumberOfRows());
+    assertTrue(controller.undo());
+    assertTrue(controller.undo());
+    assertEquals(before, state(model), "Cells on removed lines should come back");
+
+    List<String> states = new ArrayList<>();
+    while (controller.canUndo()) {
+      states.add(state(model));
+      controller.undo();
+    }
+    assertEquals(state(makeModel()), state(model));
+    while (!states.isEmpty()) {
+      assertTrue(controller.redo());
+      assertEquals(states.remove(states.size() - 1), state(model));
+    }
+    assertTrue(controller.redo(), "The undone removals can still be redone");
+    assertTrue(controller.redo());
+    assertEquals(2, model.getNumberOfRows());
+    assertEquals(3, model.getNumberOfColumns());
+    controller.undo();
+    controller.addColumn();
+    assertFalse(controller.redo(), "Redo has nothing left after a new change");
+  }
+
+  @Test
+  void testEachStepIsOneBatch() {
+    OXOModel model = makeModel();
+    OXOController controller = new OXOController(model);
+    controller.applyMoves("a1 b1 a2 b2 a3");
+    List<String> events = new ArrayList<>();
+    model.addListener(new OXOModelListener() {
+      public void cellChanged(int rowNumber, int colNumber, int playerNumber) {
+        events.add("cell " + OXOCommandParser.cellName(rowNumber, colNumber) + " " + playerNumber);
+      }
+      public void winnerChanged(OXOPlayer winner) {
+        events.add("winner " + winner);
+      }
+      public void batchEnded() {
+        events.add("end");
+      }
+    });
+    controller.undo();
+    assertEquals(List.of("cell a3 -1", "winner null", "end"), events);
+  }
+
+  @Test
+  void testRedoGivesTheWinBackToWhoeverWon() {
+    OXOModel model = new OXOModel(9, 9, 3);
+    model.addPlayer(new OXOPlayer('X'));
+    model.addPlayer(new OXOPlayer('O'));
+    model.addPlayer(new OXOPlayer('H'));
+    OXOController controller = new OXOController(model);
+    controller.applyMoves("a1 b1 c1 a2");
+    controller.decreaseWinThreshold();
+    assertEquals(OXOMoveResult.WON, controller.tryMove("i9"));
+    assertEquals('X', model.getWinner().getPlayingLetter(), "O's move lets X's line count");
+    controller.undo();
+    assertNull(model.getWinner());
+    controller.redo();
+    assertEquals('X', model.getWinner().getPlayingLetter());
+  }
+
+  @Test
+  void testHistoryIsCapped() {
+    OXOModel model = new OXOModel(4, 4, 4);
+    model.addPlayer(new OXOPlayer('X'));
+    model.addPlayer(new OXOPlayer('O'));
+    OXOController controller = new OXOController(model);
+    assertEquals(OXOController.DEFAULT_HISTORY_LIMIT, controller.getHistoryLimit());
+    controller.setHistoryLimit(4);
+    controller.applyMoves("a1 b1 a2 b2 a3 b3");
+    assertEquals(4, controller.getHistorySize());
+    int undone = 0;
+    while (controller.undo()) undone++;
+    assertEquals(4, undone, "Only the last four moves can be taken back");
+    assertEquals(2, model.getNumberOfClaimedCells());
+    assertEquals(OXOController.encodeMove(1, 0), controller.getLastMove(), "b1 is still the last move made");
+
+    controller.setHistoryLimit(0);
+    controller.tryMove("c1");
+    assertFalse(controller.canUndo());
+  }
+
+  @Test
+  void testRestartForgetsHistory() {
+    OXOModel model = makeModel();
+    OXOController controller = new OXOController(model);
+    controller.tryMove("a1");
+    controller.addRow();
+    controller.reset();
+    assertFalse(controller.canUndo());
+    assertEquals(0, controller.getHistorySize());
+  }
+}
@@ -0,0 +1,173 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalTests {
+
+  @TempDir
+  Path directory;
+
+  private static String run(OXOGameSession session, String line) {
+    StringBuilder reply = new StringBuilder();
+    session.execute(line, reply);
+    return reply.toString();
+  }
+
+  private OXOSessionRegistry recover(int segmentSize) throws IOException {
+    OXOSessionRegistry registry = new OXOSessionRegistry();
+    OXOJournal.open(directory, segmentSize).recover(registry);
+    return registry;
+  }
+
+  private long countSegments() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(file -> file.toString().endsWith(".oxoj")).count();
+    }
+  }
+
+  @Test
+  void testRecoverGames() throws IOException {
+    OXOSessionRegistry registry = recover(1 << 16);
+    OXOGameSession first = registry.create(3, 3, 3, "XO");
+    OXOGameSession second = registry.create(3, 3, 3, "XOH");
+    run(first, "a1");
+    run(first, "RESIZE 4 5");
+    run(first, "THRESHOLD 4");
+    run(first, "d5");
+    run(first, "b2");
+    run(second, "b2");
+    run(second, "a1");
+    run(second, "zz");
+    run(second, "RESIZE 3 2");
+    OXOGameSession finished = registry.create(3, 3, 3, "XO");
+    run(finished, "a1");
+    registry.remove(finished);
+    registry.getJournal().sync();
+
+    OXOSessionRegistry recovered = recover(1 << 16);
+    assertEquals(2, recovered.size(), "Only the two live games should come back");
+    assertEquals(run(first, "BOARD"), run(recovered.get(first.getId()), "BOARD"));
+    assertEquals(run(second, "BOARD"), run(recovered.get(second.getId()), "BOARD"));
+    assertEquals("OK TURN X", run(recovered.get(first.getId()), "c3"), "Turn order should carry on where it left off");
+    assertNull(recovered.get(finished.getId()));
+    assertTrue(recovered.create(3, 3, 3, "XO").getId() > finished.getId(), "Ids shouldn't be reused");
+  }
+
+  @Test
+  void testOnlyMovesMadeAreJournalled() throws IOException {
+    OXOSessionRegistry registry = recover(1 << 16);
+    OXOGameSession session = registry.create(3, 3, 3, "XO");
+    for (String move : new String[] {"a1", "b1", "a2", "b2", "a3"}) run(session, move);
+    OXOJournal journal = registry.getJournal();
+    long appended = journal.getNumberOfRecordsAppended();
+    assertEquals("OK WIN X", run(session, "c3"));
+    assertEquals("ERROR " + new OXOMoveException.CellAlreadyTakenException(0, 0).getMessage(), run(session, "a1"));
+    assertEquals(appended, journal.getNumberOfRecordsAppended(), "Refused moves shouldn't be journalled");
+    journal.sync();
+
+    OXOSessionRegistry recovered = recover(1 << 16);
+    assertEquals(run(session, "BOARD"), run(recovered.get(session.getId()), "BOARD"));
+    assertEquals(0, recovered.getMetrics().snapshot().getNumberOfCommands(), "Replay isn't new traffic");
+  }
+
+  @Test
+  void testTornRecordStopsReplay() throws IOException {
+    OXOSessionRegistry registry = recover(1 << 16);
+    OXOGameSession session = registry.create(3, 3, 3, "XO");
+    run(session, "a1");
+    run(session, "b1");
+    registry.getJournal().sync();
+    Path segment;
+    try (Stream<Path> files = Files.list(directory)) {
+      segment = files.filter(file -> file.toString().endsWith(".oxoj")).findFirst().orElseThrow();
+    }
+    // Scribble over the middle of the last record, as if the machine died while writing it
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] {42}), 2 * OXOJournal.RECORD_SIZE + 18);
+    }
+    OXOGameSession recovered = recover(1 << 16).get(session.getId());
+    assertEquals("BOARD 3 3 3 X../.../...", run(recovered, "BOARD"), "Only the records before the torn one should replay");
+  }
+
+  @Test
+  void testRollingAndCompaction() throws IOException {
+    OXOSessionRegistry registry = recover(4 * OXOJournal.RECORD_SIZE);
+    OXOGameSession kept = registry.create(3, 3, 3, "XO");
+    OXOGameSession ended = registry.create(3, 3, 3, "XO");
+    for (String move : new String[] {"a1", "b1", "a2", "b2"}) {
+      run(kept, move);
+      run(ended, move);
+    }
+    run(kept, "RESET");
+    run(kept, "RESIZE 4 4");
+    run(kept, "d4");
+    registry.remove(ended);
+    OXOJournal journal = registry.getJournal();
+    assertEquals(15, journal.getNumberOfRecordsAppended());
+    assertEquals(4, countSegments(), "Four records fit in each segment");
+    assertTrue(journal.getNumberOfSyncs() >= 3, "Full segments are made durable as they roll");
+
+    assertEquals(10, journal.compact(), "The ended game and the moves before the reset should be dropped");
+    assertEquals(2, countSegments());
+    run(kept, "a1");
+    journal.sync();
+    OXOGameSession recovered = recover(4 * OXOJournal.RECORD_SIZE).get(kept.getId());
+    assertEquals(run(kept, "BOARD"), run(recovered, "BOARD"));
+  }
+
+  @Test
+  void testGroupCommit() throws Exception {
+    OXOSessionRegistry registry = recover(1 << 20);
+    OXOJournal journal = registry.getJournal();
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      OXOGameSession session = registry.create(9, 9, 9, "XO");
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < 50; i++) {
+          run(session, OXOCommandParser.cellName(i / 9, i % 9));
+          try {
+            journal.sync();
+          } catch (IOException exception) {
+            throw new RuntimeException(exception);
+          }
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) thread.join();
+    assertEquals(408, journal.getNumberOfRecordsAppended());
+    assertTrue(journal.getNumberOfSyncs() < 400, "Some syncs should have been shared, but there were " + journal.getNumberOfSyncs());
+    assertEquals(8, recover(1 << 20).size());
+  }
+
+  @Test
+  @Tag("stress")
+  void testRecoveringManyGames() throws IOException {
+    int numberOfGames = 100_000;
+    OXOSessionRegistry registry = recover(1 << 24);
+    for (int i = 0; i < numberOfGames; i++) {
+      OXOGameSession session = registry.create(3, 3, 3, "XO");
+      run(session, "a1");
+      run(session, "b2");
+      run(session, "c3");
+      run(session, "a3");
+    }
+    registry.getJournal().sync();
+    long start = System.nanoTime();
+    OXOSessionRegistry recovered = recover(1 << 24);
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+    assertEquals(numberOfGames, recovered.size());
+    assertTrue(elapsedMillis < 10_000, "Recovery took " + elapsedMillis + "ms");
+  }
+}
@@ -0,0 +1,143 @@
+package edu.uob;
+
+import edu.uob.OXOMoveException.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTests {
+
+  private static OXOController makeController(OXOMetrics metrics) {
+    OXOModel model = new OXOModel(3, 3, 3);
+    model.addPlayer(new OXOPlayer('X'));
+    model.addPlayer(new OXOPlayer('O'));
+    OXOController controller = new OXOController(model);
+    controller.setMetrics(metrics);
+    return controller;
+  }
+
+  @Test
+  void testResultsAreCountedByException() {
+    OXOMetrics metrics = new OXOMetrics(1);
+    OXOController controller = makeController(metrics);
+    assertThrows(InvalidIdentifierLengthException.class, () -> controller.handleIncomingCommand("a"));
+    assertThrows(InvalidIdentifierCharacterException.class, () -> controller.handleIncomingCommand("?1"));
+    assertThrows(InvalidIdentifierCharacterException.class, () -> controller.handleIncomingCommand("a?"));
+    assertThrows(OutsideCellRangeException.class, () -> controller.handleIncomingCommand("d1"));
+    assertDoesNotThrow(() -> controller.handleIncomingCommand("a1"));
+    assertThrows(CellAlreadyTakenException.class, () -> controller.handleIncomingCommand("a1"));
+    assertEquals(OXOMoveResult.CLAIMED, controller.tryMove(ByteBuffer.wrap("b1".getBytes(StandardCharsets.US_ASCII))));
+    controller.applyMoves("a2 b2 a3");
+    assertEquals(OXOMoveResult.GAME_OVER, controller.tryMove(2, 2));
+
+    OXOMetrics.Snapshot snapshot = metrics.snapshot();
+    assertEquals(11, snapshot.getNumberOfCommands());
+    assertEquals(1, snapshot.getRejections(InvalidIdentifierLengthException.class));
+    assertEquals(2, snapshot.getRejections(InvalidIdentifierCharacterException.class));
+    assertEquals(1, snapshot.getRejections(OutsideCellRangeException.class));
+    assertEquals(1, snapshot.getRejections(CellAlreadyTakenException.class));
+    assertEquals(5, snapshot.getRejections());
+    assertEquals(4, snapshot.getCount(OXOMoveResult.CLAIMED));
+    assertEquals(1, snapshot.getCount(OXOMoveResult.WON));
+    assertEquals(1, snapshot.getCount(OXOMoveResult.GAME_OVER));
+    assertEquals(11, snapshot.getNumberOfSamples(OXOMetrics.Operation.COMMAND), "Every command is timed with an interval of 1");
+    assertEquals(10, snapshot.getNumberOfSamples(OXOMetrics.Operation.PARSE), "One command arrived as a row and column");
+    assertEquals(7, snapshot.getNumberOfSamples(OXOMetrics.Operation.VALIDATE));
+    assertEquals(6, snapshot.getNumberOfSamples(OXOMetrics.Operation.APPLY));
+    assertEquals(5, snapshot.getNumberOfSamples(OXOMetrics.Operation.WIN_CHECK), "A finished game is turned away before the win check");
+    assertTrue(snapshot.getP50(OXOMetrics.Operation.COMMAND) <= snapshot.getP999(OXOMetrics.Operation.COMMAND));
+    assertTrue(snapshot.toString().contains("WIN_CHECK"));
+  }
+
+  @Test
+  void testSamplingAndSharing() {
+    OXOMetrics metrics = new OXOMetrics(4);
+    OXOController first = makeController(metrics);
+    OXOController second = makeController(metrics);
+    for (int i = 0; i < 8; i++) {
+      first.tryMove("?9");
+      second.tryMove("?9");
+    }
+    OXOMetrics.Snapshot snapshot = metrics.snapshot();
+    assertEquals(16, snapshot.getCount(OXOMoveResult.INVALID_ROW_CHARACTER));
+    assertEquals(4, snapshot.getNumberOfSamples(OXOMetrics.Operation.COMMAND), "One command in four should be timed");
+    first.setMetrics(null);
+    first.tryMove("a1");
+    assertEquals(16, metrics.snapshot().getNumberOfCommands(), "A controller without metrics shouldn't count");
+    metrics.reset();
+    assertEquals(0, metrics.snapshot().getNumberOfCommands());
+    assertEquals(0, metrics.snapshot().getP99(OXOMetrics.Operation.COMMAND));
+  }
+
+  @Test
+  void testBucketsBoundTheirValues() {
+    long previousLimit = -1;
+    for (int bucket = 0; bucket < 200; bucket++) {
+      long limit = OXOMetrics.bucketLimit(bucket);
+      assertEquals(bucket, OXOMetrics.bucketOf(previousLimit + 1), "Each bucket should start just after the last one ends");
+      assertEquals(bucket, OXOMetrics.bucketOf(limit));
+      assertTrue(limit - previousLimit <= Math.max(1, (previousLimit + 1) / 8), "Buckets should be no wider than an eighth of their values");
+      previousLimit = limit;
+    }
+    assertEquals(OXOMetrics.bucketOf(Long.MAX_VALUE), OXOMetrics.bucketOf(Long.MAX_VALUE - 1));
+    assertEquals(Long.MAX_VALUE, OXOMetrics.bucketLimit(OXOMetrics.bucketOf(Long.MAX_VALUE)));
+  }
+
+  @Test
+  void testFlightRecorderEvents(@TempDir Path directory) throws IOException {
+    OXOController controller = makeController(new OXOMetrics());
+    controller.tryMove("a1");
+    Path file = directory.resolve("moves.jfr");
+    try (Recording recording = new Recording()) {
+      for (String name : new String[] {"edu.uob.Parse", "edu.uob.Validate", "edu.uob.Apply", "edu.uob.WinCheck"}) {
+        recording.enable(name).withoutThreshold();
+      }
+      recording.start();
+      controller.tryMove("b1");
+      controller.tryMove("b1");
+      recording.stop();
+      recording.dump(file);
+    }
+    controller.tryMove("c1");
+    List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+    assertEquals(2, events.stream().filter(event -> event.getEventType().getName().equals("edu.uob.Parse")).count());
+    assertEquals(2, events.stream().filter(event -> event.getEventType().getName().equals("edu.uob.Validate")).count());
+    RecordedEvent apply = events.stream().filter(event -> event.getEventType().getName().equals("edu.uob.Apply")).findFirst().orElseThrow();
+    assertEquals(1, apply.getInt("row"));
+    assertEquals(1, apply.getInt("player"), "O made the second move");
+    assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("edu.uob.Validate") && event.getString("result").equals("CELL_TAKEN")));
+    assertEquals(1, events.stream().filter(event -> event.getEventType().getName().equals("edu.uob.WinCheck")).count());
+    assertFalse(OXOMetrics.isRecording(), "Events should stop once the recording does");
+  }
+
+  // A recording already running when the metrics class loads, as with -XX:StartFlightRecording, must still be
+  // seen. The class is loaded afresh in its own class loader, since this one loaded it long ago.
+  @Test
+  void testRecordingStartedBeforeLoading() throws Exception {
+    URL classes = OXOMetrics.class.getProtectionDomain().getCodeSource().getLocation();
+    try (Recording recording = new Recording()) {
+      recording.start();
+      try (URLClassLoader loader = new URLClassLoader(new URL[] {classes}, ClassLoader.getPlatformClassLoader())) {
+        Class<?> fresh = Class.forName(OXOMetrics.class.getName(), true, loader);
+        assertNotSame(OXOMetrics.class, fresh);
+        Method isRecording = fresh.getDeclaredMethod("isRecording");
+        isRecording.setAccessible(true);
+        assertEquals(true, isRecording.invoke(null), "The recording started first should have been found");
+        recording.stop();
+        assertEquals(false, isRecording.invoke(null), "Stopping it should still be heard");
+      }
+    }
+  }
+}
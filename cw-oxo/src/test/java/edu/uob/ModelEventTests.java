@@ -0,0 +1,124 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelEventTests {
+
+  // Writes every event down as a short string
+  private static class Recorder implements OXOModelListener {
+    final List<String> events = new ArrayList<>();
+
+    public void cellChanged(int rowNumber, int colNumber, int playerNumber) {
+      events.add("cell " + OXOCommandParser.cellName(rowNumber, colNumber) + " " + playerNumber);
+    }
+    public void turnChanged(int playerNumber) {
+      events.add("turn " + playerNumber);
+    }
+    public void winnerChanged(OXOPlayer winner) {
+      events.add("winner " + (winner == null ? "none" : winner.getPlayingLetter()));
+    }
+    public void drawnChanged(boolean drawn) {
+      events.add("drawn " + drawn);
+    }
+    public void dimensionsChanged(int numberOfRows, int numberOfColumns) {
+      events.add("size " + numberOfRows + "x" + numberOfColumns);
+    }
+    public void thresholdChanged(int winThreshold) {
+      events.add("threshold " + winThreshold);
+    }
+    public void gameReset() {
+      events.add("reset");
+    }
+    public void batchEnded() {
+      events.add("end");
+    }
+  }
+
+  private static OXOModel makeModel() {
+    OXOModel model = new OXOModel(3, 3, 3);
+    model.addPlayer(new OXOPlayer('X'));
+    model.addPlayer(new OXOPlayer('O'));
+    return model;
+  }
+
+  @Test
+  void testSingleMovesNotifyStraightAway() {
+    OXOModel model = makeModel();
+    OXOController controller = new OXOController(model);
+    Recorder recorder = new Recorder();
+    model.addListener(recorder);
+    controller.tryMove(1, 1);
+    assertEquals(List.of("cell b2 0", "turn 1", "end"), recorder.events, "A move arrives as one batch");
+    recorder.events.clear();
+    controller.addColumn();
+    controller.increaseWinThreshold();
+    controller.restart();
+    assertEquals(List.of("size 3x4", "threshold 4", "reset"), recorder.events, "A restart is one event, not one per cell");
+    model.removeListener(recorder);
+    controller.tryMove(0, 0);
+    assertEquals(3, recorder.events.size(), "A removed listener shouldn't hear any more");
+  }
+
+  @Test
+  void testBatchesAreCoalesced() {
+    OXOModel model = makeModel();
+    OXOController controller = new OXOController(model);
+    Recorder recorder = new Recorder();
+    model.addListener(recorder);
+    controller.applyMoves("c1 a1 b2 a2 a3");
+    assertEquals(List.of("cell a1 1", "cell a2 1", "cell a3 0", "cell b2 0", "cell c1 0", "turn 1", "winner X", "end"), recorder.events,
+        "Five moves should arrive as one change per cell and one turn change");
+
+    recorder.events.clear();
+    model.beginBatch();
+    model.setCellOwnerNumber(2, 2, 1);
+    model.beginBatch();
+    controller.restart();
+    model.setCellOwnerNumber(1, 1, 0);
+    model.setCellOwnerNumber(1, 1, 1);
+    model.endBatch();
+    assertTrue(recorder.events.isEmpty(), "Only the outermost batch should notify");
+    model.removeRow();
+    model.endBatch();
+    assertEquals(List.of("reset", "cell b2 1", "size 2x3", "end"), recorder.events,
+        "Changes before the reset are dropped and each cell is reported once, with its final owner");
+    assertThrows(IllegalStateException.class, model::endBatch);
+  }
+
+  @Test
+  void testBatchesReachAcrossSparseBoards() {
+    OXOModel model = new OXOModel(new OXOSparseBoard(100_000, 100_000), 5);
+    model.addPlayer(new OXOPlayer('X'));
+    model.addPlayer(new OXOPlayer('O'));
+    Recorder recorder = new Recorder();
+    model.addListener(recorder);
+    model.beginBatch();
+    model.setCellOwnerNumber(5, 70_000, 0);
+    model.setCellOwnerNumber(99_999, 3, 1);
+    model.setCellOwnerNumber(5, 7, 1);
+    model.endBatch();
+    assertEquals(List.of("cell " + OXOCommandParser.cellName(5, 7) + " 1", "cell " + OXOCommandParser.cellName(5, 70_000) + " 0",
+        "cell " + OXOCommandParser.cellName(99_999, 3) + " 1", "end"), recorder.events,
+        "Cells past what a move can pack should still be reported, in row then column order");
+  }
+
+  @Test
+  void testListenersCanComeAndGoWhileNotifying() {
+    OXOModel model = makeModel();
+    Recorder late = new Recorder();
+    model.addListener(new OXOModelListener() {
+      public void turnChanged(int playerNumber) {
+        model.removeListener(this);
+        model.addListener(late);
+      }
+    });
+    model.setCurrentPlayerNumber(1);
+    assertTrue(late.events.isEmpty(), "A listener added during a notification hears from the next one");
+    model.setCurrentPlayerNumber(0);
+    assertEquals(List.of("turn 0"), late.events);
+  }
+}
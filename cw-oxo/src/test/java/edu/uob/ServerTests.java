@@ -0,0 +1,135 @@
+package edu.uob;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerTests {
+  private OXOServer server;
+
+  @BeforeEach
+  void setup() throws IOException {
+    server = new OXOServer(0, 2);
+    server.start();
+  }
+
+  @AfterEach
+  void teardown() throws IOException {
+    server.close();
+  }
+
+  // A blocking line-at-a-time client for talking to the server under test
+  class Client implements AutoCloseable {
+    final Socket socket;
+    final BufferedReader in;
+    final PrintWriter out;
+
+    Client() throws IOException {
+      this(server);
+    }
+
+    Client(OXOServer server) throws IOException {
+      socket = new Socket("localhost", server.getPort());
+      socket.setSoTimeout(5000);
+      in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+      out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.US_ASCII);
+    }
+
+    String send(String line) throws IOException {
+      out.print(line + "\r\n");
+      out.flush();
+      return in.readLine();
+    }
+
+    public void close() throws IOException {
+      socket.close();
+    }
+  }
+
+  @Test
+  void testTwoPlayersOneGame() throws IOException {
+    try (Client first = new Client(); Client second = new Client()) {
+      assertEquals("ERROR Send CREATE or JOIN first", first.send("a1"));
+      String created = first.send("CREATE 3 3 3 XO");
+      assertTrue(created.startsWith("GAME "), "Game wasn't created: " + created);
+      long id = Long.parseLong(created.substring(5));
+      assertEquals("GAME " + id, second.send("join " + id));
+      assertEquals("OK TURN O", first.send("a1"));
+      assertEquals("ERROR Cell [0,0] has already been claimed", second.send("a1"));
+      assertEquals("OK TURN X", second.send("b1"));
+      assertEquals("OK TURN O", first.send("a2"));
+      assertEquals("OK TURN X", second.send("b2"));
+      assertEquals("OK WIN X", first.send("a3"));
+      assertEquals("BOARD 3 3 3 XXX/OO./...", second.send("BOARD"));
+      assertEquals("OK TURN X", second.send("RESET"));
+      assertEquals("OK TURN X", first.send("RESIZE 4 30"));
+      assertEquals("OK TURN O", first.send("d30"));
+      assertEquals("ERROR THRESHOLD takes 1 argument", first.send("THRESHOLD"));
+      assertEquals("ERROR No game with id 999", first.send("JOIN 999"));
+    }
+  }
+
+  @Test
+  void testOversizedBoardsAreRefused() throws IOException {
+    try (Client client = new Client()) {
+      assertEquals("ERROR Rows must be from 1 to " + OXOGameSession.MAX_SIZE, client.send("CREATE 50000 50000 5 XO"));
+      assertEquals("ERROR Threshold must be from 1 to " + OXOGameSession.MAX_SIZE, client.send("CREATE 3 3 0 XO"));
+      assertTrue(client.send("CREATE 3 3 3 XO").startsWith("GAME "));
+      assertEquals("ERROR Rows must be from 1 to " + OXOGameSession.MAX_SIZE, client.send("RESIZE 2000000000 1"));
+      assertEquals("ERROR Columns must be from 1 to " + OXOGameSession.MAX_SIZE, client.send("RESIZE 3 0"));
+      assertEquals("ERROR Threshold must be from 1 to " + OXOGameSession.MAX_SIZE, client.send("THRESHOLD 99999"));
+      assertEquals("BOARD 3 3 3 .../.../...", client.send("BOARD"));
+    }
+  }
+
+  @Test
+  void testRepliesWaitForTheJournal(@TempDir Path directory) throws IOException {
+    OXOSessionRegistry registry = new OXOSessionRegistry();
+    OXOJournal journal = OXOJournal.open(directory, 1 << 16);
+    journal.recover(registry);
+    try (OXOServer journalled = new OXOServer(0, 1, registry)) {
+      journalled.start();
+      try (Client client = new Client(journalled)) {
+        assertTrue(client.send("CREATE 3 3 3 XO").startsWith("GAME "));
+        long syncs = journal.getNumberOfSyncs();
+        for (String move : new String[] {"a1", "b1", "a2"}) {
+          assertTrue(client.send(move).startsWith("OK "));
+          assertFalse(journal.hasUnsyncedRecords(), "A reply means the move is on disk");
+        }
+        assertTrue(journal.getNumberOfSyncs() > syncs);
+        assertEquals("BOARD 3 3 3 XX./O../...", client.send("BOARD"));
+      }
+    }
+  }
+
+  @Test
+  void testManyConcurrentGames() {
+    assertTimeoutPreemptively(Duration.ofSeconds(20), ()-> {
+      Client[] clients = new Client[200];
+      for (int i = 0; i < clients.length; i++) {
+        clients[i] = new Client();
+        assertTrue(clients[i].send("CREATE 3 3 3 XO").startsWith("GAME "));
+      }
+      assertEquals(clients.length, server.getRegistry().size(), "Every client should have its own game");
+      for (Client client : clients) {
+        assertEquals("OK TURN O", client.send("a1"));
+        assertEquals("OK TURN X", client.send("b1"));
+        assertEquals("OK TURN O", client.send("a2"));
+        assertEquals("OK TURN X", client.send("b2"));
+        assertEquals("OK WIN X", client.send("a3"));
+      }
+      for (Client client : clients) client.close();
+    });
+  }
+}
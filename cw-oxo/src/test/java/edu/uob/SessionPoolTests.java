@@ -0,0 +1,110 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionPoolTests {
+
+  private static String run(OXOGameSession session, String line) {
+    StringBuilder reply = new StringBuilder();
+    session.execute(line, reply);
+    return reply.toString();
+  }
+
+  private static OXOGameSession lobby(OXOSessionRegistry registry, String line) {
+    return registry.execute(line, new StringBuilder());
+  }
+
+  @Test
+  void testEndedGamesHostNewOnes() {
+    OXOSessionPool pool = new OXOSessionPool(10);
+    OXOSessionRegistry registry = new OXOSessionRegistry(pool);
+    OXOGameSession first = lobby(registry, "CREATE 3 3 3 XO");
+    long firstId = first.getId();
+    assertSame(first, lobby(registry, "JOIN " + firstId));
+    run(first, "RESIZE 4 4");
+    run(first, "a1");
+    run(first, "b2");
+    OXOController controller = first.getController();
+    assertFalse(registry.release(first), "Someone is still playing");
+    assertTrue(registry.release(first));
+    assertEquals(1, pool.getNumberOfIdleSessions());
+    assertNull(lobby(registry, "JOIN " + firstId), "An ended game can't be joined");
+
+    OXOGameSession second = lobby(registry, "CREATE 5 6 4 XO");
+    assertSame(first, second, "The ended game should have been reused");
+    assertSame(controller, second.getController());
+    assertNotEquals(firstId, second.getId());
+    assertSame(second, registry.get(second.getId()));
+    assertEquals("BOARD 5 6 4 ....../....../....../....../......", run(second, "BOARD"));
+    assertFalse(second.getController().canUndo(), "The old game's moves shouldn't carry over");
+    assertEquals("OK TURN O", run(second, "e6"));
+    assertNull(lobby(registry, "JOIN " + firstId), "The old id shouldn't reach the new game");
+
+    lobby(registry, "CREATE 3 3 3 XOH");
+    assertEquals(1, pool.getHits());
+    assertEquals(2, pool.getMisses(), "Games are only reused for the same players");
+    assertEquals(1.0 / 3, pool.getHitRate(), 1e-9);
+  }
+
+  @Test
+  void testRefusedGamesLeaveThePoolAlone(@TempDir Path directory) throws IOException {
+    OXOSessionPool pool = new OXOSessionPool(10);
+    OXOSessionRegistry registry = new OXOSessionRegistry(pool);
+    registry.setJournal(OXOJournal.open(directory, 1 << 16));
+    OXOGameSession ended = lobby(registry, "CREATE 3 3 3 ABCDEFG");
+    registry.release(ended);
+    assertNull(lobby(registry, "CREATE 3 3 3 ABCDEFGH"), "The journal only has room for seven letters");
+    assertEquals(1, pool.getNumberOfIdleSessions());
+    assertEquals(1, pool.getMisses(), "Nothing should have been taken from the pool for a refused game");
+    assertEquals(ended.getId() + 1, lobby(registry, "CREATE 3 3 3 XO").getId(), "A refused game shouldn't use up an id");
+  }
+
+  // Another connection keeps joining and leaving the game about to be created; the creator must never be handed
+  // a game that has already ended
+  @Test
+  void testCreatorsGetLiveGames() throws InterruptedException {
+    OXOSessionPool pool = new OXOSessionPool(10);
+    OXOSessionRegistry registry = new OXOSessionRegistry(pool);
+    AtomicLong nextId = new AtomicLong(1);
+    AtomicBoolean creating = new AtomicBoolean(true);
+    Thread joiner = new Thread(() -> {
+      while (creating.get()) {
+        OXOGameSession joined = lobby(registry, "JOIN " + nextId.get());
+        if (joined != null) registry.release(joined);
+      }
+    });
+    joiner.start();
+    try {
+      for (int i = 0; i < 20_000; i++) {
+        OXOGameSession created = lobby(registry, "CREATE 3 3 3 XO");
+        assertSame(created, registry.get(created.getId()), "Game " + created.getId() + " ended before its creator got it");
+        registry.release(created);
+        nextId.set(created.getId() + 1);
+      }
+    } finally {
+      creating.set(false);
+      joiner.join();
+    }
+  }
+
+  @Test
+  void testPoolKeepsAtMostItsSize() {
+    OXOSessionPool pool = new OXOSessionPool(2);
+    OXOSessionRegistry registry = new OXOSessionRegistry(pool);
+    OXOGameSession[] sessions = new OXOGameSession[4];
+    for (int i = 0; i < sessions.length; i++) sessions[i] = lobby(registry, "CREATE 3 3 3 XO");
+    sessions[3].getModel().addListener(new OXOModelListener() {});
+    for (OXOGameSession session : sessions) registry.release(session);
+    assertEquals(2, pool.getNumberOfIdleSessions());
+    assertEquals(2, pool.getDiscards(), "A full pool and a watched game should both be turned away");
+    assertEquals(0, registry.size());
+    assertTrue(pool.toString().startsWith("2 idle of 2"), pool.toString());
+  }
+}
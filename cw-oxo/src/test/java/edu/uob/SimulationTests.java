@@ -0,0 +1,63 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationTests {
+
+  @Test
+  void testRestartKeepsTheBoard() {
+    OXOModel model = new OXOModel(4, 5, 4);
+    model.addPlayer(new OXOPlayer('X'));
+    model.addPlayer(new OXOPlayer('O'));
+    OXOController controller = new OXOController(model);
+    model.setGameDrawn();
+    controller.applyMoves("a1 b1 a2");
+    controller.restart();
+    assertEquals(4, model.getNumberOfRows());
+    assertEquals(5, model.getNumberOfColumns());
+    assertEquals(4, model.getWinThreshold());
+    assertEquals(0, model.getNumberOfClaimedCells());
+    assertEquals(0, model.getCurrentPlayerNumber());
+    assertFalse(model.isGameDrawn());
+    assertEquals(-1, controller.getLastMove());
+  }
+
+  @Test
+  void testGreedyBeatsRandom() {
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      OXOSimulation simulation = new OXOSimulation(pool)
+          .addStrategy("random", OXORandomEngine::new)
+          .addStrategy("greedy", OXOGreedyEngine::new);
+      OXOSimulation.Result result = simulation.run(3, 3, 3, 2001, 42);
+      assertEquals(2001, result.getNumberOfGames());
+      long total = 0;
+      for (int opener = 0; opener < 2; opener++) {
+        total += result.getWins(opener, 0) + result.getWins(opener, 1) + result.getDraws(opener);
+      }
+      assertEquals(2001, total, "Every game should be counted once");
+      assertEquals(1001, result.getWins(0, 0) + result.getWins(0, 1) + result.getDraws(0), "Strategies should take turns to open");
+      assertTrue(result.getWins(0, 1) + result.getWins(1, 1) > 10 * (result.getWins(0, 0) + result.getWins(1, 0)), result.toString());
+      assertTrue(result.getAverageLength() >= 5 && result.getAverageLength() <= 9);
+      assertEquals(result.toString(), result.toString());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  void testRandomSelfPlayFavoursTheOpener() {
+    OXOSimulation simulation = new OXOSimulation(ForkJoinPool.commonPool())
+        .addStrategy("first", OXORandomEngine::new)
+        .addStrategy("second", OXORandomEngine::new)
+        .addStrategy("third", OXORandomEngine::new);
+    OXOSimulation.Result result = simulation.run(5, 5, 3, 3000, 7);
+    assertEquals(3000, result.getNumberOfGames());
+    // Three random players on 5x5 rarely draw, and the first to move has a head start
+    assertTrue(result.getFirstMoverWinRate() > 1.0 / 3, result.toString());
+    assertThrows(IllegalStateException.class, () -> new OXOSimulation(ForkJoinPool.commonPool()).run(3, 3, 3, 1, 1));
+  }
+}
@@ -0,0 +1,134 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Test;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotTests {
+
+  private static OXOModel makeModel(int rows, int cols, int threshold, String letters) {
+    OXOModel model = new OXOModel(rows, cols, threshold);
+    for (char letter : letters.toCharArray()) model.addPlayer(new OXOPlayer(letter));
+    return model;
+  }
+
+  private static void assertSameGame(OXOModel expected, OXOModel actual) {
+    assertEquals(expected.getNumberOfRows(), actual.getNumberOfRows());
+    assertEquals(expected.getNumberOfColumns(), actual.getNumberOfColumns());
+    assertEquals(expected.getWinThreshold(), actual.getWinThreshold());
+    assertEquals(expected.getNumberOfPlayers(), actual.getNumberOfPlayers());
+    for (int i = 0; i < expected.getNumberOfPlayers(); i++) {
+      assertEquals(expected.getPlayerByNumber(i).getPlayingLetter(), actual.getPlayerByNumber(i).getPlayingLetter());
+    }
+    assertEquals(expected.getCurrentPlayerNumber(), actual.getCurrentPlayerNumber());
+    assertEquals(expected.isGameDrawn(), actual.isGameDrawn());
+    assertEquals(expected.getWinner() == null ? -1 : expected.getPlayerNumber(expected.getWinner()),
+        actual.getWinner() == null ? -1 : actual.getPlayerNumber(actual.getWinner()));
+    for (int row = 0; row < expected.getNumberOfRows(); row++) {
+      for (int col = 0; col < expected.getNumberOfColumns(); col++) {
+        assertEquals(expected.getCellOwnerNumber(row, col), actual.getCellOwnerNumber(row, col), "Cell " + row + "," + col);
+      }
+    }
+  }
+
+  private static OXOModel roundTrip(OXOModel model) {
+    ByteBuffer buffer = ByteBuffer.allocate(OXOSnapshotCodec.encodedSize(model));
+    OXOSnapshotCodec.write(model, buffer);
+    assertFalse(buffer.hasRemaining(), "encodedSize should be exact");
+    buffer.flip();
+    OXOModel copy = OXOSnapshotCodec.read(buffer);
+    assertFalse(buffer.hasRemaining(), "Reading should consume the whole snapshot");
+    return copy;
+  }
+
+  @Test
+  void testTwoPlayerGamesRoundTrip() {
+    OXOModel model = makeModel(3, 3, 3, "XO");
+    OXOController controller = new OXOController(model);
+    controller.applyMoves("a1 b2 a2 c3");
+    assertSameGame(model, roundTrip(model));
+    controller.applyMoves("a3");
+    assertNotNull(model.getWinner());
+    assertSameGame(model, roundTrip(model));
+    OXOModel drawn = makeModel(3, 3, 3, "XO");
+    new OXOController(drawn).applyMoves("a1 b2 c3 a2 c2 c1 a3 b3 b1");
+    assertTrue(drawn.isGameDrawn());
+    assertSameGame(drawn, roundTrip(drawn));
+  }
+
+  @Test
+  void testCellsTakeTwoBitsForTwoPlayers() {
+    OXOModel model = makeModel(15, 15, 5, "XO");
+    new OXOController(model).applyMoves("h8 h9 g7 a1 o15");
+    // 225 cells at 2 bits is 57 bytes, and the header is only a handful more
+    assertEquals(57, (225 * 2 + 7) / 8);
+    assertTrue(OXOSnapshotCodec.encodedSize(model) <= 57 + 12, "Snapshot was " + OXOSnapshotCodec.encodedSize(model) + " bytes");
+    assertSameGame(model, roundTrip(model));
+  }
+
+  @Test
+  void testMorePlayersWidenTheCells() {
+    assertEquals(2, OXOSnapshotCodec.bitsPerCell(3));
+    assertEquals(3, OXOSnapshotCodec.bitsPerCell(4));
+    OXOModel model = makeModel(5, 7, 4, "ABCDEFGHI");
+    for (int cell = 0; cell < 35; cell++) {
+      if (cell % 4 != 3) model.setCellOwnerNumber(cell / 7, cell % 7, cell % 9);
+    }
+    model.setCurrentPlayerNumber(8);
+    model.setWinThreshold(-1);
+    assertSameGame(model, roundTrip(model));
+  }
+
+  @Test
+  void testCellsWiderThanAByte() {
+    OXOModel model = new OXOModel(3, 3, 3);
+    for (int i = 0; i < 300; i++) model.addPlayer(new OXOPlayer((char) ('A' + i)));
+    assertEquals(9, OXOSnapshotCodec.bitsPerCell(300));
+    model.setCellOwnerNumber(0, 0, 5);
+    model.setCellOwnerNumber(1, 1, 260);
+    model.setCellOwnerNumber(2, 2, 299);
+    model.setCurrentPlayerNumber(299);
+    assertSameGame(model, roundTrip(model));
+  }
+
+  @Test
+  void testReadIntoExistingModel() {
+    OXOModel source = makeModel(4, 6, 4, "PQ");
+    new OXOController(source).applyMoves("a1 d6 b2");
+    ByteBuffer buffer = ByteBuffer.allocateDirect(256);
+    buffer.put((byte) 99);
+    OXOSnapshotCodec.write(source, buffer);
+    buffer.flip().get();
+
+    OXOModel target = makeModel(3, 3, 3, "XO");
+    OXOPlayer shared = target.getPlayerByNumber(0);
+    target.setGameDrawn();
+    target.setCellOwnerNumber(2, 2, 1);
+    assertSame(target, OXOSnapshotCodec.read(buffer, target));
+    assertSameGame(source, target);
+    assertEquals('X', shared.getPlayingLetter(), "Players someone else may hold shouldn't be changed");
+    assertThrows(IllegalArgumentException.class, () -> OXOSnapshotCodec.read(ByteBuffer.allocate(0)));
+    buffer.rewind().get();
+    assertThrows(IllegalArgumentException.class, () -> OXOSnapshotCodec.read(buffer, makeModel(3, 3, 3, "XOZ")));
+  }
+
+  @Test
+  void testHeaderCheckedBeforeAllocating() {
+    ByteBuffer frame = ByteBuffer.allocate(16);
+    frame.put((byte) OXOSnapshotCodec.VERSION);
+    OXOSnapshotCodec.putVarint(frame, Integer.MAX_VALUE);
+    OXOSnapshotCodec.putVarint(frame, Integer.MAX_VALUE);
+    OXOSnapshotCodec.putVarint(frame, 6);
+    OXOSnapshotCodec.putVarint(frame, 1);
+    frame.put((byte) 'X').put((byte) 0).put((byte) 0);
+    frame.flip();
+    assertThrows(IllegalArgumentException.class, () -> OXOSnapshotCodec.read(frame), "A few bytes can't hold a huge board");
+
+    ByteBuffer players = ByteBuffer.allocate(8);
+    players.put((byte) OXOSnapshotCodec.VERSION).put((byte) 1).put((byte) 1).put((byte) 6);
+    OXOSnapshotCodec.putVarint(players, 1_000_000);
+    players.flip();
+    assertThrows(IllegalArgumentException.class, () -> OXOSnapshotCodec.read(players));
+  }
+}
@@ -0,0 +1,68 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs every BoardTests case against the sparse board too
+class SparseBoardTests extends BoardTests {
+
+  OXOBoard makeBoard(int rows, int columns) {
+    return new OXOSparseBoard(rows, columns);
+  }
+
+  @Test
+  void testHugeBoard() {
+    OXOBoard board = makeBoard(10000, 10000);
+    for (int i = 0; i < 5000; i++) {
+      board.addRow();
+      board.addColumn();
+    }
+    for (int i = 0; i < 5; i++) board.setOwner(14990 + i, 14999 - i, 1);
+    assertEquals(5, board.getNumberOfClaimedCells(), "Claimed cell count is wrong");
+    assertTrue(board.hasLine(1, 5), "Anti-diagonal line wasn't found in the far corner");
+    assertFalse(board.hasLine(1, 6), "Anti-diagonal line is too long");
+    board.removeColumn();
+    assertEquals(4, board.getNumberOfClaimedCells(), "Cell in the removed column should be gone");
+    assertFalse(board.hasLine(1, 5), "Line should be broken by removing a column");
+  }
+
+  @Test
+  void testMovesPastTheEncodableCorner() {
+    OXOModel model = new OXOModel(new OXOSparseBoard(100_000, 100_000), 5);
+    model.addPlayer(new OXOPlayer('X'));
+    model.addPlayer(new OXOPlayer('O'));
+    OXOController controller = new OXOController(model);
+    int last = OXOController.encodeMove(OXOController.MAX_ENCODED_ROW, OXOController.MAX_ENCODED_COLUMN);
+    assertTrue(last >= 0, "Moves are never negative");
+    assertEquals(OXOController.MAX_ENCODED_ROW, OXOController.decodeRow(last));
+    assertEquals(OXOController.MAX_ENCODED_COLUMN, OXOController.decodeColumn(last));
+    assertThrows(IllegalArgumentException.class, ()-> OXOController.encodeMove(OXOController.MAX_ENCODED_ROW + 1, 0));
+    assertThrows(IllegalArgumentException.class, ()-> OXOController.encodeMove(0, OXOController.MAX_ENCODED_COLUMN + 1));
+
+    assertEquals(OXOMoveResult.ROW_OUT_OF_RANGE, controller.tryMove(40_000, 0));
+    assertEquals(OXOMoveResult.COLUMN_OUT_OF_RANGE, controller.tryMove(0, 70_000));
+    assertThrows(OXOMoveException.OutsideCellRangeException.class,
+        ()-> controller.handleIncomingCommand(OXOCommandParser.cellName(40_000, 0)));
+    assertEquals(0, model.getNumberOfClaimedCells(), "Nothing should have been claimed");
+    assertEquals(OXOMoveResult.CLAIMED, controller.tryMove(OXOController.MAX_ENCODED_ROW, OXOController.MAX_ENCODED_COLUMN));
+    assertEquals(last, controller.getLastMove());
+    controller.removeRow();
+    assertTrue(controller.undo());
+    assertEquals(1, model.getNumberOfClaimedCells());
+  }
+
+  @Test
+  void testControllerOnSparseModel() {
+    OXOModel model = new OXOModel(new OXOSparseBoard(3, 3), 3);
+    model.addPlayer(new OXOPlayer('X'));
+    model.addPlayer(new OXOPlayer('O'));
+    OXOController controller = new OXOController(model);
+    OXOPlayer firstMovingPlayer = model.getPlayerByNumber(model.getCurrentPlayerNumber());
+    for (String command : new String[] {"c1", "c3", "b2", "a1", "a3"}) {
+      assertTimeoutPreemptively(Duration.ofMillis(1000), ()-> controller.handleIncomingCommand(command));
+    }
+    assertEquals(firstMovingPlayer, model.getWinner(), "Anti-diagonal win wasn't detected on a sparse board");
+  }
+}
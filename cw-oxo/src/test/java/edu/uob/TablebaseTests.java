@@ -0,0 +1,78 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TablebaseTests {
+
+  @TempDir
+  Path directory;
+
+  private static OXOModel makeModel(int rows, int cols, int threshold, String letters) {
+    OXOModel model = new OXOModel(rows, cols, threshold);
+    for (char letter : letters.toCharArray()) model.addPlayer(new OXOPlayer(letter));
+    return model;
+  }
+
+  private OXOTablebase generate(int rows, int cols, int threshold, int players) throws IOException {
+    Path file = directory.resolve(rows + "x" + cols + "-" + threshold + "-" + players + ".oxot");
+    new OXOTablebaseGenerator(rows, cols, threshold, players).generate(file);
+    return OXOTablebase.open(file);
+  }
+
+  // Plays the tablebase against itself and checks it gets the result it predicted at every step
+  private static void playPerfectGame(OXOTablebase tablebase, OXOModel model) {
+    OXOController controller = new OXOController(model);
+    int predicted = tablebase.getOutcome(model);
+    while (model.getWinner() == null && !model.isGameDrawn()) {
+      assertEquals(predicted, tablebase.getOutcome(model), "Perfect play shouldn't change the outcome");
+      int move = tablebase.chooseMove(model);
+      assertNotEquals(-1, move);
+      assertTrue(controller.tryMove(OXOController.decodeRow(move), OXOController.decodeColumn(move)).ordinal() < OXOMoveResult.GAME_OVER.ordinal());
+    }
+    int result = model.getWinner() == null ? OXOBoard.EMPTY : model.getPlayerNumber(model.getWinner());
+    assertEquals(predicted, result, "The game should end the way the tablebase said it would");
+  }
+
+  @Test
+  void testNoughtsAndCrosses() throws IOException {
+    OXOTablebase tablebase = generate(3, 3, 3, 2);
+    OXOModel model = makeModel(3, 3, 3, "XO");
+    assertEquals(OXOBoard.EMPTY, tablebase.getOutcome(model), "Noughts and crosses is a draw");
+    playPerfectGame(tablebase, model);
+
+    // The same threat in two orientations, so both need the symmetry undoing properly
+    model = makeModel(3, 3, 3, "XO");
+    new OXOController(model).applyMoves("a1 b1 a2 b2");
+    assertEquals(0, tablebase.getOutcome(model));
+    assertEquals(OXOController.encodeMove(0, 2), tablebase.chooseMove(model), "X should win at a3");
+    model = makeModel(3, 3, 3, "XO");
+    new OXOController(model).applyMoves("c1 b1 c2 b3");
+    assertEquals(0, tablebase.getOutcome(model));
+    assertEquals(OXOController.encodeMove(2, 2), tablebase.chooseMove(model), "X should win at c3 rather than block b2");
+  }
+
+  @Test
+  void testThreePlayers() throws IOException {
+    OXOTablebase tablebase = generate(3, 3, 3, 3);
+    playPerfectGame(tablebase, makeModel(3, 3, 3, "XOH"));
+  }
+
+  @Test
+  void testUncoveredPositions() throws IOException {
+    OXOTablebase tablebase = generate(3, 3, 3, 2);
+    OXOModel model = makeModel(4, 4, 3, "XO");
+    assertFalse(tablebase.covers(model));
+    assertEquals(OXOTablebase.UNKNOWN, tablebase.getOutcome(model));
+    assertEquals(-1, tablebase.chooseMove(model));
+    model = makeModel(3, 3, 3, "XO");
+    OXOController controller = new OXOController(model);
+    controller.applyMoves("a1 b1 a2 b2 a3");
+    assertEquals(OXOTablebase.UNKNOWN, tablebase.getOutcome(model), "Finished games have no outcome left to predict");
+    assertEquals(-1, tablebase.chooseMove(makeModel(3, 3, 2, "XO")), "A different threshold is a different game");
+  }
+}
@@ -0,0 +1,147 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Test;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThreatIndexTests {
+
+  private static OXOModel makeModel(int numberOfRows, int numberOfColumns, int winThreshold) {
+    OXOModel model = new OXOModel(numberOfRows, numberOfColumns, winThreshold);
+    model.addPlayer(new OXOPlayer('X'));
+    model.addPlayer(new OXOPlayer('O'));
+    return model;
+  }
+
+  // Whether any line of winThreshold cells holds cells of at most one player, checked the slow way
+  private static boolean winPossible(OXOModel model) {
+    int[][] steps = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+    int threshold = model.getWinThreshold();
+    for (int row = 0; row < model.getNumberOfRows(); row++) {
+      for (int col = 0; col < model.getNumberOfColumns(); col++) {
+        for (int[] step : steps) {
+          int owner = OXOBoard.EMPTY;
+          boolean open = true;
+          for (int i = 0; i < threshold && open; i++) {
+            int r = row + i * step[0];
+            int c = col + i * step[1];
+            if (r >= model.getNumberOfRows() || c < 0 || c >= model.getNumberOfColumns()) {
+              open = false;
+            } else {
+              int player = model.getCellOwnerNumber(r, c);
+              if (player != OXOBoard.EMPTY && owner != OXOBoard.EMPTY && player != owner) open = false;
+              if (player != OXOBoard.EMPTY) owner = player;
+            }
+          }
+          if (open) return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  @Test
+  void testDrawnBeforeTheBoardFills() {
+    OXOModel model = makeModel(3, 3, 3);
+    OXOController controller = new OXOController(model);
+    controller.setEarlyDraws(true);
+    assertEquals(1, controller.applyMoves("a1 b2 a3 a2 c2 b3 b1 c1 c3").count(OXOMoveResult.DRAWN));
+    assertTrue(model.isGameDrawn());
+    assertTrue(model.getNumberOfClaimedCells() < 9, "Nobody could win, so the game should have ended early");
+    assertEquals(OXOMoveResult.GAME_OVER, controller.tryMove("c3"));
+
+    controller.undo();
+    assertFalse(model.isGameDrawn());
+    assertTrue(controller.getThreatIndex().isWinPossible(model));
+    controller.redo();
+    assertTrue(model.isGameDrawn());
+    controller.restart();
+    assertEquals(OXOMoveResult.CLAIMED, controller.tryMove("a1"), "A restarted game can be played again");
+  }
+
+  @Test
+  void testFullBoardsStillNeededWithoutEarlyDraws() {
+    OXOModel model = makeModel(3, 3, 3);
+    OXOController controller = new OXOController(model);
+    assertEquals(1, controller.applyMoves("a1 b2 a3 a2 c2 b3 b1 c1 c3").count(OXOMoveResult.DRAWN));
+    assertEquals(9, model.getNumberOfClaimedCells());
+    assertNull(controller.getThreatIndex());
+  }
+
+  @Test
+  void testDrawReopensWhenLinesOpenUp() {
+    OXOModel model = makeModel(3, 3, 3);
+    OXOGameSession session = new OXOGameSession(1, model);
+    StringBuilder reply = new StringBuilder();
+    for (String line : new String[] {"THRESHOLD 4", "a1", "THRESHOLD 3"}) {
+      reply.setLength(0);
+      session.execute(line, reply);
+    }
+    assertEquals("OK TURN O", reply.toString(), "Lines of three are possible again");
+    reply.setLength(0);
+    session.execute("b2", reply);
+    assertEquals("OK TURN X", reply.toString());
+    assertEquals(2, model.getNumberOfClaimedCells());
+
+    OXOController controller = session.getController();
+    controller.increaseWinThreshold();
+    assertEquals(OXOMoveResult.DRAWN, controller.tryMove("c3"));
+    controller.addRow();
+    controller.addColumn();
+    assertFalse(model.isGameDrawn(), "A 4x4 board has room for a line of four");
+    assertEquals(OXOMoveResult.CLAIMED, controller.tryMove("d4"));
+  }
+
+  @Test
+  void testNoLinesLongEnough() {
+    OXOModel model = makeModel(3, 3, 4);
+    OXOController controller = new OXOController(model);
+    controller.setEarlyDraws(true);
+    assertEquals(0, controller.getThreatIndex().getNumberOfOpenWindows(model));
+    assertEquals(OXOMoveResult.DRAWN, controller.tryMove("b2"));
+  }
+
+  // Plays random games on random boards, taking moves back and changing the board as it goes, and checks the
+  // index against a fresh one and against looking at every line
+  @Test
+  void testIndexKeepsUpWithTheGame() {
+    Random random = new Random(25);
+    for (int game = 0; game < 200; game++) {
+      OXOModel model = makeModel(1 + random.nextInt(7), 1 + random.nextInt(7), 2 + random.nextInt(4));
+      OXOController controller = new OXOController(model);
+      controller.setEarlyDraws(true);
+      OXOThreatIndex index = controller.getThreatIndex();
+      for (int step = 0; step < 60; step++) {
+        int choice = random.nextInt(20);
+        if (choice < 3) {
+          controller.undo();
+        } else if (choice < 4) {
+          controller.redo();
+        } else if (choice < 5) {
+          if (random.nextBoolean()) controller.addRow(); else controller.removeColumn();
+        } else if (choice < 6) {
+          if (random.nextBoolean()) controller.increaseWinThreshold(); else controller.decreaseWinThreshold();
+        } else if (model.getNumberOfRows() > 0 && model.getNumberOfColumns() > 0) {
+          controller.tryMove(random.nextInt(model.getNumberOfRows()), random.nextInt(model.getNumberOfColumns()));
+        }
+        assertEquals(new OXOThreatIndex().getNumberOfOpenWindows(model), index.getNumberOfOpenWindows(model));
+        assertEquals(winPossible(model), index.isWinPossible(model));
+      }
+    }
+  }
+
+  @Test
+  void testMoveOrdering() {
+    OXOModel model = makeModel(3, 3, 3);
+    OXOController controller = new OXOController(model);
+    controller.setEarlyDraws(true);
+    controller.applyMoves("a1 b1 a2");
+    OXOThreatIndex index = controller.getThreatIndex();
+    int[] moves = new int[9];
+    assertEquals(6, index.orderMoves(model, 1, moves));
+    assertEquals(OXOController.encodeMove(0, 2), moves[0], "O should block a3 first");
+    assertEquals(OXOController.encodeMove(0, 2), index.orderMoves(model, 0, moves) > 0 ? moves[0] : -1, "X should win at a3");
+    assertTrue(index.getPotential(model, 0, 2, 0) > index.getPotential(model, 0, 2, 1), "Winning is worth more than blocking");
+  }
+}
@@ -0,0 +1,149 @@
+package edu.uob;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ViewTests {
+
+  @BeforeAll
+  static void setHeadless() {
+    System.setProperty("java.awt.headless", "true");
+  }
+
+  // Keeps the regions it is asked to repaint instead of asking Swing
+  static class RecordingView extends OXOView {
+    @Serial private static final long serialVersionUID = 1;
+    final transient List<Rectangle> requested = new ArrayList<>();
+
+    RecordingView(OXOModel model) {
+      super(model);
+    }
+
+    public void repaint(long time, int x, int y, int width, int height) {
+      if (requested != null) requested.add(new Rectangle(x, y, width, height));
+    }
+  }
+
+  private static BufferedImage paint(OXOView view) {
+    BufferedImage image = new BufferedImage(view.getWidth(), view.getHeight(), BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = image.createGraphics();
+    view.paint(g);
+    g.dispose();
+    return image;
+  }
+
+  private static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+    for (int y = 0; y < expected.getHeight(); y++) {
+      for (int x = 0; x < expected.getWidth(); x++) {
+        assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "Pixel " + x + "," + y);
+      }
+    }
+  }
+
+  @Test
+  void testOnlyChangedCellsAreRedrawn() {
+    OXOModel model = new OXOModel(100, 100, 5);
+    model.addPlayer(new OXOPlayer('X'));
+    model.addPlayer(new OXOPlayer('O'));
+    OXOController controller = new OXOController(model);
+    OXOView view = new OXOView(model);
+    view.setSize(2100, 2100);
+    paint(view);
+    assertEquals(0, view.getCellsPainted());
+    controller.applyMoves("a1 b2");
+    paint(view);
+    assertEquals(2, view.getCellsPainted(), "Only the two new cells should be drawn");
+    paint(view);
+    assertEquals(0, view.getCellsPainted(), "Nothing changed, so nothing should be drawn");
+    controller.addRow();
+    paint(view);
+    assertEquals(2, view.getCellsPainted(), "Changing the board size redraws every claimed cell");
+  }
+
+  @Test
+  void testCellsChangedAfterABurstStillReachTheScreen() {
+    OXOModel model = new OXOModel(9, 9, 9);
+    model.addPlayer(new OXOPlayer('X'));
+    model.addPlayer(new OXOPlayer('O'));
+    OXOController controller = new OXOController(model);
+    RecordingView view = new RecordingView(model);
+    view.setSize(600, 600);
+    paint(view);
+    view.requested.clear();
+    int[] moves = new int[22];
+    for (int i = 0; i < moves.length; i++) moves[i] = OXOController.encodeMove(i / 9, i % 9);
+    controller.applyMoves(moves);
+    assertTrue(view.requested.stream().anyMatch(region -> region.width == view.getWidth() && region.y == 0),
+        "Giving up on single cells should ask for the whole board");
+    view.requested.clear();
+    controller.tryMove(8, 8);
+    assertEquals(1, view.requested.stream().filter(region -> region.width < view.getWidth()).count(),
+        "A cell changed while everything is due to be redrawn still needs its region repainted");
+  }
+
+  @Test
+  void testIncrementalFramesMatchAFullRedraw() {
+    OXOModel model = new OXOModel(5, 5, 4);
+    model.addPlayer(new OXOPlayer('X'));
+    model.addPlayer(new OXOPlayer('O'));
+    OXOController controller = new OXOController(model);
+    OXOView view = new OXOView(model);
+    view.setSize(300, 300);
+    paint(view);
+    controller.applyMoves("a1 c3 e5 b2");
+    model.setCellOwnerNumber(0, 0, OXOBoard.EMPTY);
+    BufferedImage incremental = paint(view);
+
+    OXOView fresh = new OXOView(model);
+    fresh.setSize(300, 300);
+    assertSameImage(paint(fresh), incremental);
+  }
+
+  @Test
+  void testHugeBoardsScrollAndZoom() {
+    OXOModel model = new OXOModel(new OXOSparseBoard(100_000, 100_000), 5);
+    model.addPlayer(new OXOPlayer('X'));
+    model.addPlayer(new OXOPlayer('O'));
+    OXOController controller = new OXOController(model);
+    OXOView view = new OXOView(model);
+    view.setSize(600, 600);
+    controller.applyMoves("a1 zz500");
+    paint(view);
+    assertEquals(500 / OXOView.MIN_CELL_SIZE, view.getNumberOfVisibleRows(), "Cells should stop shrinking at the minimum size");
+    assertEquals(500 / OXOView.MIN_CELL_SIZE, view.getNumberOfVisibleColumns());
+    assertEquals(1, view.getCellsPainted(), "Only a1 is in the window");
+
+    int row = 26 * 27 - 1;
+    view.scrollTo(row - 5, 495);
+    paint(view);
+    assertEquals(row - 5, view.getFirstVisibleRow());
+    assertEquals(1, view.getCellsPainted(), "Only zz500 is in the window now");
+    controller.tryMove(row, 501);
+    paint(view);
+    assertEquals(1, view.getCellsPainted());
+
+    view.setCellSize(50);
+    paint(view);
+    assertEquals(10, view.getNumberOfVisibleRows());
+    view.scrollTo(Integer.MAX_VALUE, Integer.MAX_VALUE);
+    paint(view);
+    assertEquals(100_000 - 10, view.getFirstVisibleRow(), "Scrolling should stop at the edge of the board");
+    model.setCellOwnerNumber(100_000 - 1, 100_000 - 1, 1);
+    paint(view);
+    assertEquals(1, view.getCellsPainted(), "Cells past what a move can pack should still be redrawn");
+
+    view.setCellSize(0);
+    view.scrollTo(0, 0);
+    paint(view);
+    assertEquals(0, view.getCellSize());
+    assertEquals(20, view.getNumberOfVisibleColumns());
+  }
+}
@@ -0,0 +1,93 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadServerTests {
+
+  @Test
+  void testGameOverSockets() throws Exception {
+    try (OXOVirtualThreadServer server = new OXOVirtualThreadServer(0)) {
+      server.start();
+      try (Socket first = new Socket("localhost", server.getPort()); Socket second = new Socket("localhost", server.getPort())) {
+        BufferedReader firstIn = new BufferedReader(new InputStreamReader(first.getInputStream(), StandardCharsets.US_ASCII));
+        BufferedReader secondIn = new BufferedReader(new InputStreamReader(second.getInputStream(), StandardCharsets.US_ASCII));
+        PrintWriter firstOut = new PrintWriter(first.getOutputStream(), true, StandardCharsets.US_ASCII);
+        PrintWriter secondOut = new PrintWriter(second.getOutputStream(), true, StandardCharsets.US_ASCII);
+        firstOut.println("CREATE 3 3 3 XO");
+        String created = firstIn.readLine();
+        secondOut.println("JOIN " + created.substring(5));
+        assertEquals(created, secondIn.readLine());
+        String[] moves = {"b2", "a1", "c1", "a3", "a2", "c3", "b3", "b1", "c2"};
+        for (int i = 0; i < moves.length; i++) {
+          (i % 2 == 0 ? firstOut : secondOut).println(moves[i]);
+          String reply = (i % 2 == 0 ? firstIn : secondIn).readLine();
+          assertTrue(reply.startsWith("OK"), "Move " + moves[i] + " was rejected: " + reply);
+        }
+        firstOut.println("BOARD");
+        assertEquals("BOARD 3 3 3 OXO/OXX/XXO", firstIn.readLine());
+      }
+    }
+  }
+
+  // Plays a short game in every session at once, for growing numbers of sessions, and reports the heap
+  // used per session and the command latency seen by callers to the test report rather than the console
+  @Test
+  @Tag("stress")
+  void testSessionScaling(TestReporter reporter) {
+    assertTimeoutPreemptively(Duration.ofSeconds(60), ()-> {
+      String[] moves = {"a1", "b1", "a2", "b2", "a3"};
+      for (int sessions : new int[] {1_000, 10_000, 50_000}) {
+        long heapBefore = usedHeap();
+        OXOSessionRegistry registry = new OXOSessionRegistry();
+        OXOSessionLoop[] loops = new OXOSessionLoop[sessions];
+        for (int i = 0; i < sessions; i++) loops[i] = new OXOSessionLoop(registry.create(3, 3, 3, "XO"));
+        long heapPerSession = (usedHeap() - heapBefore) / sessions;
+
+        long[] latencies = new long[sessions * moves.length];
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+          List<Future<String>> results = new ArrayList<>();
+          for (int i = 0; i < sessions; i++) {
+            int session = i;
+            results.add(clients.submit(()-> {
+              String reply = null;
+              for (int move = 0; move < moves.length; move++) {
+                long start = System.nanoTime();
+                reply = loops[session].execute(moves[move]);
+                latencies[session * moves.length + move] = System.nanoTime() - start;
+              }
+              return reply;
+            }));
+          }
+          for (Future<String> result : results) assertEquals("OK WIN X", result.get());
+        }
+        for (OXOSessionLoop loop : loops) loop.close();
+        for (OXOSessionLoop loop : loops) loop.join();
+
+        Arrays.sort(latencies);
+        reporter.publishEntry(sessions + " sessions", String.format("%d B/session, p50 %d us, p99 %d us, max %d us", heapPerSession,
+            latencies[latencies.length / 2] / 1000, latencies[latencies.length * 99 / 100] / 1000, latencies[latencies.length - 1] / 1000));
+      }
+    });
+  }
+
+  long usedHeap() {
+    System.gc();
+    return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+  }
+}